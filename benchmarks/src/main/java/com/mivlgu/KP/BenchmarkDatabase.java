@@ -0,0 +1,131 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Временная база данных для тестов производительности.
+ * <p>
+ * Для каждого размера таблицы один раз создаётся образец
+ * во временном каталоге ({@code kp-bench-<строк>.db}), заполненный
+ * работниками {@link WorkerGenerator} с фиксированным начальным значением.
+ * Каждый запуск теста работает с копией образца, поэтому записи
+ * одного теста не влияют на другие, а долгое заполнение таблицы
+ * из миллиона строк выполняется только при первом запуске.
+ * </p>
+ *
+ * База подключается через {@link dbCon}: адрес и параметры SQLite
+ * задаются системными свойствами {@code kp.db.url} и {@code kp.pragma.*}
+ * до создания пула соединений.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(BenchmarkDatabase.class);
+
+    /** Количество работников, сохраняемых одной транзакцией при заполнении */
+    private static final int SEED_BATCH = 10_000;
+
+    /**
+     * Наборы параметров SQLite. Значения дополняют и переопределяют
+     * параметры из {@code database.properties}.
+     */
+    public enum Pragmas {
+        /** Параметры приложения без изменений */
+        DEFAULT(Map.of()),
+        /** Синхронизация журнала при каждой фиксации */
+        DURABLE(Map.of("synchronous", "FULL")),
+        /** Без синхронизации, увеличенный кэш, временные данные в памяти */
+        FAST(Map.of("synchronous", "OFF", "cache_size", "-65536", "temp_store", "MEMORY"));
+
+        private final Map<String, String> values;
+
+        Pragmas(Map<String, String> values) {
+            this.values = values;
+        }
+    }
+
+    private final Path file;
+
+    private BenchmarkDatabase(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Создаёт копию образца с заданным количеством работников
+     * и подключает к ней приложение.
+     *
+     * @param rows количество работников
+     * @param pragmas набор параметров SQLite
+     * @return открытая база данных
+     * @throws IOException при ошибке копирования файла
+     * @throws SQLException при ошибке закрытия предыдущего пула
+     */
+    public static BenchmarkDatabase open(int rows, Pragmas pragmas) throws IOException, SQLException {
+        Path template = template(rows);
+        Path file = Files.createTempFile("kp-bench-", ".db");
+        Files.copy(template, file, StandardCopyOption.REPLACE_EXISTING);
+        connect(file, pragmas);
+        return new BenchmarkDatabase(file);
+    }
+
+    /**
+     * Возвращает образец базы, создавая и заполняя его при первом обращении.
+     */
+    private static synchronized Path template(int rows) throws IOException, SQLException {
+        Path template = Path.of(System.getProperty("java.io.tmpdir"), "kp-bench-" + rows + ".db");
+        if (Files.exists(template)) {
+            return template;
+        }
+        Path partial = Files.createTempFile("kp-bench-seed-", ".db");
+        connect(partial, Pragmas.FAST);
+        long start = System.nanoTime();
+        WorkerDao dao = new WorkerDao();
+        WorkerGenerator generator = new WorkerGenerator(rows);
+        for (int done = 0; done < rows; done += SEED_BATCH) {
+            dao.saveAll(generator.next(Math.min(SEED_BATCH, rows - done)));
+        }
+        // закрытие пула переносит журнал WAL в основной файл
+        dbCon.stopConnection();
+        Files.move(partial, template, StandardCopyOption.REPLACE_EXISTING);
+        logger.warn("Создан образец базы {} ({} строк) за {} с", template, rows,
+                (System.nanoTime() - start) / 1_000_000_000);
+        return template;
+    }
+
+    /**
+     * Подключает приложение к файлу базы с заданными параметрами.
+     */
+    private static void connect(Path file, Pragmas pragmas) throws SQLException {
+        dbCon.stopConnection();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("kp.pragma.")) {
+                System.clearProperty(key);
+            }
+        }
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + file.toAbsolutePath());
+        pragmas.values.forEach((name, value) -> System.setProperty("kp.pragma." + name, value));
+        LabApplication.initStorage();
+    }
+
+    /**
+     * Закрывает пул соединений и удаляет копию базы вместе с журналом.
+     */
+    @Override
+    public void close() throws SQLException, IOException {
+        dbCon.stopConnection();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Path.of(file + "-wal"));
+        Files.deleteIfExists(Path.of(file + "-shm"));
+    }
+}
@@ -0,0 +1,183 @@
+package com.mivlgu.KP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Повторные чтения по идентификатору через кэш ({@link CachingDao})
+ * и напрямую через {@link WorkerDao}.
+ * <p>
+ * Идентификаторы выбираются по закону Ципфа: k-й по популярности
+ * работник запрашивается с вероятностью, пропорциональной
+ * {@code 1 / k^s}, как это обычно бывает с карточками, которые
+ * открывают в интерфейсе. При {@code skew = 0} распределение
+ * равномерное. Популярные работники разбросаны по всей таблице.
+ * Последовательность идентификаторов строится заранее, чтобы
+ * выбор ключа не входил в измерение.
+ * </p>
+ *
+ * По завершении выводится статистика кэша: при размере кэша
+ * меньше таблицы доля попаданий показывает, насколько LRU
+ * удерживает «горячие» записи.
+ *
+ * Запуск: {@code mvn package exec:exec -Pcache}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CachingDaoBenchmark {
+
+    /** Длина заранее построенной последовательности идентификаторов */
+    private static final int SEQUENCE = 1 << 20;
+
+    /**
+     * Способ чтения.
+     */
+    public enum ReadMode {
+        /** Каждое чтение выполняется запросом к базе */
+        DIRECT,
+        /** Чтения проходят через кэш */
+        CACHED
+    }
+
+    /** Количество работников в таблице */
+    @Param({"100000"})
+    public int rows;
+
+    /** Набор параметров SQLite */
+    @Param({"DEFAULT"})
+    public BenchmarkDatabase.Pragmas pragmas;
+
+    /** Способ чтения */
+    @Param({"DIRECT", "CACHED"})
+    public ReadMode mode;
+
+    /** Показатель распределения Ципфа, 0 — равномерное */
+    @Param({"0", "0.99"})
+    public double skew;
+
+    /** Размер кэша */
+    @Param({"10000"})
+    public int cacheSize;
+
+    private BenchmarkDatabase database;
+    private Dao<Worker, Integer> dao;
+    private CachingDao cache;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(rows, pragmas);
+        WorkerDao workerDao = new WorkerDao();
+        if (mode == ReadMode.CACHED) {
+            cache = new CachingDao(workerDao, cacheSize, 0);
+            dao = cache;
+        } else {
+            dao = workerDao;
+        }
+        ids = zipf(rows, skew, SEQUENCE, new SplittableRandom(42));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatistics() {
+        if (cache != null) {
+            cache.resetStatistics();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        if (cache != null) {
+            System.out.printf("%n%s%n", cache);
+            cache.close();
+        }
+        database.close();
+    }
+
+    /**
+     * Позиция потока в последовательности идентификаторов.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        @Setup(Level.Trial)
+        public void start() {
+            position = (int) (Thread.currentThread().threadId() * 7919) & (SEQUENCE - 1);
+        }
+
+        int next(int[] ids) {
+            int id = ids[position];
+            position = (position + 1) & (SEQUENCE - 1);
+            return id;
+        }
+    }
+
+    @Benchmark
+    public Worker findById(Cursor cursor) {
+        return dao.findById(cursor.next(ids));
+    }
+
+    /**
+     * Строит последовательность идентификаторов от 1 до {@code n}
+     * по закону Ципфа. Рангам популярности соответствуют
+     * идентификаторы в случайном порядке.
+     */
+    static int[] zipf(int n, double s, int length, SplittableRandom random) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, s);
+            cumulative[k] = sum;
+        }
+        int[] idByRank = new int[n];
+        for (int k = 0; k < n; k++) {
+            idByRank[k] = k + 1;
+        }
+        for (int k = n - 1; k > 0; k--) {
+            int j = random.nextInt(k + 1);
+            int t = idByRank[k];
+            idByRank[k] = idByRank[j];
+            idByRank[j] = t;
+        }
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            double u = random.nextDouble() * sum;
+            int lo = 0;
+            int hi = n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulative[mid] < u) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            ids[i] = idByRank[lo];
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,395 @@
+package com.mivlgu.KP;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный тест HTTP API ({@link WorkerHttpServer}).
+ * <p>
+ * Тест запускает заданное количество одновременных клиентов,
+ * каждого в своём виртуальном потоке, с общим пулом соединений
+ * keep-alive {@link HttpClient}, и в течение заданного времени
+ * выполняет случайную смесь запросов в заданных пропорциях. Операция {@code revalidate}
+ * повторяет запрос первой страницы с {@code If-None-Match}
+ * и при неизменной таблице должна получать {@code 304}.
+ * Время каждого запроса записывается в гистограмму HdrHistogram
+ * своей операции, по завершении выводятся перцентили задержки
+ * и распределение кодов ответа.
+ * </p>
+ *
+ * Без {@code --url} тест заполняет базу {@code --db} до {@code --rows} строк
+ * (как {@link LoadTest}) и запускает сервер в том же процессе
+ * на свободном порту; с {@code --url} нагружает уже запущенный сервер.
+ * Для тысяч клиентов может потребоваться увеличить предел
+ * открытых файлов ({@code ulimit -n}).
+ *
+ * Пример запуска (после {@code mvn package} в каталоге {@code benchmarks}):
+ * <pre>
+ * java -cp target/benchmarks.jar com.mivlgu.KP.HttpLoadTest \
+ *      --db load.db --rows 1000000 --clients 2000 --duration 60 \
+ *      --mix get=55,page=15,sorted=1,count=5,search=1,revalidate=20,save=3,update=2
+ * </pre>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class HttpLoadTest {
+
+    /** Период вывода промежуточных результатов, с */
+    private static final int REPORT_INTERVAL_SECONDS = 5;
+
+    /** Наибольшая измеряемая задержка, нс */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** Количество строк на странице для операций чтения страниц */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Смесь операций по умолчанию. Поиск и упорядоченная по фамилии
+     * страница читают десятки тысяч строк и на каждом запросе стоят
+     * сотни миллисекунд, поэтому включаются явно.
+     */
+    private static final String DEFAULT_MIX =
+            "get=55,page=15,count=5,revalidate=20,save=3,update=2";
+
+    /**
+     * Операции нагрузочного теста.
+     */
+    enum Operation {
+        /** Работник по идентификатору */
+        GET("get"),
+        /** Страница по идентификатору со случайного места */
+        PAGE("page"),
+        /** Первая страница по городу, упорядоченная по фамилии */
+        SORTED("sorted"),
+        /** Подсчёт работников города */
+        COUNT("count"),
+        /** Поиск по фамилии или должности */
+        SEARCH("search"),
+        /** Повторный запрос первой страницы с If-None-Match */
+        REVALIDATE("revalidate"),
+        /** Добавление работника */
+        SAVE("save"),
+        /** Изменение работника */
+        UPDATE("update");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        static Operation of(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equalsIgnoreCase(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестная операция: " + key);
+        }
+    }
+
+    private final String base;
+    private final HttpClient client;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+
+    /** Количество ответов по коду; {@code 0} — ошибка соединения */
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    /** Наибольший известный идентификатор для выбора случайных строк */
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    private final Operation[] table;
+
+    private HttpLoadTest(String base, Map<Operation, Integer> mix, ExecutorService executor) {
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+        List<Operation> weighted = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+            recorders.put(operation, new Recorder(MAX_LATENCY_NANOS, 3));
+            totals.put(operation, new Histogram(MAX_LATENCY_NANOS, 3));
+        });
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Пустая смесь операций");
+        }
+        this.table = weighted.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        Map<Operation, Integer> mix = mix(options.getOrDefault("mix", DEFAULT_MIX));
+
+        String url = options.get("url");
+        WorkerHttpServer server = null;
+        if (url == null) {
+            Path db = Path.of(options.getOrDefault("db", "load.db"));
+            long rows = Long.parseLong(options.getOrDefault("rows", "1000000"));
+            System.setProperty("kp.db.url", "jdbc:sqlite:" + db.toAbsolutePath());
+            LabApplication.initStorage();
+            LoadTest.fill(DaoFactory.workerDao(), rows, seed);
+            server = WorkerHttpServer.start(LabApplication.getProperty(), 0);
+            url = "http://localhost:" + server.getPort();
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpLoadTest test = new HttpLoadTest(url.replaceAll("/+$", "") + "/api/workers", mix, executor);
+            test.maxId.set(test.lastId());
+            test.run(clients, duration, seed, executor);
+        } finally {
+            if (server != null) {
+                server.close();
+                DaoFactory.shutdown();
+                dbCon.stopConnection();
+            }
+        }
+    }
+
+    /**
+     * Выполняет смесь запросов из всех клиентов и выводит результаты.
+     */
+    private void run(int clients, int duration, long seed, ExecutorService executor) throws Exception {
+        System.out.printf("Нагрузка: %s, клиентов %d, %d с, смесь %s%n",
+                base, clients, duration, recorders.keySet());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            WorkerGenerator generator = new WorkerGenerator(seed * 1_000_003 + c);
+            executor.execute(() -> {
+                try {
+                    Client state = new Client();
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = table[generator.random().nextInt(table.length)];
+                        long start = System.nanoTime();
+                        int status;
+                        try {
+                            status = execute(operation, generator, state);
+                        } catch (Exception e) {
+                            status = 0;
+                        }
+                        recorders.get(operation).recordValue(
+                                Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS));
+                        statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long intervalStart = System.nanoTime();
+        while (!done.await(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+            intervalStart = report(intervalStart);
+        }
+        report(intervalStart);
+
+        System.out.println();
+        System.out.printf("%-10s %10s %9s %9s %9s %9s %9s %9s%n",
+                "операция", "запросов", "запр/с", "p50 мкс", "p90 мкс", "p99 мкс", "p99.9 мкс", "max мкс");
+        long all = 0;
+        for (Map.Entry<Operation, Histogram> entry : totals.entrySet()) {
+            Histogram h = entry.getValue();
+            all += h.getTotalCount();
+            System.out.printf("%-10s %10d %9.0f %9.0f %9.0f %9.0f %9.0f %9.0f%n",
+                    entry.getKey().key, h.getTotalCount(), (double) h.getTotalCount() / duration,
+                    micros(h, 50), micros(h, 90), micros(h, 99), micros(h, 99.9),
+                    h.getMaxValue() / 1000.0);
+        }
+        System.out.printf("Всего: %d запросов, %.0f запр/с%n", all, (double) all / duration);
+        Map<Integer, Long> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.sum()));
+        System.out.println("Коды ответа (0 — ошибка соединения): " + byStatus);
+    }
+
+    /**
+     * Выполняет один запрос со случайными аргументами.
+     *
+     * @return код ответа
+     */
+    private int execute(Operation operation, WorkerGenerator generator, Client state) throws Exception {
+        SplittableRandom random = generator.random();
+        return switch (operation) {
+            case GET -> send(get("/" + randomId(random)));
+            case PAGE -> send(get("?after=" + randomId(random) + "&limit=" + PAGE_SIZE));
+            case SORTED -> send(get("?city=" + encode(generator.city())
+                    + "&sort=surname&limit=" + PAGE_SIZE));
+            case COUNT -> send(get("/count?city=" + encode(generator.city())));
+            case SEARCH -> send(get("/search?q=" + encode(generator.searchValue())
+                    + "&limit=" + PAGE_SIZE));
+            case REVALIDATE -> {
+                HttpRequest.Builder request = get("?limit=" + PAGE_SIZE);
+                if (state.etag != null) {
+                    request.header("If-None-Match", state.etag);
+                }
+                HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                state.etag = response.headers().firstValue("ETag").orElse(state.etag);
+                yield response.statusCode();
+            }
+            case SAVE -> {
+                HttpResponse<String> response = client.send(request("")
+                        .POST(HttpRequest.BodyPublishers.ofString(json(generator))).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                response.headers().firstValue("Location").ifPresent(location -> maxId.accumulateAndGet(
+                        Integer.parseInt(location.substring(location.lastIndexOf('/') + 1)), Math::max));
+                yield response.statusCode();
+            }
+            case UPDATE -> send(request("/" + randomId(random))
+                    .PUT(HttpRequest.BodyPublishers.ofString(json(generator))));
+        };
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return request(path).GET();
+    }
+
+    /**
+     * Отправляет запрос и читает тело ответа полностью, как обычный клиент.
+     */
+    private int send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    /**
+     * Наибольший идентификатор в таблице по последней странице
+     * в обратном порядке.
+     */
+    private int lastId() throws Exception {
+        HttpResponse<String> response = client.send(
+                get("?sort=id&desc=true&limit=1").build(), HttpResponse.BodyHandlers.ofString());
+        String body = response.body();
+        int start = body.indexOf("\"id\":");
+        if (response.statusCode() != 200 || start < 0) {
+            throw new IllegalStateException("Таблица пуста или сервер недоступен: " + response.statusCode());
+        }
+        int end = start + 5;
+        while (end < body.length() && Character.isDigit(body.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(body.substring(start + 5, end));
+    }
+
+    /**
+     * Тело запроса с новым работником.
+     */
+    private static String json(WorkerGenerator generator) {
+        Worker worker;
+        do {
+            // API проверяет поля как импорт CSV и требует отчество,
+            // которого нет у работников с латинскими именами
+            worker = generator.next();
+        } while (worker.getLastname().isEmpty());
+        StringBuilder sb = new StringBuilder();
+        WorkerJson.append(sb, worker);
+        return sb.toString();
+    }
+
+    private int randomId(SplittableRandom random) {
+        return 1 + random.nextInt(Math.max(1, maxId.get()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Переносит измерения за интервал в итоговые гистограммы
+     * и выводит пропускную способность за интервал.
+     *
+     * @return начало следующего интервала
+     */
+    private long report(long intervalStart) {
+        long now = System.nanoTime();
+        long calls = 0;
+        Histogram merged = new Histogram(MAX_LATENCY_NANOS, 3);
+        for (Map.Entry<Operation, Recorder> entry : recorders.entrySet()) {
+            Histogram interval = entry.getValue().getIntervalHistogram();
+            totals.get(entry.getKey()).add(interval);
+            merged.add(interval);
+            calls += interval.getTotalCount();
+        }
+        System.out.printf("  %.0f запр/с, p99 %.0f мкс%n",
+                calls / ((now - intervalStart) / 1e9), micros(merged, 99));
+        return now;
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Разбирает смесь вида {@code get=50,page=15}.
+     */
+    static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция=вес: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.of(pair[0].trim()), weight);
+            }
+        }
+        return mix;
+    }
+
+    /**
+     * Разбирает аргументы вида {@code --имя значение}.
+     */
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Ожидается --параметр: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Состояние одного клиента.
+     */
+    private static final class Client {
+        /** Последний полученный ETag первой страницы */
+        String etag;
+    }
+}
@@ -0,0 +1,333 @@
+package com.mivlgu.KP;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный тест {@link WorkerDao} без запуска JavaFX.
+ * <p>
+ * Тест дополняет таблицу работниками от {@link WorkerGenerator}
+ * до заданного размера, затем в течение заданного времени
+ * выполняет из нескольких потоков случайную смесь обращений к DAO
+ * в заданных пропорциях. Время каждого обращения записывается
+ * в гистограмму HdrHistogram своей операции; каждые
+ * {@link #REPORT_INTERVAL_SECONDS} секунд выводится пропускная
+ * способность за интервал, по завершении — перцентили задержки
+ * и рост файла базы данных.
+ * </p>
+ *
+ * Пример запуска (после {@code mvn package} в каталоге {@code benchmarks}):
+ * <pre>
+ * java -cp target/benchmarks.jar com.mivlgu.KP.LoadTest \
+ *      --db load.db --rows 10000000 --threads 32 --duration 120 \
+ *      --mix findById=50,search=15,page=10,sorted=5,count=2,save=10,update=6,delete=2
+ * </pre>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class LoadTest {
+
+    /** Количество работников, сохраняемых одной транзакцией при заполнении */
+    private static final int FILL_BATCH = 10_000;
+
+    /** Период вывода промежуточных результатов, с */
+    private static final int REPORT_INTERVAL_SECONDS = 5;
+
+    /** Наибольшая измеряемая задержка, нс */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** Количество строк на странице для операций чтения страниц */
+    private static final int PAGE_SIZE = 200;
+
+    /** Смесь операций по умолчанию */
+    private static final String DEFAULT_MIX =
+            "findById=50,search=15,page=10,sorted=5,count=2,save=10,update=6,delete=2";
+
+    /**
+     * Операции нагрузочного теста.
+     */
+    enum Operation {
+        /** Чтение работника по идентификатору */
+        FIND_BY_ID("findById"),
+        /** Поиск по фамилии или должности */
+        SEARCH("search"),
+        /** Страница по идентификатору со случайного места */
+        PAGE("page"),
+        /** Первая страница по городу, упорядоченная по фамилии */
+        SORTED("sorted"),
+        /** Подсчёт работников города */
+        COUNT("count"),
+        /** Сохранение нового работника */
+        SAVE("save"),
+        /** Изменение существующего работника */
+        UPDATE("update"),
+        /** Удаление работника */
+        DELETE("delete");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        static Operation of(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equalsIgnoreCase(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестная операция: " + key);
+        }
+    }
+
+    private final WorkerDao dao = new WorkerDao();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final LongAdder errors = new LongAdder();
+
+    /** Наибольший известный идентификатор для выбора случайных строк */
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    private final Operation[] table;
+
+    private LoadTest(Map<Operation, Integer> mix) {
+        List<Operation> weighted = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+            recorders.put(operation, new Recorder(MAX_LATENCY_NANOS, 3));
+            totals.put(operation, new Histogram(MAX_LATENCY_NANOS, 3));
+        });
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Пустая смесь операций");
+        }
+        this.table = weighted.toArray(new Operation[0]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        Path db = Path.of(options.getOrDefault("db", "load.db"));
+        long rows = Long.parseLong(options.getOrDefault("rows", "1000000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + db.toAbsolutePath());
+        LabApplication.initStorage();
+        try {
+            LoadTest test = new LoadTest(mix(options.getOrDefault("mix", DEFAULT_MIX)));
+            test.maxId.set(fill(test.dao, rows, seed));
+            test.run(db, threads, duration, seed);
+        } finally {
+            dbCon.stopConnection();
+        }
+    }
+
+    /**
+     * Дополняет таблицу сгенерированными работниками до заданного размера.
+     * Используется также нагрузочным тестом HTTP API ({@link HttpLoadTest}).
+     *
+     * @param dao DAO работников
+     * @param rows требуемое количество строк
+     * @param seed начальное значение генератора
+     * @return наибольший идентификатор в таблице
+     */
+    static int fill(Dao<Worker, Integer> dao, long rows, long seed) {
+        long count = dao.count();
+        if (count >= rows) {
+            System.out.printf("В таблице %d строк, заполнение не требуется%n", count);
+        } else {
+            System.out.printf("Заполнение: %d -> %d строк%n", count, rows);
+            // продолжение последовательности не повторяет уже созданных работников
+            WorkerGenerator generator = new WorkerGenerator(seed + count);
+            long start = System.nanoTime();
+            long reported = start;
+            while (count < rows) {
+                int batch = (int) Math.min(FILL_BATCH, rows - count);
+                dao.saveAll(generator.next(batch));
+                count += batch;
+                long now = System.nanoTime();
+                if (now - reported > TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS) || count == rows) {
+                    double seconds = (now - start) / 1e9;
+                    System.out.printf("  %,d строк, %.0f строк/с%n", count, count / seconds);
+                    reported = now;
+                }
+            }
+        }
+        List<Worker> last = dao.find(Query.all().orderBy(WorkerField.ID, true).limit(1));
+        return last.isEmpty() ? 0 : last.get(0).getId();
+    }
+
+    /**
+     * Выполняет смесь операций из нескольких потоков и выводит результаты.
+     */
+    private void run(Path db, int threads, int duration, long seed) throws Exception {
+        long rowsBefore = dao.count();
+        long bytesBefore = fileSize(db);
+        System.out.printf("Нагрузка: потоков %d, %d с, смесь %s%n", threads, duration, recorders.keySet());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(duration);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            WorkerGenerator generator = new WorkerGenerator(seed * 1_000_003 + t);
+            Thread thread = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = table[generator.random().nextInt(table.length)];
+                        long start = System.nanoTime();
+                        try {
+                            execute(operation, generator);
+                        } catch (RuntimeException e) {
+                            errors.increment();
+                        }
+                        recorders.get(operation).recordValue(
+                                Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long intervalStart = System.nanoTime();
+        while (!done.await(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS)) {
+            intervalStart = report(intervalStart);
+        }
+        report(intervalStart);
+
+        System.out.println();
+        System.out.printf("%-10s %10s %9s %9s %9s %9s %9s %9s%n",
+                "операция", "вызовов", "опер/с", "p50 мкс", "p90 мкс", "p99 мкс", "p99.9 мкс", "max мкс");
+        long all = 0;
+        for (Map.Entry<Operation, Histogram> entry : totals.entrySet()) {
+            Histogram h = entry.getValue();
+            all += h.getTotalCount();
+            System.out.printf("%-10s %10d %9.0f %9.0f %9.0f %9.0f %9.0f %9.0f%n",
+                    entry.getKey().key, h.getTotalCount(), (double) h.getTotalCount() / duration,
+                    micros(h, 50), micros(h, 90), micros(h, 99), micros(h, 99.9),
+                    h.getMaxValue() / 1000.0);
+        }
+        long bytesAfter = fileSize(db);
+        long rowsAfter = dao.count();
+        System.out.printf("Всего: %d вызовов, %.0f опер/с, ошибок %d%n",
+                all, (double) all / duration, errors.sum());
+        System.out.printf(Locale.ROOT, "Строк: %d -> %d, файл базы: %.1f -> %.1f МБ (%+.1f МБ)%n",
+                rowsBefore, rowsAfter, bytesBefore / 1e6, bytesAfter / 1e6,
+                (bytesAfter - bytesBefore) / 1e6);
+    }
+
+    /**
+     * Выполняет одну операцию со случайными аргументами.
+     */
+    private void execute(Operation operation, WorkerGenerator generator) {
+        SplittableRandom random = generator.random();
+        switch (operation) {
+            case FIND_BY_ID -> dao.findById(randomId(random));
+            case SEARCH -> dao.findBySurnameOrGroupName(generator.searchValue());
+            case PAGE -> dao.findPage(randomId(random), PAGE_SIZE);
+            case SORTED -> dao.findPage(Query.where(Criteria.eq(WorkerField.CITY, generator.city()))
+                    .orderBy(WorkerField.SURNAME), null, 0, PAGE_SIZE);
+            case COUNT -> dao.count(Criteria.eq(WorkerField.CITY, generator.city()));
+            case SAVE -> maxId.accumulateAndGet(dao.save(generator.next()).getId(), Math::max);
+            case UPDATE -> {
+                Worker worker = generator.next();
+                worker.setId(randomId(random));
+                dao.update(worker);
+            }
+            case DELETE -> dao.deleteById(randomId(random));
+        }
+    }
+
+    private int randomId(SplittableRandom random) {
+        return 1 + random.nextInt(Math.max(1, maxId.get()));
+    }
+
+    /**
+     * Переносит измерения за интервал в итоговые гистограммы
+     * и выводит пропускную способность за интервал.
+     *
+     * @return начало следующего интервала
+     */
+    private long report(long intervalStart) {
+        long now = System.nanoTime();
+        long calls = 0;
+        Histogram merged = new Histogram(MAX_LATENCY_NANOS, 3);
+        for (Map.Entry<Operation, Recorder> entry : recorders.entrySet()) {
+            Histogram interval = entry.getValue().getIntervalHistogram();
+            totals.get(entry.getKey()).add(interval);
+            merged.add(interval);
+            calls += interval.getTotalCount();
+        }
+        System.out.printf("  %.0f опер/с, p99 %.0f мкс%n",
+                calls / ((now - intervalStart) / 1e9), micros(merged, 99));
+        return now;
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Размер файла базы данных вместе с журналом WAL.
+     */
+    private static long fileSize(Path db) throws IOException {
+        long size = 0;
+        for (Path file : List.of(db, Path.of(db + "-wal"))) {
+            if (Files.exists(file)) {
+                size += Files.size(file);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Разбирает смесь вида {@code findById=50,search=15}.
+     */
+    static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция=вес: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                mix.put(Operation.of(pair[0].trim()), weight);
+            }
+        }
+        return mix;
+    }
+
+    /**
+     * Разбирает аргументы вида {@code --имя значение}.
+     */
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Ожидается --параметр: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mivlgu.KP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение чтения по идентификатору с кэшем подготовленных
+ * выражений ({@link StatementCatalog}) и без него.
+ * <p>
+ * Каждый вызов теста выполняет {@link #LOOKUPS} запросов
+ * {@code sql.find_by_id} подряд на одном соединении; время указывается
+ * в пересчёте на один запрос. Тест {@link #cached()} получает выражение
+ * из каталога, тест {@link #uncached()} подготавливает и закрывает
+ * выражение при каждом запросе, как это делал {@link WorkerDao}
+ * до появления каталога. По завершении выводятся счётчики
+ * попаданий и промахов каталога.
+ * </p>
+ *
+ * Запуск: {@code mvn package exec:exec -Pstatements}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementCatalogBenchmark {
+
+    /** Количество запросов в одном вызове теста */
+    public static final int LOOKUPS = 100_000;
+
+    private static final String KEY = "sql.find_by_id";
+
+    /** Количество работников в таблице */
+    @Param({"100000"})
+    public int rows;
+
+    /** Набор параметров SQLite */
+    @Param({"DEFAULT"})
+    public BenchmarkDatabase.Pragmas pragmas;
+
+    private BenchmarkDatabase database;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(rows, pragmas);
+        random = new SplittableRandom(42);
+        StatementCatalog.resetStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        System.out.printf("%nКаталог выражений: попаданий %d, промахов %d, доля попаданий %.4f%n",
+                StatementCatalog.getHits(), StatementCatalog.getMisses(), StatementCatalog.getHitRatio());
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long cached() throws SQLException {
+        long sum = 0;
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Connection conn = lease.get();
+            for (int i = 0; i < LOOKUPS; i++) {
+                PreparedStatement stmt = StatementCatalog.prepare(conn, KEY);
+                sum += lookup(stmt);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public long uncached() throws SQLException {
+        long sum = 0;
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Connection conn = lease.get();
+            for (int i = 0; i < LOOKUPS; i++) {
+                try (PreparedStatement stmt = conn.prepareStatement(StatementCatalog.sql(KEY))) {
+                    sum += lookup(stmt);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Читает возраст случайного работника.
+     */
+    private int lookup(PreparedStatement stmt) throws SQLException {
+        stmt.setInt(1, 1 + random.nextInt(rows));
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt("age") : 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.mivlgu.KP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Тесты производительности {@link WorkerDao}.
+ * <p>
+ * Каждый тест выполняется на копии базы из {@code rows} работников
+ * ({@link BenchmarkDatabase}) с набором параметров SQLite {@code pragmas}.
+ * Запись проверяется в двух режимах: методы без суффикса сохраняют
+ * одну строку в собственной транзакции, методы {@code *Batch} —
+ * {@link #BATCH} строк одной транзакцией; время указывается
+ * в пересчёте на одну строку.
+ * </p>
+ *
+ * Строки для удаления вставляются перед каждым вызовом теста
+ * ({@link Level#Invocation}); это допустимо, так как удаление
+ * занимает десятки микросекунд и более.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkerDaoBenchmark {
+
+    /** Количество строк в пакетных тестах */
+    public static final int BATCH = 100;
+
+    /** Количество работников в таблице */
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /** Набор параметров SQLite */
+    @Param({"DEFAULT"})
+    public BenchmarkDatabase.Pragmas pragmas;
+
+    private BenchmarkDatabase database;
+    private WorkerDao dao;
+    private SplittableRandom random;
+    private WorkerGenerator generator;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(rows, pragmas);
+        dao = new WorkerDao();
+        random = new SplittableRandom(42);
+        generator = new WorkerGenerator(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        database.close();
+    }
+
+    /**
+     * Идентификатор существующей строки образца.
+     */
+    private int randomId() {
+        return 1 + random.nextInt(rows);
+    }
+
+    @Benchmark
+    public Worker findById() {
+        return dao.findById(randomId());
+    }
+
+    @Benchmark
+    public Collection<Worker> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public Collection<Worker> findBySurnameOrGroupName() {
+        return dao.findBySurnameOrGroupName(generator.searchValue());
+    }
+
+    @Benchmark
+    public Worker save() {
+        return dao.save(generator.next());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Integer> saveBatch() {
+        return dao.saveAll(generator.next(BATCH));
+    }
+
+    @Benchmark
+    public Worker update() {
+        Worker worker = generator.next();
+        worker.setId(randomId());
+        return dao.update(worker);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int updateBatch() {
+        List<Worker> batch = generator.next(BATCH);
+        for (Worker worker : batch) {
+            worker.setId(randomId());
+        }
+        return dao.updateAll(batch);
+    }
+
+    @Benchmark
+    public void deleteById(SpareRow spare) {
+        dao.deleteById(spare.id);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int deleteBatch(Spare spare) {
+        return dao.deleteAllById(spare.ids);
+    }
+
+    /**
+     * Строка, вставляемая перед вызовом теста удаления.
+     */
+    @State(Scope.Thread)
+    public static class SpareRow {
+
+        private int id;
+
+        @Setup(Level.Invocation)
+        public void insert(WorkerDaoBenchmark benchmark) {
+            id = benchmark.dao.save(benchmark.generator.next()).getId();
+        }
+    }
+
+    /**
+     * Строки, вставляемые перед вызовом теста пакетного удаления.
+     */
+    @State(Scope.Thread)
+    public static class Spare {
+
+        private List<Integer> ids;
+
+        @Setup(Level.Invocation)
+        public void insert(WorkerDaoBenchmark benchmark) {
+            ids = benchmark.dao.saveAll(benchmark.generator.next(BATCH));
+        }
+    }
+}
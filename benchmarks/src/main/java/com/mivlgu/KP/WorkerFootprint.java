@@ -0,0 +1,183 @@
+package com.mivlgu.KP;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Объём кучи, занимаемый результатом {@code findAll} в разных представлениях.
+ * <p>
+ * Для каждого размера таблицы все работники читаются из базы
+ * ({@link BenchmarkDatabase}) и удерживаются в одном из представлений;
+ * занятый объём кучи измеряется после полной сборки мусора до и после
+ * построения. Представления:
+ * </p>
+ * <ul>
+ *     <li>{@link Layout#LAZY} — {@link Worker} как его возвращает DAO,
+ *     JavaFX-свойства не созданы;</li>
+ *     <li>{@link Layout#BOUND} — те же объекты после обращения ко всем
+ *     семи {@code xxxProperty()}, как у строк, показанных в таблице;</li>
+ *     <li>{@link Layout#EAGER} — прежнее устройство {@link Worker}
+ *     ({@link EagerWorker}), создававшее все свойства в конструкторе;</li>
+ *     <li>{@link Layout#COLUMNS} — {@link WorkerColumnStore}; рядом
+ *     выводится его собственная оценка ({@link WorkerColumnStore#footprint()}).</li>
+ * </ul>
+ *
+ * Строки из базы — отдельные экземпляры для каждой строки таблицы,
+ * их объём входит во все представления, кроме столбцового.
+ *
+ * Пример запуска (после {@code mvn package} в каталоге {@code benchmarks}):
+ * <pre>
+ * java -Xmx3g -cp target/benchmarks.jar com.mivlgu.KP.WorkerFootprint --rows 100000,1000000
+ * </pre>
+ * или {@code mvn package exec:exec -Pfootprint}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerFootprint {
+
+    /** Количество сборок мусора перед измерением */
+    private static final int GC_PASSES = 3;
+
+    /**
+     * Представление списка работников.
+     */
+    enum Layout {
+        /** Работники без JavaFX-свойств */
+        LAZY,
+        /** Работники со всеми созданными свойствами */
+        BOUND,
+        /** Свойства создаются в конструкторе */
+        EAGER,
+        /** Столбцовое хранилище */
+        COLUMNS
+    }
+
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        String rowsOption = options.getOrDefault("rows", "100000,1000000");
+
+        System.out.printf("%-10s %-8s %14s %12s %16s%n",
+                "строк", "вид", "байт/строку", "всего, МБ", "оценка, байт/стр");
+        for (String value : rowsOption.split(",")) {
+            int rows = Integer.parseInt(value.trim());
+            BenchmarkDatabase database = BenchmarkDatabase.open(rows, BenchmarkDatabase.Pragmas.DEFAULT);
+            try {
+                WorkerDao dao = new WorkerDao();
+                for (Layout layout : Layout.values()) {
+                    measure(rows, layout, dao);
+                }
+            } finally {
+                database.close();
+            }
+        }
+    }
+
+    private static void measure(int rows, Layout layout, WorkerDao dao) {
+        Supplier<Object> build = switch (layout) {
+            case LAZY -> dao::findAll;
+            case BOUND -> () -> bind(dao.findAll());
+            case EAGER -> () -> eager(dao.findAll());
+            case COLUMNS -> () -> {
+                WorkerColumnStore store = new WorkerColumnStore();
+                store.load(dao);
+                return store;
+            };
+        };
+        long before = usedHeap();
+        Object data = build.get();
+        long bytes = usedHeap() - before;
+        String estimate = data instanceof WorkerColumnStore store
+                ? String.format("%.1f", store.footprint().columnBytesPerRow())
+                : "";
+        System.out.printf("%-10d %-8s %14.1f %12.1f %16s%n", rows, layout,
+                (double) bytes / rows, bytes / 1_048_576.0, estimate);
+        Reference.reachabilityFence(data);
+    }
+
+    /**
+     * Создаёт все JavaFX-свойства каждого работника.
+     */
+    private static Collection<Worker> bind(Collection<Worker> workers) {
+        for (Worker worker : workers) {
+            worker.idProperty();
+            worker.nameProperty();
+            worker.surnameProperty();
+            worker.lastnameProperty();
+            worker.ageProperty();
+            worker.cityProperty();
+            worker.positionProperty();
+        }
+        return workers;
+    }
+
+    private static List<EagerWorker> eager(Collection<Worker> workers) {
+        List<EagerWorker> list = new ArrayList<>(workers.size());
+        for (Worker w : workers) {
+            list.add(new EagerWorker(w.getId(), w.getName(), w.getSurname(),
+                    w.getLastname(), w.getAge(), w.getCity(), w.getPosition()));
+        }
+        return list;
+    }
+
+    /**
+     * Занятый объём кучи после полной сборки мусора.
+     */
+    private static long usedHeap() {
+        for (int i = 0; i < GC_PASSES; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Ожидается --параметр: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Устройство {@link Worker} до перехода на отложенное создание
+     * свойств: семь JavaFX-свойств создаются в конструкторе.
+     */
+    private static final class EagerWorker {
+
+        private final IntegerProperty id;
+        private final StringProperty name;
+        private final StringProperty surname;
+        private final StringProperty lastname;
+        private final IntegerProperty age;
+        private final StringProperty city;
+        private final StringProperty position;
+
+        EagerWorker(int id, String name, String surname, String lastname,
+                    int age, String city, String position) {
+            this.id = new SimpleIntegerProperty(id);
+            this.name = new SimpleStringProperty(name);
+            this.surname = new SimpleStringProperty(surname);
+            this.lastname = new SimpleStringProperty(lastname);
+            this.age = new SimpleIntegerProperty(age);
+            this.city = new SimpleStringProperty(city);
+            this.position = new SimpleStringProperty(position);
+        }
+    }
+}
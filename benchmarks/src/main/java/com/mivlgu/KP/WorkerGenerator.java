@@ -0,0 +1,260 @@
+package com.mivlgu.KP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор правдоподобных работников для нагрузочных тестов.
+ * <p>
+ * Значения выбираются с неравномерным распределением, близким
+ * к реальному: частые фамилии, крупные города и массовые должности
+ * встречаются значительно чаще редких (закон Ципфа), возраст
+ * распределён нормально около 40 лет в пределах от 18 до 70.
+ * Фамилия и отчество согласуются с полом работника.
+ * Часть работников записывается латиницей, как при вводе
+ * данных из иностранных источников.
+ * </p>
+ *
+ * При одинаковом начальном значении генератор выдаёт
+ * одну и ту же последовательность работников.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerGenerator {
+
+    /** Доля работников, записанных латиницей */
+    public static final double LATIN_SHARE = 0.15;
+
+    private static final String[] ROOTS = {
+            "Иван", "Смирн", "Кузнец", "Поп", "Васил", "Петр", "Сокол", "Михайл",
+            "Новик", "Фёдор", "Мороз", "Волк", "Алекс", "Лебед", "Семён", "Егор",
+            "Павл", "Козл", "Степан", "Никол", "Орл", "Андре", "Макар", "Никит",
+            "Захар", "Зайц", "Солов", "Борис", "Яковл", "Григор", "Роман", "Воробь",
+            "Серге", "Кузьм", "Фрол", "Александр", "Дмитри", "Корол", "Гус", "Кисел",
+            "Иль", "Максим", "Поляк", "Сорок", "Виноград", "Ковал", "Бел", "Медвед",
+            "Антон", "Тарас", "Жук", "Баран", "Филипп", "Комар", "Давыд", "Беляк"
+    };
+
+    private static final String[] SUFFIXES = {"ов", "ев", "ин", "ский"};
+
+    private static final String[] LATIN_SURNAMES = {
+            "Ivanov", "Smirnov", "Kuznetsov", "Popov", "Petrov", "Sokolov", "Volkov",
+            "Smith", "Johnson", "Williams", "Brown", "Miller", "Davis", "Garcia",
+            "Wilson", "Taylor", "Anderson", "Thomas", "Moore", "Martin"
+    };
+
+    private static final String[] MALE_NAMES = {
+            "Александр", "Сергей", "Дмитрий", "Андрей", "Алексей", "Максим", "Евгений",
+            "Иван", "Михаил", "Артём", "Николай", "Владимир", "Павел", "Юрий", "Игорь"
+    };
+
+    private static final String[] FEMALE_NAMES = {
+            "Елена", "Ольга", "Наталья", "Татьяна", "Ирина", "Анна", "Мария",
+            "Светлана", "Екатерина", "Юлия", "Марина", "Анастасия", "Дарья"
+    };
+
+    private static final String[] LATIN_MALE_NAMES = {
+            "Alexander", "Sergey", "Dmitry", "John", "Michael", "David", "James", "Robert"
+    };
+
+    private static final String[] LATIN_FEMALE_NAMES = {
+            "Elena", "Olga", "Anna", "Maria", "Mary", "Linda", "Susan", "Emily"
+    };
+
+    /** Отчества от мужских имён; для женщин окончание «ич» заменяется на «на» */
+    private static final String[] PATRONYMICS = {
+            "Александрович", "Сергеевич", "Дмитриевич", "Андреевич", "Алексеевич",
+            "Иванович", "Михайлович", "Николаевич", "Владимирович", "Павлович",
+            "Юрьевич", "Игоревич", "Викторович", "Петрович", "Васильевич"
+    };
+
+    private static final String[] CITIES = {
+            "Москва", "Санкт-Петербург", "Владимир", "Муром", "Нижний Новгород",
+            "Казань", "Екатеринбург", "Новосибирск", "Самара", "Ковров",
+            "Ярославль", "Иваново", "Тула", "Рязань", "Омск", "Пермь",
+            "Воронеж", "Краснодар", "Гусь-Хрустальный", "Суздаль"
+    };
+
+    private static final String[] LATIN_CITIES = {
+            "Moscow", "Saint Petersburg", "Vladimir", "Murom", "Kazan", "London", "Berlin"
+    };
+
+    private static final String[] POSITIONS = {
+            "Инженер", "Менеджер", "Бухгалтер", "Программист", "Специалист",
+            "Водитель", "Продавец", "Оператор", "Технолог", "Экономист",
+            "Кладовщик", "Слесарь", "Электромонтёр", "Юрист", "Аналитик",
+            "Инженер-конструктор", "Главный бухгалтер", "Начальник отдела",
+            "Секретарь", "Директор"
+    };
+
+    private static final String[] LATIN_POSITIONS = {
+            "Engineer", "Manager", "Accountant", "Developer", "Analyst", "Driver", "Director"
+    };
+
+    /** Все фамилии: корень с каждым окончанием */
+    private static final String[] SURNAMES = surnames();
+
+    private static final Zipf SURNAME_RANKS = new Zipf(SURNAMES.length, 0.9);
+    private static final Zipf LATIN_SURNAME_RANKS = new Zipf(LATIN_SURNAMES.length, 0.9);
+    private static final Zipf CITY_RANKS = new Zipf(CITIES.length, 1.1);
+    private static final Zipf LATIN_CITY_RANKS = new Zipf(LATIN_CITIES.length, 1.1);
+    private static final Zipf POSITION_RANKS = new Zipf(POSITIONS.length, 0.8);
+
+    private final SplittableRandom random;
+
+    /**
+     * Создаёт генератор.
+     *
+     * @param seed начальное значение генератора случайных чисел
+     */
+    public WorkerGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Создаёт следующего работника без идентификатора.
+     *
+     * @return новый работник
+     */
+    public Worker next() {
+        boolean female = random.nextBoolean();
+        int age = age();
+        if (random.nextDouble() < LATIN_SHARE) {
+            String surname = LATIN_SURNAMES[LATIN_SURNAME_RANKS.sample(random)];
+            return new Worker(0,
+                    pick(female ? LATIN_FEMALE_NAMES : LATIN_MALE_NAMES),
+                    female && surname.endsWith("v") ? surname + "a" : surname,
+                    "",
+                    age,
+                    LATIN_CITIES[LATIN_CITY_RANKS.sample(random)],
+                    pick(LATIN_POSITIONS));
+        }
+        String surname = SURNAMES[SURNAME_RANKS.sample(random)];
+        String patronymic = pick(PATRONYMICS);
+        return new Worker(0,
+                pick(female ? FEMALE_NAMES : MALE_NAMES),
+                female ? feminine(surname) : surname,
+                female ? patronymic.substring(0, patronymic.length() - 2) + "на" : patronymic,
+                age,
+                CITIES[CITY_RANKS.sample(random)],
+                POSITIONS[POSITION_RANKS.sample(random)]);
+    }
+
+    /**
+     * Создаёт список работников.
+     *
+     * @param count количество работников
+     * @return новые работники без идентификаторов
+     */
+    public List<Worker> next(int count) {
+        List<Worker> workers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            workers.add(next());
+        }
+        return workers;
+    }
+
+    /**
+     * Возвращает фамилию или должность, по которой можно выполнить поиск,
+     * с тем же распределением, что и у создаваемых работников.
+     *
+     * @return строка поиска
+     */
+    public String searchValue() {
+        if (random.nextInt(4) == 0) {
+            return POSITIONS[POSITION_RANKS.sample(random)];
+        }
+        return random.nextDouble() < LATIN_SHARE
+                ? LATIN_SURNAMES[LATIN_SURNAME_RANKS.sample(random)]
+                : SURNAMES[SURNAME_RANKS.sample(random)];
+    }
+
+    /**
+     * Возвращает город с тем же распределением, что и у создаваемых работников.
+     *
+     * @return название города
+     */
+    public String city() {
+        return CITIES[CITY_RANKS.sample(random)];
+    }
+
+    /**
+     * Возвращает генератор случайных чисел для выбора прочих значений.
+     *
+     * @return генератор случайных чисел
+     */
+    public SplittableRandom random() {
+        return random;
+    }
+
+    private int age() {
+        double gaussian = 40 + 11 * nextGaussian();
+        return (int) Math.max(18, Math.min(70, Math.round(gaussian)));
+    }
+
+    /**
+     * Нормально распределённое значение (преобразование Бокса — Мюллера).
+     */
+    private double nextGaussian() {
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String feminine(String surname) {
+        return surname.endsWith("ий") ? surname.substring(0, surname.length() - 2) + "ая" : surname + "а";
+    }
+
+    private static String[] surnames() {
+        String[] surnames = new String[ROOTS.length * SUFFIXES.length];
+        // частые окончания идут первыми и получают меньший ранг
+        for (int s = 0; s < SUFFIXES.length; s++) {
+            for (int r = 0; r < ROOTS.length; r++) {
+                surnames[s * ROOTS.length + r] = ROOTS[r] + SUFFIXES[s];
+            }
+        }
+        return surnames;
+    }
+
+    /**
+     * Распределение Ципфа на рангах {@code 0..n-1}: вероятность ранга
+     * пропорциональна {@code 1 / (ранг + 1)^s}.
+     */
+    private static final class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double s) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, s);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
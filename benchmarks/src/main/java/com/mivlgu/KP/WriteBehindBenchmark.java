@@ -0,0 +1,111 @@
+package com.mivlgu.KP;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение задержки записи с отложенной записью
+ * ({@link WriteBehindDao}) и без неё.
+ * <p>
+ * В режиме {@link WriteMode#DIRECT} каждое изменение фиксируется
+ * собственной транзакцией {@link WorkerDao}; в режиме
+ * {@link WriteMode#WRITE_BEHIND} оно попадает в журнал, который сохраняется
+ * группой по таймеру или по заполнении. Распределение задержек
+ * ({@code SampleTime}) показывает и обычный вызов, и редкие вызовы,
+ * заставшие сохранение журнала; тест {@link #updateThenRead()}
+ * учитывает сохранение перед чтением собственного изменения.
+ * </p>
+ *
+ * Запуск: {@code mvn package exec:exec -Pwrite-behind}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteBehindBenchmark {
+
+    /**
+     * Режим записи.
+     */
+    public enum WriteMode {
+        /** Каждое изменение записывается сразу */
+        DIRECT,
+        /** Изменения накапливаются в журнале */
+        WRITE_BEHIND
+    }
+
+    /** Количество работников в таблице */
+    @Param({"100000"})
+    public int rows;
+
+    /** Набор параметров SQLite */
+    @Param({"DEFAULT"})
+    public BenchmarkDatabase.Pragmas pragmas;
+
+    /** Режим записи */
+    @Param({"DIRECT", "WRITE_BEHIND"})
+    public WriteMode mode;
+
+    private BenchmarkDatabase database;
+    private Dao<Worker, Integer> dao;
+    private SplittableRandom random;
+    private WorkerGenerator generator;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        database = BenchmarkDatabase.open(rows, pragmas);
+        WorkerDao workerDao = new WorkerDao();
+        dao = mode == WriteMode.DIRECT ? workerDao : WriteBehindDao.start(workerDao);
+        random = new SplittableRandom(42);
+        generator = new WorkerGenerator(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        if (dao instanceof WriteBehindDao writeBehind) {
+            writeBehind.close();
+        }
+        database.close();
+    }
+
+    private Worker randomUpdate() {
+        Worker worker = generator.next();
+        worker.setId(1 + random.nextInt(rows));
+        return worker;
+    }
+
+    @Benchmark
+    public Worker save() {
+        return dao.save(generator.next());
+    }
+
+    @Benchmark
+    public Worker update() {
+        return dao.update(randomUpdate());
+    }
+
+    @Benchmark
+    public Worker updateThenRead() {
+        Worker worker = dao.update(randomUpdate());
+        return dao.findById(worker.getId());
+    }
+}
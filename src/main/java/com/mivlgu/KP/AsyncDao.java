@@ -0,0 +1,176 @@
+package com.mivlgu.KP;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронная обёртка над {@link Dao}.
+ * <p>
+ * Каждый вызов выполняется в отдельном виртуальном потоке
+ * и возвращает {@link CompletableFuture}, поэтому поток JavaFX
+ * не блокируется на время запроса к базе данных.
+ * </p>
+ *
+ * Отмена возвращённой задачи методом {@code cancel(true)} прерывает
+ * виртуальный поток, выполняющий запрос, и отменяет зарегистрированный
+ * в {@link RunningQueries} запрос к базе данных. Отмена производных задач
+ * ({@code thenApply} и т.п.) на исходный запрос не влияет, поэтому
+ * отменять следует задачу, полученную от этого класса.
+ *
+ * @param <T> тип сущности
+ * @param <ID> тип идентификатора
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class AsyncDao<T, ID> {
+
+    /** Исполнитель, создающий виртуальный поток на каждую задачу */
+    private static final ExecutorService executor =
+            Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Синхронный объект доступа к данным */
+    private final Dao<T, ID> dao;
+
+    /**
+     * Создаёт асинхронную обёртку.
+     *
+     * @param dao синхронный объект доступа к данным
+     */
+    public AsyncDao(Dao<T, ID> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Возвращает синхронный объект доступа к данным.
+     *
+     * @return объект доступа к данным
+     */
+    public Dao<T, ID> getDao() {
+        return dao;
+    }
+
+    public CompletableFuture<T> findById(ID id) {
+        return submit(() -> dao.findById(id));
+    }
+
+    public CompletableFuture<Collection<T>> findAll() {
+        return submit(dao::findAll);
+    }
+
+    public CompletableFuture<T> save(T entity) {
+        return submit(() -> dao.save(entity));
+    }
+
+    public CompletableFuture<T> update(T entity) {
+        return submit(() -> dao.update(entity));
+    }
+
+    public CompletableFuture<Void> delete(T entity) {
+        return submit(() -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteById(ID id) {
+        return submit(() -> {
+            dao.deleteById(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Collection<T>> findBySurnameOrGroupName(String value) {
+        return submit(() -> dao.findBySurnameOrGroupName(value));
+    }
+
+    public CompletableFuture<List<ID>> saveAll(Collection<T> entities) {
+        return submit(() -> dao.saveAll(entities));
+    }
+
+    public CompletableFuture<Integer> updateAll(Collection<T> entities) {
+        return submit(() -> dao.updateAll(entities));
+    }
+
+    public CompletableFuture<Integer> deleteAllById(Collection<ID> ids) {
+        return submit(() -> dao.deleteAllById(ids));
+    }
+
+    public CompletableFuture<Long> count() {
+        return submit(dao::count);
+    }
+
+    public CompletableFuture<Long> count(Criteria criteria) {
+        return submit(() -> dao.count(criteria));
+    }
+
+    public CompletableFuture<List<T>> findPage(ID afterId, int limit) {
+        return submit(() -> dao.findPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<T>> find(Query query) {
+        return submit(() -> dao.find(query));
+    }
+
+    public CompletableFuture<List<T>> findPage(Query query, T after, int offset, int limit) {
+        return submit(() -> dao.findPage(query, after, offset, limit));
+    }
+
+    /**
+     * Выполняет произвольное обращение к DAO в виртуальном потоке.
+     *
+     * @param task обращение к DAO
+     * @param <R> тип результата
+     * @return задача с результатом обращения
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> task) {
+        InterruptibleFuture<R> future = new InterruptibleFuture<>();
+        future.task = executor.submit(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            future.thread = Thread.currentThread();
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                future.thread = null;
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Задача, отмена которой прерывает поток, выполняющий запрос.
+     */
+    private static class InterruptibleFuture<R> extends CompletableFuture<R> {
+
+        /** Задача исполнителя, выполняющая запрос */
+        private volatile Future<?> task;
+
+        /** Поток, выполняющий запрос */
+        private volatile Thread thread;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> running = task;
+            if (cancelled && mayInterruptIfRunning && running != null) {
+                // сначала прерывание, чтобы ошибка отменённого запроса
+                // распознавалась как отмена
+                running.cancel(true);
+                Thread worker = thread;
+                if (worker != null) {
+                    RunningQueries.cancel(worker);
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кэширующая обёртка над DAO работников.
+ * <p>
+ * Результаты {@link #findById} хранятся в ограниченном кэше
+ * с вытеснением давно не использованных записей (LRU)
+ * и необязательным временем жизни. Кэш разбит на сегменты
+ * с собственной блокировкой, поэтому параллельные чтения
+ * разных ключей не мешают друг другу.
+ * </p>
+ *
+ * Любое изменение через этот DAO удаляет соответствующую запись
+ * из кэша. Загрузка, начавшаяся до изменения, не попадает в кэш,
+ * поэтому устаревшие данные не сохраняются. Импорт CSV
+ * ({@link WorkerCsvImporter}) тоже идёт через этот DAO: новые строки
+ * сохраняются {@link #saveAll} с новыми идентификаторами, поэтому пакет
+ * передаётся дальше без обращения к кэшу. Изменения, выполненные
+ * в обход этого DAO (напрямую через {@link WorkerDao}), кэш не видит.
+ *
+ * Кэш хранит копии работников и возвращает новую копию при каждом
+ * попадании, так как {@link Worker} изменяется в интерфейсе.
+ *
+ * Счётчики попаданий, промахов и вытеснений доступны через JMX
+ * ({@link CachingDaoMBean}) после регистрации кэша
+ * в {@link DaoMetrics#registerCache}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class CachingDao implements Dao<Worker, Integer>, CachingDaoMBean, AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(CachingDao.class);
+
+    /** Количество сегментов кэша */
+    private static final int SEGMENTS = 16;
+
+    /** Размер кэша по умолчанию */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    /** Объект доступа к данным, выполняющий запросы */
+    private final Dao<Worker, Integer> delegate;
+
+    /** Сегменты кэша */
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /** Время жизни записи в наносекундах, 0 — без ограничения */
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Создаёт кэш с размером по умолчанию и без ограничения времени жизни.
+     *
+     * @param delegate объект доступа к данным
+     */
+    public CachingDao(Dao<Worker, Integer> delegate) {
+        this(delegate, DEFAULT_MAX_SIZE, 0);
+    }
+
+    /**
+     * Создаёт кэш.
+     *
+     * @param delegate объект доступа к данным
+     * @param maxSize максимальное количество записей
+     * @param ttlMillis время жизни записи, мс; {@code 0} — без ограничения
+     */
+    public CachingDao(Dao<Worker, Integer> delegate, int maxSize, long ttlMillis) {
+        if (maxSize < 1 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры кэша");
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        logger.info("Кэш работников: до {} записей, время жизни {} мс",
+                perSegment * SEGMENTS, ttlMillis);
+    }
+
+    /**
+     * Возвращает работника из кэша или загружает его из базы данных.
+     *
+     * @param id идентификатор работника
+     * @return копия найденного работника или {@code null}
+     */
+    @Override
+    public Worker findById(Integer id) {
+        if (id == null) {
+            return delegate.findById(null);
+        }
+        Segment segment = segmentFor(id);
+        long version;
+
+        segment.lock.lock();
+        try {
+            Entry entry = segment.map.get(id);
+            if (entry != null) {
+                if (ttlNanos == 0 || System.nanoTime() < entry.expiresAt) {
+                    hits.increment();
+                    return copy(entry.worker);
+                }
+                segment.map.remove(id);
+                expirations.increment();
+            }
+            version = segment.version;
+        } finally {
+            segment.lock.unlock();
+        }
+
+        misses.increment();
+        Worker worker = delegate.findById(id);
+        if (worker == null) {
+            return null;
+        }
+
+        segment.lock.lock();
+        try {
+            // запись изменилась во время загрузки — результат может быть устаревшим
+            if (segment.version == version) {
+                segment.map.put(id, new Entry(copy(worker),
+                        ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos));
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        return worker;
+    }
+
+    @Override
+    public Collection<Worker> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Worker save(Worker entity) {
+        Worker saved = delegate.save(entity);
+        if (saved != null && saved.getId() != 0) {
+            invalidate(saved.getId());
+        }
+        return saved;
+    }
+
+    @Override
+    public Worker update(Worker entity) {
+        invalidate(entity.getId());
+        try {
+            return delegate.update(entity);
+        } finally {
+            invalidate(entity.getId());
+        }
+    }
+
+    @Override
+    public void delete(Worker entity) {
+        if (entity == null) {
+            return;
+        }
+        invalidate(entity.getId());
+        try {
+            delegate.delete(entity);
+        } finally {
+            invalidate(entity.getId());
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        invalidate(id);
+        try {
+            delegate.deleteById(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public Collection<Worker> findBySurnameOrGroupName(String value) {
+        return delegate.findBySurnameOrGroupName(value);
+    }
+
+    @Override
+    public List<Worker> findBySurnameOrGroupName(String value, int limit) {
+        return delegate.findBySurnameOrGroupName(value, limit);
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Worker> entities) {
+        return delegate.saveAll(entities);
+    }
+
+    @Override
+    public int updateAll(Collection<Worker> entities) {
+        try {
+            return delegate.updateAll(entities);
+        } finally {
+            for (Worker worker : entities) {
+                invalidate(worker.getId());
+            }
+        }
+    }
+
+    @Override
+    public int deleteAllById(Collection<Integer> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            for (Integer id : ids) {
+                invalidate(id);
+            }
+        }
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long count(Criteria criteria) {
+        return delegate.count(criteria);
+    }
+
+    @Override
+    public List<Worker> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Integer findIdAfter(Integer afterId, int offset) {
+        return delegate.findIdAfter(afterId, offset);
+    }
+
+    @Override
+    public List<Worker> find(Query query) {
+        return delegate.find(query);
+    }
+
+    @Override
+    public List<Worker> findPage(Query query, Worker after, int offset, int limit) {
+        return delegate.findPage(query, after, offset, limit);
+    }
+
+    /**
+     * Удаляет запись из кэша.
+     *
+     * @param id идентификатор работника
+     */
+    public void invalidate(Integer id) {
+        if (id == null) {
+            return;
+        }
+        Segment segment = segmentFor(id);
+        segment.lock.lock();
+        try {
+            segment.map.remove(id);
+            segment.version++;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Очищает кэш полностью, например после изменений в обход этого DAO.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.map.clear();
+                segment.version++;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество записей в кэше.
+     *
+     * @return размер кэша
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getSize() {
+        return size();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Возвращает долю обращений, обслуженных кэшем.
+     *
+     * @return значение от 0 до 1
+     */
+    @Override
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Сбрасывает счётчики статистики.
+     */
+    @Override
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        expirations.reset();
+    }
+
+    /**
+     * Записывает статистику кэша в лог, снимает её регистрацию в JMX
+     * и закрывает обёрнутый DAO.
+     */
+    @Override
+    public void close() {
+        logger.info("{}", this);
+        DaoMetrics.unregisterCache(this);
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.error("Ошибка закрытия обёрнутого DAO", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Кэш работников: записей=%d, попаданий=%d, промахов=%d, доля попаданий=%.3f, "
+                        + "вытеснено=%d, устарело=%d",
+                size(), getHits(), getMisses(), getHitRatio(), getEvictions(), getExpirations());
+    }
+
+    private Segment segmentFor(Integer id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static Worker copy(Worker w) {
+        return new Worker(w.getId(), w.getName(), w.getSurname(),
+                w.getLastname(), w.getAge(), w.getCity(), w.getPosition());
+    }
+
+    /**
+     * Запись кэша: копия работника и момент истечения срока жизни.
+     */
+    private record Entry(Worker worker, long expiresAt) {
+    }
+
+    /**
+     * Сегмент кэша: карта в порядке обращений под собственной блокировкой.
+     */
+    private class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** Счётчик изменений для отбрасывания устаревших загрузок */
+        private long version;
+
+        private final Map<Integer, Entry> map;
+
+        Segment(int capacity) {
+            this.map = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mivlgu.KP;
+
+/**
+ * Интерфейс управления JMX для статистики кэша работников.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public interface CachingDaoMBean {
+
+    /** Количество записей в кэше */
+    int getSize();
+
+    /** Количество обращений, обслуженных кэшем */
+    long getHits();
+
+    /** Количество обращений, переданных в базу данных */
+    long getMisses();
+
+    /** Количество записей, вытесненных при заполнении кэша */
+    long getEvictions();
+
+    /** Количество записей, удалённых по истечении времени жизни */
+    long getExpirations();
+
+    /** Доля обращений, обслуженных кэшем */
+    double getHitRatio();
+
+    /** Сбрасывает счётчики статистики */
+    void resetStatistics();
+}
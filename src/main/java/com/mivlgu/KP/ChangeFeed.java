@@ -0,0 +1,280 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Лента изменений таблицы работников.
+ * <p>
+ * Триггеры (миграция 3) записывают каждую вставку, изменение и удаление
+ * в таблицу {@code worker_changes} с возрастающим номером версии.
+ * Клиент, знающий версию, на которой он прочитал данные, получает
+ * только изменения после неё ({@link #diff}) и применяет их
+ * к своему представлению вместо полной перезагрузки.
+ * </p>
+ *
+ * Все запросы {@link #diff} выполняются в одной транзакции чтения,
+ * поэтому изменения и позиции строк относятся к одному состоянию базы.
+ * Старые записи журнала удаляются при запуске ({@link #prune}); клиенту,
+ * версия которого старше сохранённых записей, возвращается
+ * полное обновление.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class ChangeFeed {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ChangeFeed.class);
+
+    /** Количество хранимых записей журнала по умолчанию */
+    public static final int DEFAULT_RETAIN = 100_000;
+
+    /** Количество изменений, после которого список перечитывается целиком */
+    public static final int DEFAULT_MAX_CHANGES = 2000;
+
+    /** Версия клиента, ещё не читавшего данные */
+    public static final long NO_VERSION = -1;
+
+    /**
+     * Возвращает номер последней записанной версии.
+     *
+     * @return версия или {@code 0}, если журнал пуст
+     * @throws SQLException при ошибке чтения
+     */
+    public long currentVersion() throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            return queryLong(lease.get(), "sql.changes_version");
+        }
+    }
+
+    /**
+     * Вычисляет изменения списка работников, упорядоченного
+     * по идентификатору, после заданной версии.
+     * <p>
+     * Список описывается размером и известными границами:
+     * парами «номер строки — идентификатор, после которого она начинается».
+     * Результат содержит события вставки, удаления и изменения
+     * с номерами строк в порядке применения, а также границы,
+     * пересчитанные для нового состояния.
+     * </p>
+     *
+     * @param sinceVersion версия, на которой прочитан список,
+     *                     или {@link #NO_VERSION}
+     * @param size размер списка на этой версии
+     * @param boundaries известные границы списка на этой версии
+     * @param maxChanges наибольшее количество изменений, после которого
+     *                   выгоднее полностью перечитать список
+     * @return изменения или признак полного обновления
+     * @throws SQLException при ошибке чтения
+     */
+    public Delta diff(long sinceVersion, int size, NavigableMap<Integer, Integer> boundaries,
+                      int maxChanges) throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Connection conn = lease.get();
+            boolean autoCommit = conn.getAutoCommit();
+            // все чтения ниже видят один снимок базы
+            conn.setAutoCommit(false);
+            try {
+                return diff(conn, sinceVersion, size, boundaries, maxChanges);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private Delta diff(Connection conn, long sinceVersion, int size,
+                       NavigableMap<Integer, Integer> boundaries, int maxChanges)
+            throws SQLException {
+        long version = queryLong(conn, "sql.changes_version");
+        if (sinceVersion == version) {
+            return new Delta(sinceVersion, version, false, size, List.of(), boundaries);
+        }
+        long oldest = queryLong(conn, "sql.changes_min_version");
+        if (sinceVersion == NO_VERSION || sinceVersion < oldest - 1 || sinceVersion > version) {
+            return full(conn, sinceVersion, version);
+        }
+
+        // итоговая операция по каждому идентификатору
+        Map<Integer, int[]> net = new TreeMap<>();
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.changes_since");
+        stmt.setLong(1, sinceVersion);
+        stmt.setLong(2, version);
+        stmt.setInt(3, maxChanges + 1);
+        int read = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                read++;
+                int id = rs.getInt(2);
+                char op = rs.getString(3).charAt(0);
+                int[] state = net.get(id);
+                if (state == null) {
+                    // [существовала до, существует после]
+                    state = new int[]{op == 'I' ? 0 : 1, 1};
+                    net.put(id, state);
+                }
+                state[1] = op == 'D' ? 0 : 1;
+            }
+        }
+        if (read > maxChanges) {
+            logger.debug("Изменений больше {}, список будет перечитан", maxChanges);
+            return full(conn, sinceVersion, version);
+        }
+
+        int[] inserted = net.entrySet().stream()
+                .filter(e -> e.getValue()[0] == 0 && e.getValue()[1] == 1)
+                .mapToInt(Map.Entry::getKey).toArray();
+        int[] deleted = net.entrySet().stream()
+                .filter(e -> e.getValue()[0] == 1 && e.getValue()[1] == 0)
+                .mapToInt(Map.Entry::getKey).toArray();
+        int newSize = size + inserted.length - deleted.length;
+
+        // строка i начинается после afterId: до неё ровно i строк с id <= afterId
+        TreeMap<Integer, Integer> remapped = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> boundary : boundaries.entrySet()) {
+            int afterId = boundary.getValue();
+            remapped.put(boundary.getKey() + countNotGreater(inserted, afterId)
+                    - countNotGreater(deleted, afterId), afterId);
+        }
+        TreeMap<Integer, Integer> byId = new TreeMap<>();
+        for (Map.Entry<Integer, Integer> boundary : remapped.entrySet()) {
+            byId.put(boundary.getValue(), boundary.getKey());
+        }
+        int lastKnownId = byId.isEmpty() ? 0 : byId.lastKey();
+
+        List<Change> changes = new ArrayList<>(net.size());
+        for (Map.Entry<Integer, int[]> entry : net.entrySet()) {
+            int id = entry.getKey();
+            int before = entry.getValue()[0];
+            int after = entry.getValue()[1];
+            if (before == 0 && after == 0) {
+                continue;
+            }
+            // строки с меньшим id уже в новом состоянии, поэтому позиция
+            // события равна количеству строк с меньшим id в новом состоянии;
+            // за последней известной границей её дешевле считать с конца
+            int index = id > lastKnownId
+                    ? newSize - countFrom(conn, id)
+                    : rankFromBoundary(conn, byId, id);
+            Change.Type type = before == 0 ? Change.Type.INSERT
+                    : after == 0 ? Change.Type.DELETE : Change.Type.UPDATE;
+            changes.add(new Change(type, id, index));
+        }
+        logger.debug("Изменения с версии {} по {}: {}", sinceVersion, version, changes.size());
+        return new Delta(sinceVersion, version, false, newSize, changes, remapped);
+    }
+
+    /**
+     * Позиция строки в новом состоянии по ближайшей известной границе слева.
+     */
+    private static int rankFromBoundary(Connection conn, TreeMap<Integer, Integer> byId, int id)
+            throws SQLException {
+        Map.Entry<Integer, Integer> floor = byId.lowerEntry(id);
+        int afterId = floor == null ? 0 : floor.getKey();
+        int index = floor == null ? 0 : floor.getValue();
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.count_between");
+        stmt.setInt(1, afterId);
+        stmt.setInt(2, id);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return index + (rs.next() ? rs.getInt(1) : 0);
+        }
+    }
+
+    private static int countFrom(Connection conn, int id) throws SQLException {
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.count_from");
+        stmt.setInt(1, id);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private Delta full(Connection conn, long sinceVersion, long version) throws SQLException {
+        int count = (int) queryLong(conn, "sql.count");
+        TreeMap<Integer, Integer> start = new TreeMap<>();
+        start.put(0, 0);
+        return new Delta(sinceVersion, version, true, count, List.of(), start);
+    }
+
+    /**
+     * Удаляет старые записи журнала, оставляя последние {@code retain}.
+     *
+     * @param conn соединение для записи
+     * @param retain количество сохраняемых записей
+     */
+    public static void prune(Connection conn, int retain) {
+        try {
+            long version = queryLong(conn, "sql.changes_version");
+            PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.changes_prune");
+            stmt.setLong(1, version - retain);
+            int removed = stmt.executeUpdate();
+            logger.info("Журнал изменений: версия {}, удалено старых записей: {}", version, removed);
+        } catch (SQLException e) {
+            logger.warn("Журнал изменений недоступен", e);
+        }
+    }
+
+    private static long queryLong(Connection conn, String key) throws SQLException {
+        PreparedStatement stmt = StatementCatalog.prepare(conn, key);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Количество элементов упорядоченного массива, не больших значения.
+     */
+    private static int countNotGreater(int[] sorted, int value) {
+        int pos = Arrays.binarySearch(sorted, value);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    /**
+     * Изменение одной строки списка.
+     *
+     * @param type вид изменения
+     * @param id идентификатор работника
+     * @param index номер строки с учётом всех предыдущих изменений
+     */
+    public record Change(Type type, int id, int index) {
+
+        /** Вид изменения */
+        public enum Type {
+            INSERT, UPDATE, DELETE
+        }
+    }
+
+    /**
+     * Изменения списка между двумя версиями.
+     *
+     * @param fromVersion версия, от которой вычислены изменения
+     * @param toVersion версия после применения изменений
+     * @param full признак того, что список нужно перечитать целиком
+     * @param size размер списка после применения изменений
+     * @param changes изменения в порядке возрастания идентификатора
+     * @param boundaries границы списка для новой версии
+     */
+    public record Delta(long fromVersion, long toVersion, boolean full, int size,
+                        List<Change> changes, NavigableMap<Integer, Integer> boundaries) {
+
+        /**
+         * Проверяет, есть ли изменения.
+         *
+         * @return {@code true}, если версия не изменилась
+         */
+        public boolean isEmpty() {
+            return !full && changes.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пул соединений с базой данных SQLite с разделением на чтение и запись.
+ * <p>
+ * Пул содержит одно соединение для записи, доступ к которому
+ * упорядочен блокировкой, и несколько соединений только для чтения.
+ * База данных работает в режиме WAL, поэтому чтение выполняется
+ * параллельно с записью и не ждёт её завершения.
+ * </p>
+ *
+ * Соединения выдаются в аренду ({@link Lease}) и возвращаются в пул
+ * при закрытии аренды. Если поток уже удерживает соединение для записи,
+ * запрос на чтение получает его же, чтобы видеть незафиксированные
+ * изменения своей транзакции.
+ *
+ * Параметры пула и значения PRAGMA задаются в {@code database.properties}:
+ * {@code db.url}, {@code pool.readers}, {@code pool.acquire_timeout_ms}
+ * и ключи вида {@code pragma.<имя>}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ConnectionPool.class);
+
+    /** Префикс ключей PRAGMA в конфигурации */
+    private static final String PRAGMA_PREFIX = "pragma.";
+
+    /** Адрес базы данных */
+    private final String url;
+
+    /** Значения PRAGMA для каждого нового соединения */
+    private final List<String> pragmas = new ArrayList<>();
+
+    /** Максимальное количество соединений для чтения */
+    private final int maxReaders;
+
+    /** Время ожидания свободного соединения, мс */
+    private final long acquireTimeoutMillis;
+
+    /** Свободные соединения для чтения */
+    private final BlockingQueue<Connection> idleReaders;
+
+    /** Все открытые соединения для чтения */
+    private final List<Connection> readers = new ArrayList<>();
+
+    /** Блокировка, упорядочивающая запись */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /** Соединение для записи */
+    private Connection writer;
+
+    /** Признак закрытия пула */
+    private volatile boolean closed;
+
+    /**
+     * Создаёт пул по конфигурации.
+     * Соединения открываются при первом обращении.
+     *
+     * @param config параметры из {@code database.properties}
+     */
+    public ConnectionPool(Properties config) {
+        this.url = config.getProperty("db.url", "jdbc:sqlite:worker.db").trim();
+        this.maxReaders = Math.max(1, Integer.parseInt(
+                config.getProperty("pool.readers", "4").trim()));
+        this.acquireTimeoutMillis = Long.parseLong(
+                config.getProperty("pool.acquire_timeout_ms", "5000").trim());
+        this.idleReaders = new ArrayBlockingQueue<>(maxReaders);
+
+        for (String key : config.stringPropertyNames()) {
+            if (key.startsWith(PRAGMA_PREFIX)) {
+                pragmas.add("PRAGMA " + key.substring(PRAGMA_PREFIX.length())
+                        + " = " + config.getProperty(key).trim());
+            }
+        }
+        // режим журнала задаётся первым, остальные PRAGMA от него не зависят
+        pragmas.sort((a, b) -> Boolean.compare(
+                !a.startsWith("PRAGMA journal_mode"), !b.startsWith("PRAGMA journal_mode")));
+        logger.info("Пул соединений: {}, соединений для чтения: {}", url, maxReaders);
+    }
+
+    /**
+     * Выдаёт соединение для записи. Пока аренда не закрыта,
+     * другие потоки ожидают доступа к записи.
+     *
+     * @return аренда соединения
+     * @throws SQLException при ошибке открытия соединения
+     */
+    public Lease acquireWrite() throws SQLException {
+        checkOpen();
+        writeLock.lock();
+        try {
+            if (writer == null || writer.isClosed()) {
+                writer = open(false);
+            }
+            return new Lease(writer, Lease.WRITE, this);
+        } catch (SQLException | RuntimeException e) {
+            writeLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Выдаёт соединение только для чтения.
+     *
+     * @return аренда соединения
+     * @throws SQLException при ошибке открытия соединения
+     * или если свободное соединение не появилось за отведённое время
+     */
+    public Lease acquireRead() throws SQLException {
+        checkOpen();
+        if (writeLock.isHeldByCurrentThread()) {
+            return new Lease(writer, Lease.NESTED, this);
+        }
+
+        Connection conn = idleReaders.poll();
+        if (conn == null) {
+            conn = openReaderIfAllowed();
+        }
+        if (conn == null) {
+            try {
+                conn = idleReaders.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Ожидание соединения прервано", e);
+            }
+            if (conn == null) {
+                throw new SQLException("Нет свободного соединения для чтения за "
+                        + acquireTimeoutMillis + " мс");
+            }
+        }
+        return new Lease(conn, Lease.READ, this);
+    }
+
+    /**
+     * Открывает новое соединение для чтения, если лимит не исчерпан.
+     *
+     * @return соединение или {@code null}, если лимит исчерпан
+     */
+    private Connection openReaderIfAllowed() throws SQLException {
+        synchronized (readers) {
+            if (readers.size() >= maxReaders) {
+                return null;
+            }
+            Connection conn = open(true);
+            readers.add(conn);
+            return conn;
+        }
+    }
+
+    /**
+     * Открывает соединение и применяет к нему PRAGMA из конфигурации.
+     */
+    private Connection open(boolean readOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : pragmas) {
+                stmt.execute(pragma);
+            }
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        logger.debug("Открыто соединение {}", readOnly ? "для чтения" : "для записи");
+        return conn;
+    }
+
+    /**
+     * Возвращает соединение в пул при закрытии аренды.
+     */
+    private void release(Lease lease) {
+        switch (lease.mode) {
+            case Lease.WRITE -> writeLock.unlock();
+            case Lease.READ -> {
+                if (closed) {
+                    closeQuietly(lease.connection);
+                } else {
+                    idleReaders.offer(lease.connection);
+                }
+            }
+            default -> {
+                // соединение для записи, выданное на чтение, остаётся у владельца
+            }
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+    }
+
+    /**
+     * Закрывает все соединения пула вместе с их подготовленными выражениями.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (readers) {
+            for (Connection conn : readers) {
+                closeQuietly(conn);
+            }
+            readers.clear();
+            idleReaders.clear();
+        }
+        writeLock.lock();
+        try {
+            if (writer != null) {
+                closeQuietly(writer);
+                writer = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        logger.info("Пул соединений закрыт");
+    }
+
+    private static void closeQuietly(Connection conn) {
+        StatementCatalog.release(conn);
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.warn("Ошибка закрытия соединения", e);
+        }
+    }
+
+    /**
+     * Аренда соединения из пула.
+     * Закрытие аренды возвращает соединение в пул, но не закрывает его.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private static final int READ = 0;
+        private static final int WRITE = 1;
+        private static final int NESTED = 2;
+
+        private final Connection connection;
+        private final int mode;
+        private final ConnectionPool pool;
+        private boolean released;
+
+        private Lease(Connection connection, int mode, ConnectionPool pool) {
+            this.connection = connection;
+            this.mode = mode;
+            this.pool = pool;
+        }
+
+        /**
+         * Возвращает арендованное соединение.
+         *
+         * @return соединение с базой данных
+         */
+        public Connection get() {
+            return connection;
+        }
+
+        /**
+         * Возвращает соединение в пул.
+         */
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                pool.release(this);
+            }
+        }
+    }
+}
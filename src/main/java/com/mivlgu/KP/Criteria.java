@@ -0,0 +1,143 @@
+package com.mivlgu.KP;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Условие отбора работников.
+ * <p>
+ * Условия строятся статическими методами ({@link #eq}, {@link #in},
+ * {@link #between}, {@link #startsWith}) и объединяются через
+ * {@link #and} и {@link #or}. Условие неизменяемо и преобразуется
+ * в параметризованный SQL запросом {@link Query}.
+ * </p>
+ *
+ * Пример: работники из Москвы от 20 до 30 лет, фамилия которых
+ * начинается с «Ив» или должность — «Инженер»:
+ * <pre>{@code
+ * Criteria.eq(WorkerField.CITY, "Москва")
+ *         .and(Criteria.between(WorkerField.AGE, 20, 30))
+ *         .and(Criteria.startsWith(WorkerField.SURNAME, "Ив")
+ *                 .or(Criteria.eq(WorkerField.POSITION, "Инженер")))
+ * }</pre>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public sealed interface Criteria {
+
+    /**
+     * Поле равно значению; {@code null} соответствует пустому значению.
+     */
+    static Criteria eq(WorkerField field, Object value) {
+        return new Eq(Objects.requireNonNull(field), value);
+    }
+
+    /**
+     * Поле равно одному из значений.
+     */
+    static Criteria in(WorkerField field, Collection<?> values) {
+        return new In(Objects.requireNonNull(field), List.copyOf(values));
+    }
+
+    /**
+     * Поле находится в диапазоне включительно;
+     * {@code null} на месте границы означает её отсутствие.
+     */
+    static Criteria between(WorkerField field, Object min, Object max) {
+        if (min == null && max == null) {
+            throw new IllegalArgumentException("Не задана ни одна граница диапазона");
+        }
+        return new Range(Objects.requireNonNull(field), min, max);
+    }
+
+    /**
+     * Поле не меньше значения.
+     */
+    static Criteria atLeast(WorkerField field, Object min) {
+        return between(field, Objects.requireNonNull(min), null);
+    }
+
+    /**
+     * Поле не больше значения.
+     */
+    static Criteria atMost(WorkerField field, Object max) {
+        return between(field, null, Objects.requireNonNull(max));
+    }
+
+    /**
+     * Строковое поле начинается с заданной строки. Как и {@code LIKE},
+     * регистр учитывается только для символов, отличных от латиницы.
+     */
+    static Criteria startsWith(WorkerField field, String prefix) {
+        if (!field.isText()) {
+            throw new IllegalArgumentException("Поиск по префиксу невозможен для поля " + field);
+        }
+        return new Prefix(field, Objects.requireNonNull(prefix));
+    }
+
+    /**
+     * Выполняются все условия.
+     */
+    static Criteria allOf(Criteria... criteria) {
+        return new All(flatten(All.class, criteria));
+    }
+
+    /**
+     * Выполняется хотя бы одно условие.
+     */
+    static Criteria anyOf(Criteria... criteria) {
+        return new Any(flatten(Any.class, criteria));
+    }
+
+    /**
+     * Возвращает условие, требующее выполнения этого и другого условия.
+     */
+    default Criteria and(Criteria other) {
+        return allOf(this, other);
+    }
+
+    /**
+     * Возвращает условие, требующее выполнения этого или другого условия.
+     */
+    default Criteria or(Criteria other) {
+        return anyOf(this, other);
+    }
+
+    private static List<Criteria> flatten(Class<? extends Criteria> type, Criteria... criteria) {
+        if (criteria.length == 0) {
+            throw new IllegalArgumentException("Не задано ни одного условия");
+        }
+        List<Criteria> terms = new ArrayList<>();
+        for (Criteria criterion : criteria) {
+            if (criterion instanceof All all && type == All.class) {
+                terms.addAll(all.terms());
+            } else if (criterion instanceof Any any && type == Any.class) {
+                terms.addAll(any.terms());
+            } else {
+                terms.add(Objects.requireNonNull(criterion));
+            }
+        }
+        return List.copyOf(terms);
+    }
+
+    record Eq(WorkerField field, Object value) implements Criteria {
+    }
+
+    record In(WorkerField field, List<Object> values) implements Criteria {
+    }
+
+    record Range(WorkerField field, Object min, Object max) implements Criteria {
+    }
+
+    record Prefix(WorkerField field, String prefix) implements Criteria {
+    }
+
+    record All(List<Criteria> terms) implements Criteria {
+    }
+
+    record Any(List<Criteria> terms) implements Criteria {
+    }
+}
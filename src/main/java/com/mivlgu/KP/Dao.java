@@ -1,6 +1,7 @@
 package com.mivlgu.KP;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface Dao<T,ID> {
     T findById(ID id);
@@ -10,4 +11,14 @@ public interface Dao<T,ID> {
     void delete(T entity);
     void deleteById(ID id);
     Collection<T> findBySurnameOrGroupName(String value);
+    List<T> findBySurnameOrGroupName(String value, int limit);
+    List<ID> saveAll(Collection<T> entities);
+    int updateAll(Collection<T> entities);
+    int deleteAllById(Collection<ID> ids);
+    long count();
+    long count(Criteria criteria);
+    List<T> findPage(ID afterId, int limit);
+    ID findIdAfter(ID afterId, int offset);
+    List<T> find(Query query);
+    List<T> findPage(Query query, T after, int offset, int limit);
 }
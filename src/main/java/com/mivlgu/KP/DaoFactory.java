@@ -0,0 +1,280 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Фабрика общего объекта доступа к данным о работниках.
+ * <p>
+ * Все контроллеры приложения используют один экземпляр DAO,
+ * чтобы изменения, накопленные при отложенной записи,
+ * были видны во всех окнах и сохранялись при завершении.
+ * </p>
+ *
+ * Режим записи задаётся в {@code statements.properties}:
+ * {@code writebehind.enabled}, {@code writebehind.flush_interval_ms},
+ * {@code writebehind.max_pending} и {@code writebehind.max_attempts}.
+ * По умолчанию каждое изменение записывается в базу сразу.
+ * Кэш ({@link CachingDao}) включается свойствами
+ * {@code cache.enabled}, {@code cache.max_size} и {@code cache.ttl_ms}.
+ * Свойство {@code search.memory_index} включает поиск по подстроке
+ * в памяти ({@link IndexedSearchDao}) вместо запроса к базе.
+ * Статистика операций ({@link MetricsDao}, {@link DaoMetrics})
+ * включается свойством {@code metrics.enabled}; если задано
+ * {@code metrics.dump_file}, она дописывается в этот файл
+ * каждые {@code metrics.dump_interval_ms} мс.
+ *
+ * Столбцовое хранилище, триграммный индекс и индекс нечёткого поиска
+ * читают всю таблицу, поэтому строятся отдельным потоком вне блокировки
+ * фабрики: их загрузка не задерживает {@link #workerDao()} и {@link #flush()}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class DaoFactory {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(DaoFactory.class);
+
+    /** Общий объект доступа к данным */
+    private static Dao<Worker, Integer> workerDao;
+
+    /** Отложенная запись общего DAO, если она включена */
+    private static WriteBehindDao writeBehind;
+
+    /** DAO, выполняющий запись в базу данных */
+    private static WorkerDao baseDao;
+
+    /** Поток, загружающий хранилище и индексы в память */
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "index-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Столбцовое хранилище работников в памяти */
+    private static CompletableFuture<WorkerColumnStore> columnStore;
+
+    /** Триграммный индекс поиска в памяти, если он включен */
+    private static TrigramIndex trigramIndex;
+
+    /** Индекс нечёткого поиска */
+    private static CompletableFuture<FuzzyIndex> fuzzyIndex;
+
+    /**
+     * Возвращает общий DAO работников, создавая его при первом обращении.
+     *
+     * @return объект доступа к данным
+     */
+    public static synchronized Dao<Worker, Integer> workerDao() {
+        if (workerDao == null) {
+            workerDao = createWorkerDao();
+        }
+        return workerDao;
+    }
+
+    /**
+     * Создаёт DAO в режиме, заданном конфигурацией.
+     */
+    private static Dao<Worker, Integer> createWorkerDao() {
+        WorkerDao workerDao = new WorkerDao();
+        baseDao = workerDao;
+        Dao<Worker, Integer> dao = workerDao;
+        Properties property = LabApplication.getProperty();
+        if (property == null) {
+            return dao;
+        }
+        if (Boolean.parseBoolean(property.getProperty("writebehind.enabled", "false").trim())) {
+            long interval = Long.parseLong(property.getProperty("writebehind.flush_interval_ms",
+                    String.valueOf(WriteBehindDao.DEFAULT_FLUSH_INTERVAL_MS)).trim());
+            int maxPending = Integer.parseInt(property.getProperty("writebehind.max_pending",
+                    String.valueOf(WriteBehindDao.DEFAULT_MAX_PENDING)).trim());
+            int maxAttempts = Integer.parseInt(property.getProperty("writebehind.max_attempts",
+                    String.valueOf(WriteBehindDao.DEFAULT_MAX_ATTEMPTS)).trim());
+            logger.info("Включена отложенная запись изменений");
+            writeBehind = WriteBehindDao.start(workerDao, interval, maxPending, maxAttempts);
+            dao = writeBehind;
+        }
+        if (Boolean.parseBoolean(property.getProperty("search.memory_index", "false").trim())) {
+            // поиск в памяти идёт после отложенной записи и сохраняет её журнал перед поиском
+            logger.info("Включен поиск по подстроке в памяти");
+            TrigramIndex index = new TrigramIndex();
+            workerDao.addListener(index);
+            trigramIndex = index;
+            // до окончания загрузки поиск выполняется запросом к базе
+            CompletableFuture<TrigramIndex> indexLoad = CompletableFuture.supplyAsync(() -> {
+                index.load(workerDao);
+                return index;
+            }, loader);
+            CompletableFuture<WorkerColumnStore> storeLoad = columnStoreFuture();
+            CompletableFuture.allOf(indexLoad, storeLoad).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.error("Поиск в памяти не загружен, используется поиск в базе", error);
+                }
+            });
+            dao = new IndexedSearchDao(dao, indexLoad, storeLoad);
+        }
+        if (Boolean.parseBoolean(property.getProperty("cache.enabled", "false").trim())) {
+            int maxSize = Integer.parseInt(property.getProperty("cache.max_size",
+                    String.valueOf(CachingDao.DEFAULT_MAX_SIZE)).trim());
+            long ttl = Long.parseLong(property.getProperty("cache.ttl_ms", "0").trim());
+            CachingDao cache = new CachingDao(dao, maxSize, ttl);
+            DaoMetrics.registerCache(cache);
+            dao = cache;
+        }
+        if (Boolean.parseBoolean(property.getProperty("metrics.enabled", "false").trim())) {
+            dao = new MetricsDao(dao);
+            String dumpFile = property.getProperty("metrics.dump_file", "").trim();
+            if (!dumpFile.isEmpty()) {
+                long interval = Long.parseLong(property.getProperty("metrics.dump_interval_ms",
+                        String.valueOf(DaoMetrics.DEFAULT_DUMP_INTERVAL_MS)).trim());
+                DaoMetrics.startDump(Path.of(dumpFile), interval);
+            }
+        }
+        return dao;
+    }
+
+    /**
+     * Возвращает столбцовое хранилище всех работников, загружая его
+     * при первом обращении. Хранилище обновляется при каждом изменении,
+     * записанном общим DAO.
+     *
+     * @return столбцовое хранилище
+     */
+    public static WorkerColumnStore columnStore() {
+        CompletableFuture<WorkerColumnStore> future;
+        synchronized (DaoFactory.class) {
+            workerDao();
+            future = columnStoreFuture();
+        }
+        return await(future);
+    }
+
+    /**
+     * Возвращает индекс нечёткого поиска, загружая его при первом
+     * обращении вместе со столбцовым хранилищем.
+     *
+     * @return индекс нечёткого поиска
+     */
+    public static FuzzyIndex fuzzyIndex() {
+        CompletableFuture<FuzzyIndex> future;
+        synchronized (DaoFactory.class) {
+            workerDao();
+            if (fuzzyIndex == null) {
+                WorkerDao dao = baseDao;
+                fuzzyIndex = columnStoreFuture().thenApplyAsync(store -> {
+                    FuzzyIndex index = new FuzzyIndex(store);
+                    dao.addListener(index);
+                    index.load(dao);
+                    return index;
+                }, loader);
+            }
+            future = fuzzyIndex;
+        }
+        return await(future);
+    }
+
+    /**
+     * Возвращает загрузку столбцового хранилища, начиная её
+     * при первом обращении. Вызывается под блокировкой фабрики.
+     */
+    private static CompletableFuture<WorkerColumnStore> columnStoreFuture() {
+        if (columnStore == null) {
+            WorkerDao dao = baseDao;
+            columnStore = CompletableFuture.supplyAsync(() -> {
+                WorkerColumnStore store = new WorkerColumnStore();
+                dao.addListener(store);
+                store.load(dao);
+                return store;
+            }, loader);
+        }
+        return columnStore;
+    }
+
+    /**
+     * Дожидается загрузки без блокировки фабрики. После ошибки
+     * загрузка начинается заново при следующем обращении.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            synchronized (DaoFactory.class) {
+                if (columnStore == future) {
+                    columnStore = null;
+                }
+                if (fuzzyIndex == future) {
+                    fuzzyIndex = null;
+                }
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Возвращает результат завершённой загрузки.
+     *
+     * @return результат или {@code null}, если загрузка не завершена
+     * или не удалась
+     */
+    private static <T> T loaded(CompletableFuture<T> future) {
+        return future != null && future.isDone() && !future.isCompletedExceptionally()
+                ? future.join() : null;
+    }
+
+    /**
+     * Сохраняет изменения, накопленные при отложенной записи.
+     * Вызывается перед операциями, читающими таблицу в обход DAO.
+     *
+     * @throws SQLException при ошибке записи
+     */
+    public static void flush() throws SQLException {
+        WriteBehindDao pending;
+        synchronized (DaoFactory.class) {
+            pending = writeBehind;
+        }
+        if (pending != null) {
+            pending.flush();
+        }
+    }
+
+    /**
+     * Сохраняет отложенные изменения и освобождает общий DAO.
+     * Вызывается при завершении приложения до закрытия пула соединений.
+     */
+    public static synchronized void shutdown() {
+        if (workerDao instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.error("Ошибка завершения работы DAO", e);
+            }
+        }
+        DaoMetrics.stopDump();
+        WorkerColumnStore store = loaded(columnStore);
+        if (baseDao != null && store != null) {
+            baseDao.removeListener(store);
+        }
+        if (baseDao != null && trigramIndex != null) {
+            baseDao.removeListener(trigramIndex);
+        }
+        FuzzyIndex index = loaded(fuzzyIndex);
+        if (baseDao != null && index != null) {
+            baseDao.removeListener(index);
+        }
+        workerDao = null;
+        writeBehind = null;
+        baseDao = null;
+        columnStore = null;
+        trigramIndex = null;
+        fuzzyIndex = null;
+    }
+}
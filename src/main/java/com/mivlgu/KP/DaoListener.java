@@ -0,0 +1,41 @@
+package com.mivlgu.KP;
+
+import java.util.Collection;
+
+/**
+ * Получатель уведомлений об изменениях, записанных DAO в базу данных.
+ * <p>
+ * Уведомления приходят после успешного выполнения операции
+ * в потоке, который её выполнял, поэтому обработчик должен
+ * быть потокобезопасным и не выполнять долгих действий.
+ * </p>
+ *
+ * @param <T> тип сущности
+ * @param <ID> тип идентификатора
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public interface DaoListener<T, ID> {
+
+    /**
+     * Вызывается после вставки сущностей с уже присвоенными идентификаторами.
+     *
+     * @param entities вставленные сущности
+     */
+    void inserted(Collection<T> entities);
+
+    /**
+     * Вызывается после обновления сущностей.
+     *
+     * @param entities обновлённые сущности
+     */
+    void updated(Collection<T> entities);
+
+    /**
+     * Вызывается после удаления сущностей.
+     *
+     * @param ids идентификаторы удалённых сущностей
+     */
+    void deleted(Collection<ID> ids);
+}
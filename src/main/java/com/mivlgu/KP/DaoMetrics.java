@@ -0,0 +1,242 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр статистики операций DAO.
+ * <p>
+ * Статистика каждой операции ({@link OperationMetrics}) создаётся
+ * при первом обращении и регистрируется в платформенном сервере JMX
+ * под именем {@code com.mivlgu.KP:type=DaoMetrics,name=<операция>},
+ * поэтому её можно просматривать в JConsole или VisualVM
+ * во время работы приложения.
+ * </p>
+ *
+ * Время выполнения и количество строк учитывает {@link MetricsDao};
+ * {@link WorkerDao} дополнительно отмечает ошибки SQL, которые
+ * он записывает в лог, не передавая вызывающему коду.
+ * Статистику можно периодически дописывать в файл
+ * ({@link #startDump}).
+ *
+ * Кэш работников ({@link CachingDao}) регистрируется отдельно
+ * ({@link #registerCache}) под именем
+ * {@code com.mivlgu.KP:type=CachingDao,name=workers}; его счётчики
+ * также попадают в файл статистики.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class DaoMetrics {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(DaoMetrics.class);
+
+    /** Домен и тип имён JMX */
+    private static final String OBJECT_NAME = "com.mivlgu.KP:type=DaoMetrics,name=";
+
+    /** Имя JMX кэша работников */
+    private static final String CACHE_OBJECT_NAME = "com.mivlgu.KP:type=CachingDao,name=workers";
+
+    /** Интервал записи в файл по умолчанию, мс */
+    public static final long DEFAULT_DUMP_INTERVAL_MS = 60_000;
+
+    private static final ConcurrentMap<String, OperationMetrics> operations =
+            new ConcurrentHashMap<>();
+
+    /** Зарегистрированный кэш работников */
+    private static volatile CachingDao cache;
+
+    /** Поток записи статистики в файл, если она включена */
+    private static ScheduledExecutorService dumper;
+
+    /** Файл статистики */
+    private static Path dumpFile;
+
+    private DaoMetrics() {
+    }
+
+    /**
+     * Возвращает статистику операции, создавая и регистрируя её
+     * в JMX при первом обращении.
+     *
+     * @param name название операции
+     * @return статистика операции
+     */
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        return metrics != null ? metrics : operations.computeIfAbsent(name, DaoMetrics::register);
+    }
+
+    /**
+     * Отмечает ошибку, перехваченную внутри операции.
+     *
+     * @param name название операции
+     */
+    public static void error(String name) {
+        operation(name).error();
+    }
+
+    /**
+     * Возвращает статистику всех операций, упорядоченную по названию.
+     *
+     * @return статистика операций
+     */
+    public static List<OperationMetrics> snapshot() {
+        List<OperationMetrics> list = new ArrayList<>(operations.values());
+        list.sort(Comparator.comparing(OperationMetrics::getName));
+        return list;
+    }
+
+    /**
+     * Сбрасывает статистику всех операций.
+     */
+    public static void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * Регистрирует статистику кэша работников в JMX, заменяя
+     * ранее зарегистрированный кэш.
+     *
+     * @param dao кэширующий DAO
+     */
+    public static synchronized void registerCache(CachingDao dao) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(CACHE_OBJECT_NAME);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(dao, objectName);
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Не удалось зарегистрировать статистику кэша в JMX", e);
+        }
+        cache = dao;
+    }
+
+    /**
+     * Снимает регистрацию кэша, если зарегистрирован именно он.
+     *
+     * @param dao кэширующий DAO
+     */
+    public static synchronized void unregisterCache(CachingDao dao) {
+        if (cache != dao) {
+            return;
+        }
+        cache = null;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(CACHE_OBJECT_NAME);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Не удалось снять регистрацию статистики кэша в JMX", e);
+        }
+    }
+
+    private static OperationMetrics register(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException | RuntimeException e) {
+            logger.warn("Не удалось зарегистрировать статистику операции {} в JMX", name, e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Запускает периодическую запись статистики в файл.
+     * Каждая запись дописывается в конец файла с отметкой времени.
+     *
+     * @param file файл статистики
+     * @param intervalMillis интервал записи, мс
+     */
+    public static synchronized void startDump(Path file, long intervalMillis) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Некорректный интервал записи статистики");
+        }
+        stopDump();
+        dumpFile = file;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dao-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Статистика DAO записывается в {} каждые {} мс", file, intervalMillis);
+    }
+
+    /**
+     * Останавливает периодическую запись и записывает статистику
+     * в последний раз.
+     */
+    public static synchronized void stopDump() {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdown();
+        try {
+            if (!dumper.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Запись статистики DAO не завершилась вовремя");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dump(dumpFile);
+        dumper = null;
+        dumpFile = null;
+    }
+
+    /**
+     * Дописывает в файл текущую статистику операций,
+     * которые вызывались хотя бы раз, и статистику кэша.
+     *
+     * @param file файл статистики
+     */
+    public static void dump(Path file) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# ").append(LocalDateTime.now()).append(System.lineSeparator());
+        for (OperationMetrics metrics : snapshot()) {
+            if (metrics.getCalls() == 0 && metrics.getErrors() == 0) {
+                continue;
+            }
+            sb.append(metrics).append(System.lineSeparator());
+        }
+        CachingDao current = cache;
+        if (current != null) {
+            sb.append(current).append(System.lineSeparator());
+        }
+        try {
+            Files.writeString(file, sb, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Ошибка записи статистики DAO в {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.mivlgu.KP;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.stage.Stage;
+
+import java.text.MessageFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Контроллер окна диагностики.
+ * <p>
+ * Показывает журнал медленных запросов ({@link SlowQueryLog}):
+ * выражения с наибольшим суммарным временем и последние медленные
+ * запросы. Для выбранного выражения выводится план
+ * {@code EXPLAIN QUERY PLAN}; если план ещё не получен,
+ * он запрашивается из базы в фоновом потоке.
+ * </p>
+ *
+ * Класс используется при загрузке FXML-файла {@code diagnostics.fxml}.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class DiagnosticsController {
+
+    /** Количество выражений в сводке */
+    private static final int TOP_SIZE = 20;
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @FXML
+    private ResourceBundle resources;
+
+    @FXML
+    private Label lblThreshold;
+
+    @FXML
+    private TableView<SlowQueryLog.Summary> topTable;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topOperationColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, Long> topCountColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topTotalColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topMeanColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topMaxColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topScanColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.Summary, String> topSqlColumn;
+
+    @FXML
+    private TableView<SlowQueryLog.SlowQuery> recentTable;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, String> recentTimeColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, String> recentOperationColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, String> recentMillisColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, Long> recentRowsColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, String> recentParametersColumn;
+
+    @FXML
+    private TableColumn<SlowQueryLog.SlowQuery, String> recentSqlColumn;
+
+    /** План выбранного выражения */
+    @FXML
+    private TextArea planArea;
+
+    /** Выражение, план которого отображается */
+    private String shownSql;
+
+    /**
+     * Настраивает таблицы и загружает журнал.
+     * Вызывается автоматически после загрузки FXML.
+     */
+    @FXML
+    private void initialize() {
+        topOperationColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(item.getValue().getOperation()));
+        topCountColumn.setCellValueFactory(item ->
+                new ReadOnlyObjectWrapper<>(item.getValue().getCount()));
+        topTotalColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(millis(item.getValue().getTotalMillis())));
+        topMeanColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(millis(item.getValue().getMeanMillis())));
+        topMaxColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(millis(item.getValue().getMaxMillis())));
+        topScanColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(fullScan(item.getValue().getPlan())));
+        topSqlColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(item.getValue().getSql()));
+
+        recentTimeColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(TIME.format(item.getValue().time())));
+        recentOperationColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(item.getValue().operation()));
+        recentMillisColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(millis(item.getValue().millis())));
+        recentRowsColumn.setCellValueFactory(item ->
+                new ReadOnlyObjectWrapper<>(item.getValue().rows()));
+        recentParametersColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(item.getValue().parameters()));
+        recentSqlColumn.setCellValueFactory(item ->
+                new ReadOnlyStringWrapper(item.getValue().sql()));
+
+        topTable.getSelectionModel().selectedItemProperty().addListener((obs, old, summary) -> {
+            if (summary != null) {
+                showPlan(summary.getSql());
+            }
+        });
+        recentTable.getSelectionModel().selectedItemProperty().addListener((obs, old, query) -> {
+            if (query != null) {
+                showPlan(query.sql());
+            }
+        });
+
+        long threshold = SlowQueryLog.getThresholdMillis();
+        lblThreshold.setText(threshold < 0
+                ? resources.getString("diag.threshold.off")
+                : MessageFormat.format(resources.getString("diag.threshold"), threshold));
+        onRefresh();
+    }
+
+    /**
+     * Перечитывает журнал медленных запросов.
+     */
+    @FXML
+    private void onRefresh() {
+        topTable.setItems(FXCollections.observableArrayList(SlowQueryLog.top(TOP_SIZE)));
+        recentTable.setItems(FXCollections.observableArrayList(SlowQueryLog.recent()));
+        if (topTable.getItems().isEmpty() && recentTable.getItems().isEmpty()) {
+            shownSql = null;
+            planArea.clear();
+        }
+    }
+
+    /**
+     * Очищает сводку и список последних запросов.
+     */
+    @FXML
+    private void onClear() {
+        SlowQueryLog.reset();
+        onRefresh();
+    }
+
+    /**
+     * Закрывает окно диагностики.
+     */
+    @FXML
+    private void onClose() {
+        ((Stage) planArea.getScene().getWindow()).close();
+    }
+
+    /**
+     * Отображает план выражения, при необходимости получая его в фоне.
+     */
+    private void showPlan(String sql) {
+        shownSql = sql;
+        planArea.setText(sql + "\n\n" + resources.getString("diag.plan.loading"));
+        CompletableFuture.supplyAsync(() -> SlowQueryLog.plan(sql, null))
+                .thenAccept(plan -> Platform.runLater(() -> {
+                    if (!sql.equals(shownSql)) {
+                        return;
+                    }
+                    planArea.setText(sql + "\n\n" + (plan == null || plan.text().isEmpty()
+                            ? resources.getString("diag.plan.none")
+                            : plan.text()));
+                    // признак полного просмотра известен после получения плана
+                    topTable.refresh();
+                }));
+    }
+
+    private String fullScan(SlowQueryLog.Plan plan) {
+        if (plan == null) {
+            return "";
+        }
+        return resources.getString(plan.fullScan() ? "diag.fullscan.yes" : "diag.fullscan.no");
+    }
+
+    private static String millis(double value) {
+        return String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,540 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Индекс нечёткого поиска работников по фамилии и должности.
+ * <p>
+ * Значения приводятся к нормальной форме ({@link #normalize}): нижний
+ * регистр, латиница переводится в кириллицу, «ё» заменяется на «е»,
+ * «й» — на «и», мягкий и твёрдый знаки отбрасываются, повторяющиеся
+ * буквы сокращаются до одной. Поэтому «Kuznetsov», «Кузнецов»
+ * и «Кузнецофф» сводятся к близким строкам.
+ * </p>
+ *
+ * Различные нормальные формы образуют словарь. Для каждой формы
+ * хранятся её триграммы и идентификаторы работников, а для каждой
+ * триграммы — номера форм словаря. Сходство строки поиска с формой
+ * равно коэффициенту Жаккара их множеств триграмм; лучшие формы
+ * отбираются кучей ограниченного размера. Время запроса зависит
+ * от размера словаря, который растёт значительно медленнее таблицы,
+ * так как фамилии и должности повторяются.
+ *
+ * Как и {@link TrigramIndex}, индекс не удаляет старые записи
+ * при изменении и удалении, поэтому работники проверяются
+ * по {@link WorkerColumnStore} перед возвратом. Когда количество
+ * изменённых и удалённых работников превышает {@link #REBUILD_STALE_RATIO}
+ * проиндексированных, индекс перестраивается в фоновом потоке,
+ * и формы, которых больше нет в таблице, исчезают из словаря.
+ * Перестроение заполняет новый индекс без блокировки поиска;
+ * уведомления, полученные за это время, повторяются на нём перед заменой.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class FuzzyIndex implements DaoListener<Worker, Integer> {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(FuzzyIndex.class);
+
+    /** Наименьшее сходство, при котором форма считается найденной */
+    public static final double MIN_SIMILARITY = 0.3;
+
+    /** Количество лучших форм словаря, из которых составляется результат */
+    public static final int TOP_TERMS = 20;
+
+    /** Количество строк, загружаемых из базы за один запрос */
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    /** Доля устаревших записей, после которой индекс перестраивается */
+    public static final double REBUILD_STALE_RATIO = 0.25;
+
+    /** Наименьшее количество устаревших записей для перестроения */
+    private static final int REBUILD_MIN_STALE = 1_000;
+
+    /** Правила транслитерации, более длинные сочетания проверяются первыми */
+    private static final String[][] TRANSLIT = {
+            {"shch", "щ"}, {"sch", "щ"}, {"zh", "ж"}, {"kh", "х"}, {"ch", "ч"},
+            {"sh", "ш"}, {"ts", "ц"}, {"tz", "ц"}, {"yu", "ю"}, {"ju", "ю"},
+            {"ya", "я"}, {"ja", "я"}, {"yo", "е"}, {"jo", "е"}, {"ye", "е"},
+            {"iy", "и"}, {"yi", "и"}, {"ck", "к"}, {"x", "кс"},
+            {"a", "а"}, {"b", "б"}, {"c", "к"}, {"d", "д"}, {"e", "е"}, {"f", "ф"},
+            {"g", "г"}, {"h", "х"}, {"i", "и"}, {"j", "и"}, {"k", "к"}, {"l", "л"},
+            {"m", "м"}, {"n", "н"}, {"o", "о"}, {"p", "п"}, {"q", "к"}, {"r", "р"},
+            {"s", "с"}, {"t", "т"}, {"u", "у"}, {"v", "в"}, {"w", "в"}, {"y", "ы"},
+            {"z", "з"}
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Хранилище, по которому проверяются и извлекаются работники */
+    private final WorkerColumnStore store;
+
+    /** Формы словаря по их тексту */
+    private Map<String, Term> terms = new HashMap<>();
+
+    /** Формы словаря по номеру */
+    private List<Term> termList = new ArrayList<>();
+
+    /** Номера форм словаря по триграммам */
+    private Map<Long, TrigramIndex.Postings> postings = new HashMap<>();
+
+    /** Количество проиндексированных работников */
+    private int documents;
+
+    /** Количество изменённых и удалённых работников с момента загрузки */
+    private int stale;
+
+    /** DAO последней загрузки, из которого индекс перестраивается */
+    private Dao<Worker, Integer> source;
+
+    /**
+     * Уведомления, полученные во время загрузки, для повтора
+     * на новом индексе; {@code null}, если загрузка не идёт
+     */
+    private List<Consumer<FuzzyIndex>> replay;
+
+    /** Признак запущенного фонового перестроения */
+    private boolean rebuilding;
+
+    /**
+     * Создаёт индекс.
+     *
+     * @param store столбцовое хранилище, подписанное на те же уведомления
+     */
+    public FuzzyIndex(WorkerColumnStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Загружает всех работников из базы данных, заменяя текущее содержимое.
+     *
+     * @param dao объект доступа к данным
+     */
+    public void load(Dao<Worker, Integer> dao) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (replay != null) {
+                throw new IllegalStateException("Загрузка индекса уже выполняется");
+            }
+            source = dao;
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        FuzzyIndex fresh = new FuzzyIndex(store);
+        try {
+            fresh.fill(dao);
+        } catch (RuntimeException e) {
+            // уведомления уже применены к текущему индексу, он остаётся в работе
+            lock.writeLock().lock();
+            try {
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = replay.size();
+            for (Consumer<FuzzyIndex> change : replay) {
+                change.accept(fresh);
+            }
+            replay = null;
+            terms = fresh.terms;
+            termList = fresh.termList;
+            postings = fresh.postings;
+            documents = fresh.documents;
+            stale = fresh.stale;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Индекс нечёткого поиска загружен: {} форм за {} мс, повторено уведомлений {}",
+                termList.size(), (System.nanoTime() - start) / 1_000_000, replayed);
+    }
+
+    /**
+     * Заполняет пустой индекс, не доступный другим потокам.
+     */
+    private void fill(Dao<Worker, Integer> dao) {
+        int afterId = 0;
+        List<Worker> page;
+        do {
+            page = dao.findPage(afterId, LOAD_PAGE_SIZE);
+            for (Worker worker : page) {
+                add(worker);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+    }
+
+    /**
+     * Ищет работников, фамилия или должность которых похожа
+     * на строку поиска.
+     *
+     * @param value строка поиска
+     * @param limit наибольшее количество работников
+     * @return работники в порядке убывания сходства
+     */
+    public List<Worker> find(String value, int limit) {
+        long start = System.nanoTime();
+        List<Match> matches = similar(value, TOP_TERMS);
+        List<Worker> result = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (Match match : matches) {
+            int[] ids = match.ids();
+            // работники извлекаются частями, пока не набран результат
+            for (int from = 0; from < ids.length && result.size() < limit; ) {
+                int to = Math.min(ids.length, from + limit - result.size());
+                for (Worker worker : store.get(Arrays.copyOfRange(ids, from, to))) {
+                    // индекс может содержать устаревшие идентификаторы
+                    if ((match.term().equals(normalize(worker.getSurname()))
+                            || match.term().equals(normalize(worker.getPosition())))
+                            && seen.add(worker.getId())) {
+                        result.add(worker);
+                    }
+                }
+                from = to;
+            }
+        }
+        logger.debug("Нечёткий поиск по '{}': форм {}, найдено {} за {} мкс", value,
+                matches.size(), result.size(), (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * Возвращает формы словаря, наиболее похожие на строку поиска.
+     *
+     * @param value строка поиска
+     * @param k наибольшее количество форм
+     * @return формы в порядке убывания сходства
+     */
+    public List<Match> similar(String value, int k) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        long[] grams = grams(normalized);
+        lock.readLock().lock();
+        try {
+            // количество общих триграмм по номерам форм
+            int[] overlap = new int[termList.size()];
+            for (long gram : grams) {
+                TrigramIndex.Postings list = postings.get(gram);
+                if (list != null) {
+                    list.forEach(term -> overlap[term]++);
+                }
+            }
+
+            Comparator<Scored> order = Comparator.comparingDouble(Scored::similarity)
+                    .thenComparing(s -> -Math.abs(s.term().key.length() - normalized.length()));
+            PriorityQueue<Scored> best = new PriorityQueue<>(k + 1, order);
+            for (int number = 0; number < overlap.length; number++) {
+                int common = overlap[number];
+                if (common == 0) {
+                    continue;
+                }
+                Term term = termList.get(number);
+                double similarity = (double) common / (grams.length + term.grams - common);
+                if (similarity >= MIN_SIMILARITY) {
+                    best.add(new Scored(term, similarity));
+                    if (best.size() > k) {
+                        best.poll();
+                    }
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(order.reversed());
+            List<Match> result = new ArrayList<>(ranked.size());
+            for (Scored scored : ranked) {
+                result.add(new Match(scored.term().key, scored.similarity(),
+                        scored.term().ids.toArray()));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество изменённых и удалённых работников,
+     * устаревшие записи которых остались в индексе.
+     *
+     * @return количество устаревших записей
+     */
+    public int getStaleCount() {
+        lock.readLock().lock();
+        try {
+            return stale;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество различных форм в словаре.
+     *
+     * @return размер словаря
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termList.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void inserted(Collection<Worker> workers) {
+        lock.writeLock().lock();
+        try {
+            insert(workers);
+            if (replay != null) {
+                replay.add(index -> index.insert(workers));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updated(Collection<Worker> workers) {
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            update(workers);
+            if (replay != null) {
+                replay.add(index -> index.update(workers));
+            }
+            rebuild = scheduleRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rebuild) {
+            startRebuild();
+        }
+    }
+
+    @Override
+    public void deleted(Collection<Integer> ids) {
+        // удалённые работники отсутствуют в хранилище и отсеиваются при поиске
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            stale += ids.size();
+            if (replay != null) {
+                replay.add(index -> index.stale += ids.size());
+            }
+            rebuild = scheduleRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rebuild) {
+            startRebuild();
+        }
+    }
+
+    private void insert(Collection<Worker> workers) {
+        for (Worker worker : workers) {
+            add(worker);
+        }
+    }
+
+    private void update(Collection<Worker> workers) {
+        for (Worker worker : workers) {
+            // прежние значения отсеиваются проверкой при поиске
+            index(worker.getId(), worker.getSurname());
+            index(worker.getId(), worker.getPosition());
+            stale++;
+        }
+    }
+
+    /**
+     * Отмечает, что индекс нужно перестроить, если устаревших записей
+     * стало слишком много. Вызывается под блокировкой записи.
+     *
+     * @return {@code true}, если перестроение нужно запустить
+     */
+    private boolean scheduleRebuild() {
+        if (rebuilding || replay != null || source == null || stale < REBUILD_MIN_STALE
+                || stale < documents * REBUILD_STALE_RATIO) {
+            return false;
+        }
+        rebuilding = true;
+        return true;
+    }
+
+    /**
+     * Перестраивает индекс в фоновом потоке, чтобы не задерживать
+     * запись, уведомление о которой привело к перестроению.
+     */
+    private void startRebuild() {
+        Dao<Worker, Integer> dao;
+        lock.readLock().lock();
+        try {
+            dao = source;
+            logger.info("Перестроение индекса нечёткого поиска: устаревших записей {} из {}", stale, documents);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                load(dao);
+            } catch (RuntimeException e) {
+                logger.error("Ошибка перестроения индекса нечёткого поиска", e);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }, "fuzzy-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void add(Worker worker) {
+        index(worker.getId(), worker.getSurname());
+        index(worker.getId(), worker.getPosition());
+        documents++;
+    }
+
+    private void index(int id, String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Term term = terms.get(normalized);
+        if (term == null) {
+            long[] grams = grams(normalized);
+            term = new Term(normalized, grams.length);
+            int number = termList.size();
+            terms.put(normalized, term);
+            termList.add(term);
+            for (long gram : grams) {
+                postings.computeIfAbsent(gram, g -> new TrigramIndex.Postings()).add(number);
+            }
+        }
+        term.ids.add(id);
+    }
+
+    /**
+     * Триграммы нормальной формы с пробелами по краям слов,
+     * чтобы начало и конец слова имели собственные триграммы.
+     */
+    private static long[] grams(String normalized) {
+        return TrigramIndex.grams("  " + normalized.replace(" ", "  ") + " ");
+    }
+
+    /**
+     * Приводит строку к нормальной форме для нечёткого сравнения.
+     *
+     * @param value исходная строка
+     * @return нормальная форма или пустая строка
+     */
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.toLowerCase(Locale.ROOT).trim();
+        StringBuilder sb = new StringBuilder(lower.length());
+        int i = 0;
+        while (i < lower.length()) {
+            char c = lower.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                for (String[] rule : TRANSLIT) {
+                    if (lower.startsWith(rule[0], i)) {
+                        append(sb, rule[1]);
+                        i += rule[0].length();
+                        break;
+                    }
+                }
+                continue;
+            }
+            switch (c) {
+                case 'ё', 'э' -> append(sb, "е");
+                case 'й' -> append(sb, "и");
+                case 'ъ', 'ь' -> {
+                }
+                default -> {
+                    if (Character.isLetterOrDigit(c)) {
+                        append(sb, String.valueOf(c));
+                    } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                        sb.append(' ');
+                    }
+                }
+            }
+            i++;
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Добавляет символы, пропуская повтор последней буквы.
+     */
+    private static void append(StringBuilder sb, String chars) {
+        for (int j = 0; j < chars.length(); j++) {
+            char c = chars.charAt(j);
+            if (sb.length() == 0 || sb.charAt(sb.length() - 1) != c || !Character.isLetter(c)) {
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Форма словаря, найденная по строке поиска.
+     *
+     * @param term нормальная форма
+     * @param similarity сходство со строкой поиска от 0 до 1
+     * @param ids идентификаторы работников с этой формой
+     */
+    public record Match(String term, double similarity, int[] ids) {
+    }
+
+    /**
+     * Форма словаря со сходством для отбора лучших.
+     */
+    private record Scored(Term term, double similarity) {
+    }
+
+    /**
+     * Форма словаря: текст, количество триграмм и работники.
+     */
+    private static class Term {
+
+        private final String key;
+        private final int grams;
+        private final TrigramIndex.Postings ids = new TrigramIndex.Postings();
+
+        Term(String key, int grams) {
+            this.key = key;
+            this.grams = grams;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Статистика индексов таблицы работников из {@code sqlite_stat1}.
+ * <p>
+ * Для каждого индекса SQLite хранит количество строк таблицы
+ * и среднее количество строк на одно значение ключа. {@link Query}
+ * использует эти числа, чтобы выбрать условие, индекс которого
+ * отбирает меньше всего строк. Статистика обновляется при запуске
+ * ({@link #analyze}) с ограничением объёма анализа, поэтому
+ * обновление занимает доли секунды.
+ * </p>
+ *
+ * Анализируется только таблица {@code workers}: статистика служебных
+ * таблиц FTS5, собранная пока они малы, замедляет последующие вставки.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class IndexStatistics {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(IndexStatistics.class);
+
+    /** Статистика отсутствует */
+    public static final IndexStatistics NONE = new IndexStatistics(0, Map.of());
+
+    /** Количество строк таблицы */
+    private final long rows;
+
+    /** Среднее количество строк на значение ключа по индексам */
+    private final Map<String, Long> rowsPerKey;
+
+    private IndexStatistics(long rows, Map<String, Long> rowsPerKey) {
+        this.rows = rows;
+        this.rowsPerKey = rowsPerKey;
+    }
+
+    /**
+     * Читает статистику индексов.
+     *
+     * @param conn соединение с базой данных
+     * @return статистика или {@link #NONE}, если она ещё не собрана
+     */
+    public static IndexStatistics load(Connection conn) {
+        long rows = 0;
+        Map<String, Long> perKey = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(StatementCatalog.sql("sql.index_stats"))) {
+            while (rs.next()) {
+                // "строк [строк на значение первого столбца ...]"
+                String[] stat = rs.getString(2).split(" ");
+                rows = Math.max(rows, Long.parseLong(stat[0]));
+                if (rs.getString(1) != null && stat.length > 1) {
+                    perKey.put(rs.getString(1), Long.parseLong(stat[1]));
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("Статистика индексов недоступна", e);
+            return NONE;
+        }
+        logger.debug("Статистика индексов: строк {}, индексов {}", rows, perKey.size());
+        return rows == 0 ? NONE : new IndexStatistics(rows, Map.copyOf(perKey));
+    }
+
+    /**
+     * Обновляет статистику индексов таблицы работников.
+     *
+     * @param conn соединение для записи
+     */
+    public static void analyze(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(StatementCatalog.sql("sql.analysis_limit"));
+            stmt.execute(StatementCatalog.sql("sql.analyze"));
+        } catch (SQLException e) {
+            logger.warn("Не удалось обновить статистику индексов", e);
+        }
+    }
+
+    /**
+     * Проверяет, собрана ли статистика.
+     *
+     * @return {@code true}, если статистика есть
+     */
+    public boolean isAvailable() {
+        return rows > 0;
+    }
+
+    /**
+     * Возвращает количество строк таблицы.
+     *
+     * @return количество строк
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * Оценивает количество строк с одним значением поля.
+     *
+     * @param field индексированное поле
+     * @return среднее количество строк на значение
+     */
+    public long rowsPerKey(WorkerField field) {
+        if (field == WorkerField.ID) {
+            return 1;
+        }
+        Long value = rowsPerKey.get(field.indexName());
+        return value != null ? value : 10;
+    }
+}
@@ -0,0 +1,253 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Обёртка над DAO работников, выполняющая поиск по подстроке
+ * в памяти вместо запроса к базе данных.
+ * <p>
+ * Кандидаты выбираются по {@link TrigramIndex}, затем проверяются
+ * и извлекаются из {@link WorkerColumnStore}. Строки короче
+ * {@link TrigramIndex#GRAM_LENGTH} символов ищутся обёрнутым DAO.
+ * Как и полнотекстовый поиск SQLite, поиск выполняется без учёта регистра.
+ * </p>
+ *
+ * Индекс и хранилище могут загружаться в фоновом потоке: пока
+ * загрузка не завершена или если она не удалась, поиск выполняется
+ * обёрнутым DAO, поэтому создание обёртки не ждёт чтения всей таблицы.
+ *
+ * Индекс и хранилище должны быть подписаны на уведомления
+ * DAO, выполняющего запись, чтобы видеть все сохранённые изменения.
+ * Если обёрнут {@link WriteBehindDao}, перед поиском в памяти
+ * сохраняется его журнал, иначе поиск не увидел бы ожидающих изменений.
+ * Остальные операции передаются обёрнутому DAO без изменений.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class IndexedSearchDao implements Dao<Worker, Integer>, AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(IndexedSearchDao.class);
+
+    /** Количество кандидатов, извлекаемых из хранилища за один раз */
+    private static final int FETCH_SIZE = 1024;
+
+    private final Dao<Worker, Integer> delegate;
+    private final CompletableFuture<TrigramIndex> index;
+    private final CompletableFuture<WorkerColumnStore> store;
+
+    /**
+     * Создаёт обёртку над загруженными индексом и хранилищем.
+     *
+     * @param delegate объект доступа к данным
+     * @param index триграммный индекс работников
+     * @param store столбцовое хранилище работников
+     */
+    public IndexedSearchDao(Dao<Worker, Integer> delegate, TrigramIndex index,
+                            WorkerColumnStore store) {
+        this(delegate, CompletableFuture.completedFuture(index), CompletableFuture.completedFuture(store));
+    }
+
+    /**
+     * Создаёт обёртку над загружаемыми индексом и хранилищем.
+     *
+     * @param delegate объект доступа к данным
+     * @param index загрузка триграммного индекса
+     * @param store загрузка столбцового хранилища
+     */
+    public IndexedSearchDao(Dao<Worker, Integer> delegate, CompletableFuture<TrigramIndex> index,
+                            CompletableFuture<WorkerColumnStore> store) {
+        this.delegate = delegate;
+        this.index = index;
+        this.store = store;
+    }
+
+    /**
+     * Проверяет, загружены ли индекс и хранилище.
+     *
+     * @return {@code true}, если поиск выполняется в памяти
+     */
+    public boolean isReady() {
+        return loaded(index) != null && loaded(store) != null;
+    }
+
+    /**
+     * Ищет работников, фамилия или должность которых содержит
+     * строку поиска без учёта регистра.
+     *
+     * @param value поисковое значение
+     * @return найденные работники в порядке возрастания идентификатора
+     */
+    @Override
+    public Collection<Worker> findBySurnameOrGroupName(String value) {
+        if (value.codePointCount(0, value.length()) < TrigramIndex.GRAM_LENGTH || !isReady()) {
+            return delegate.findBySurnameOrGroupName(value);
+        }
+        return search(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Ищет не более {@code limit} работников. Кандидаты извлекаются
+     * из хранилища частями, и поиск останавливается, как только
+     * набрано нужное количество.
+     *
+     * @param value поисковое значение
+     * @param limit наибольшее количество работников
+     * @return первые найденные работники в порядке возрастания идентификатора
+     */
+    @Override
+    public List<Worker> findBySurnameOrGroupName(String value, int limit) {
+        if (value.codePointCount(0, value.length()) < TrigramIndex.GRAM_LENGTH || !isReady()) {
+            return delegate.findBySurnameOrGroupName(value, limit);
+        }
+        return search(value, limit);
+    }
+
+    private List<Worker> search(String value, int limit) {
+        flushPending();
+        long start = System.nanoTime();
+        String needle = value.toLowerCase(Locale.ROOT);
+        WorkerColumnStore store = this.store.join();
+        int[] candidates = index.join().candidates(value);
+
+        List<Worker> result = new ArrayList<>();
+        for (int from = 0; from < candidates.length && result.size() < limit; from += FETCH_SIZE) {
+            int[] chunk = Arrays.copyOfRange(candidates, from, Math.min(from + FETCH_SIZE, candidates.length));
+            for (Worker worker : store.get(chunk)) {
+                if (contains(worker.getSurname(), needle) || contains(worker.getPosition(), needle)) {
+                    result.add(worker);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        logger.debug("Поиск в индексе по '{}': кандидатов {}, найдено {} за {} мкс", value,
+                candidates.length, result.size(), (System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * Сохраняет журнал отложенной записи, чтобы индекс получил
+     * уведомления о всех изменениях. При ошибке поиск выполняется
+     * по уже сохранённым данным.
+     */
+    private void flushPending() {
+        if (delegate instanceof WriteBehindDao writeBehind) {
+            try {
+                writeBehind.flush();
+            } catch (SQLException | RuntimeException e) {
+                logger.error("Ошибка сохранения журнала перед поиском в памяти", e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает результат успешно завершённой загрузки.
+     *
+     * @return результат или {@code null}
+     */
+    private static <T> T loaded(CompletableFuture<T> future) {
+        return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    @Override
+    public Worker findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Collection<Worker> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Worker save(Worker entity) {
+        return delegate.save(entity);
+    }
+
+    @Override
+    public Worker update(Worker entity) {
+        return delegate.update(entity);
+    }
+
+    @Override
+    public void delete(Worker entity) {
+        delegate.delete(entity);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Worker> entities) {
+        return delegate.saveAll(entities);
+    }
+
+    @Override
+    public int updateAll(Collection<Worker> entities) {
+        return delegate.updateAll(entities);
+    }
+
+    @Override
+    public int deleteAllById(Collection<Integer> ids) {
+        return delegate.deleteAllById(ids);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long count(Criteria criteria) {
+        return delegate.count(criteria);
+    }
+
+    @Override
+    public List<Worker> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Integer findIdAfter(Integer afterId, int offset) {
+        return delegate.findIdAfter(afterId, offset);
+    }
+
+    @Override
+    public List<Worker> find(Query query) {
+        return delegate.find(query);
+    }
+
+    @Override
+    public List<Worker> findPage(Query query, Worker after, int offset, int limit) {
+        return delegate.findPage(query, after, offset, limit);
+    }
+
+    @Override
+    public void close() {
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.error("Ошибка закрытия обёрнутого DAO", e);
+            }
+        }
+    }
+}
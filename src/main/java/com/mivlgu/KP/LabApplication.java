@@ -31,19 +31,20 @@ public class LabApplication extends Application {
         logger.info("Запуск приложения");
         currentLocale = new Locale("ru");
         loadBundle();
-        loadProperties();
-        dbCon.initDatabase();
+        initStorage();
         this.primaryStage = stage;
         loadMainView();
         logger.info("Главное окно инициализировано");
     }
     @Override
     public void stop() throws Exception {
+        DaoFactory.shutdown();
         dbCon.stopConnection();
         super.stop();
     }
 
     public static void loadMainView() throws IOException {
+        UiActionEvent event = UiActionEvent.start("LabApplication.loadMainView", null);
         FXMLLoader loader = new FXMLLoader(
                 LabApplication.class.getResource("lab-view.fxml"),
                 bundle
@@ -53,6 +54,7 @@ public class LabApplication extends Application {
         primaryStage.setTitle("KP!");
         primaryStage.setScene(scene);
         primaryStage.show();
+        event.finish();
     }
 
     public static void loadBundle(){
@@ -62,9 +64,21 @@ public class LabApplication extends Application {
         );
     }
 
-    public void loadProperties() {
+    /**
+     * Загружает конфигурацию и подготавливает базу данных.
+     * Используется как при запуске окна, так и в консольных режимах
+     * без JavaFX.
+     */
+    public static void initStorage() {
+        loadProperties();
+        StatementCatalog.load(property);
+        SlowQueryLog.configure(property);
+        dbCon.initDatabase();
+    }
+
+    public static void loadProperties() {
         property = new Properties();
-        try (InputStream is = getClass().getResourceAsStream(
+        try (InputStream is = LabApplication.class.getResourceAsStream(
                 "/com/mivlgu/KP/statements.properties")) {
             if (is == null) {
                 throw new RuntimeException("Файл statements.properties не найден");
@@ -1,10 +1,12 @@
 package com.mivlgu.KP;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -12,16 +14,27 @@ import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URL;
+import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Контроллер главного окна приложения.
@@ -39,19 +52,68 @@ import java.util.ResourceBundle;
 public class LabController implements Initializable {
 
     /** Объект доступа к данным */
-    private Dao dao;
+    private Dao<Worker, Integer> dao;
+
+    /** Асинхронный доступ к данным вне потока JavaFX */
+    private AsyncDao<Worker, Integer> asyncDao;
+
+    /** Выполняющийся поиск, отменяется при запуске нового */
+    private CompletableFuture<Collection<Worker>> pendingSearch;
+
+    /** Выполняющееся обновление таблицы, отменяется при запуске нового */
+    private CompletableFuture<ChangeFeed.Delta> pendingRefresh;
+
+    /** Лента изменений таблицы работников */
+    private final ChangeFeed changeFeed = new ChangeFeed();
+
+    /** Наибольшее число изменений, применяемых без полной перезагрузки */
+    private final int maxDelta;
+
+    /** Количество выполняющихся фоновых запросов */
+    private int busyCount;
+
+    /** Задержка поиска после последнего нажатия клавиши, мс */
+    private static final int SEARCH_DEBOUNCE_MS = 200;
+
+    /** Наибольшее количество работников в результате нечёткого поиска */
+    private static final int FUZZY_LIMIT = 500;
+
+    /** Как часто записывать в лог перцентили задержки поиска */
+    private static final int LATENCY_LOG_STEP = 100;
+
+    /** Откладывает поиск, пока пользователь продолжает ввод */
+    private final PauseTransition searchDebounce =
+            new PauseTransition(Duration.millis(SEARCH_DEBOUNCE_MS));
+
+    /** Результаты недавних поисков */
+    private final SearchCache searchCache = new SearchCache();
+
+    /** Время от нажатия клавиши до отображения результата поиска */
+    private final LatencyRecorder searchLatency =
+            new LatencyRecorder("Поиск", 1024);
+
+    /** Момент последнего нажатия клавиши в строке поиска, нс */
+    private long keystrokeNanos;
 
     /**
      * Конструктор контроллера.
      * Инициализирует объект DAO для работы с базой данных.
      */
     public LabController() {
-        this.dao = new WorkerDao();
+        this.dao = DaoFactory.workerDao();
+        this.asyncDao = new AsyncDao<>(dao);
+        this.workers = new PagedWorkerList(asyncDao);
+        String value = LabApplication.getProperty() == null ? null
+                : LabApplication.getProperty().getProperty("changes.max_delta");
+        this.maxDelta = value == null ? ChangeFeed.DEFAULT_MAX_CHANGES : Integer.parseInt(value.trim());
     }
     private static final Logger logger = LoggerFactory.getLogger(LabController.class);
 
-    /** Список работников, отображаемых в таблице */
-    private ObservableList<Worker> workers = FXCollections.observableArrayList();
+    /**
+     * Список работников, отображаемых в таблице.
+     * Строки загружаются из базы данных страницами по мере прокрутки.
+     */
+    private PagedWorkerList workers;
 
     @FXML
     private ResourceBundle resources;
@@ -87,6 +149,9 @@ public class LabController implements Initializable {
     @FXML
     private TableColumn<Worker, String> positionColumn;
 
+    /** Поля работника, по которым сортируют колонки таблицы */
+    private final Map<TableColumn<Worker, ?>, WorkerField> sortFields = new HashMap<>();
+
     /** Метка для отображения служебных сообщений */
     @FXML
     private Label lblLog;
@@ -98,6 +163,14 @@ public class LabController implements Initializable {
     @FXML
     private ChoiceBox<String> languageBox;
 
+    /** Индикатор выполнения фоновых запросов */
+    @FXML
+    private ProgressIndicator busyIndicator;
+
+    /** Режим поиска: по подстроке или нечёткий */
+    @FXML
+    private ChoiceBox<String> searchModeBox;
+
     /**
      * Метод инициализации контроллера.
      * <p>
@@ -115,6 +188,24 @@ public class LabController implements Initializable {
 
         readFromDB();
         workerTable.setItems(workers);
+        sortFields.put(idColumn, WorkerField.ID);
+        sortFields.put(surnameColumn, WorkerField.SURNAME);
+        sortFields.put(nameColumn, WorkerField.NAME);
+        sortFields.put(lastNameColumn, WorkerField.LASTNAME);
+        sortFields.put(ageColumn, WorkerField.AGE);
+        sortFields.put(cityColumn, WorkerField.CITY);
+        sortFields.put(positionColumn, WorkerField.POSITION);
+        updateSortableColumns();
+        workerTable.itemsProperty().addListener((obs, oldItems, newItems) -> updateSortableColumns());
+        // виртуальный список сортируется базой данных,
+        // результаты поиска — в памяти
+        workerTable.setSortPolicy(table -> {
+            if (table.getItems() != workers) {
+                return TableView.DEFAULT_SORT_POLICY.call(table);
+            }
+            sortWorkers();
+            return true;
+        });
 
         idColumn.setCellValueFactory(item ->
                 item.getValue().idProperty().asObject());
@@ -138,12 +229,28 @@ public class LabController implements Initializable {
                                                 observableValue,
                                         Worker oldValue,
                                         Worker newValue) {
-                        if (newValue != null) {
+                        if (newValue != null && !PagedWorkerList.isPlaceholder(newValue)) {
                             showWorker(newValue);
                         }
                     }
                 });
 
+        searchDebounce.setOnFinished(event -> onClickSearch());
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> {
+            keystrokeNanos = System.nanoTime();
+            searchDebounce.playFromStart();
+        });
+
+        searchModeBox.getItems().addAll(resourceBundle.getString("search.mode.substring"),
+                resourceBundle.getString("search.mode.fuzzy"));
+        searchModeBox.getSelectionModel().selectFirst();
+        searchModeBox.getSelectionModel().selectedIndexProperty()
+                .addListener((obs, oldVal, newVal) -> {
+                    if (!searchField.getText().isEmpty()) {
+                        onClickSearch();
+                    }
+                });
+
         languageBox.getItems().addAll("Русский", "English");
 
         if (LabApplication.currentLocale.getLanguage().equals("ru")) {
@@ -201,9 +308,24 @@ public class LabController implements Initializable {
     private void onClickDelete() {
         int selectedIndex = workerTable.getSelectionModel()
                 .getSelectedIndex();
-        dao.delete(workerTable.getItems().get(selectedIndex));
-        workerTable.getItems().remove(selectedIndex);
-        lblLog.setText("Строка удалена");
+        if (selectedIndex < 0) {
+            return;
+        }
+        ObservableList<Worker> items = workerTable.getItems();
+        Worker worker = items.get(selectedIndex);
+        if (PagedWorkerList.isPlaceholder(worker)) {
+            // строка уже удалена в базе или ещё не загружена
+            return;
+        }
+        runAsync(asyncDao.delete(worker), ignored -> {
+            searchCache.clear();
+            if (items == workers) {
+                readFromDB();
+            } else {
+                items.remove(worker);
+            }
+            lblLog.setText("Строка удалена");
+        });
     }
 
     /**
@@ -245,9 +367,9 @@ public class LabController implements Initializable {
     @FXML
     private void onEdit() throws IOException {
         Worker selectedWorker = workerTable.getSelectionModel().getSelectedItem();
-        if (selectedWorker != null) {
+        if (selectedWorker != null && !PagedWorkerList.isPlaceholder(selectedWorker)) {
             if (showDialog(selectedWorker)) {
-                dao.update(selectedWorker);
+                runAsync(asyncDao.update(selectedWorker), ignored -> readFromDB());
             }
         }
     }
@@ -261,31 +383,279 @@ public class LabController implements Initializable {
     private void onAdd() throws IOException {
         Worker worker = new Worker();
         if (showDialog(worker)) {
-            dao.save(worker);
-            workers.add(worker);
+            runAsync(asyncDao.save(worker), saved -> readFromDB());
         }
     }
 
     /**
      * Выполняет поиск работников по фамилии или названию группы.
+     * <p>
+     * Вызывается кнопкой поиска или после паузы в вводе строки поиска.
+     * Поиск выполняется в фоновом потоке; незавершённый предыдущий
+     * поиск отменяется вместе с запросом к базе. Уточняющий запрос
+     * по возможности обслуживается из кэша результатов.
+     * </p>
+     *
+     * В нечётком режиме работники ищутся по {@link FuzzyIndex}
+     * с учётом опечаток и транслитерации и упорядочиваются по сходству.
      */
     @FXML
     private void onClickSearch() {
         String query = searchField.getText();
+        searchDebounce.stop();
+        long started = keystrokeNanos != 0 ? keystrokeNanos : System.nanoTime();
+        keystrokeNanos = 0;
+
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
 
         if (query.isEmpty()) {
             workerTable.setItems(workers);
             return;
         }
 
-        Collection<Worker> collection =
-                dao.findBySurnameOrGroupName(query);
+        UiActionEvent event = UiActionEvent.start("LabController.onClickSearch", query);
+        boolean fuzzy = searchModeBox.getSelectionModel().getSelectedIndex() == 1;
+        CompletableFuture<Collection<Worker>> search = asyncDao.submit(() -> {
+            if (fuzzy) {
+                try {
+                    // индекс видит только изменения, записанные в базу
+                    DaoFactory.flush();
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+                return DaoFactory.fuzzyIndex().find(query, FUZZY_LIMIT);
+            }
+            List<Worker> cached = searchCache.lookup(query);
+            if (cached != null) {
+                return cached;
+            }
+            Collection<Worker> found = dao.findBySurnameOrGroupName(query);
+            if (!Thread.currentThread().isInterrupted()) {
+                searchCache.put(query, found);
+            }
+            return found;
+        });
+        pendingSearch = search;
 
-        ObservableList<Worker> filteredList =
-                FXCollections.observableArrayList();
-        filteredList.addAll(collection);
+        runAsync(search, collection -> {
+            if (search != pendingSearch) {
+                return;
+            }
+            pendingSearch = null;
+            event.resultReady(collection.size());
+
+            ObservableList<Worker> filteredList =
+                    FXCollections.observableArrayList();
+            filteredList.addAll(collection);
+
+            workerTable.setItems(filteredList);
+            afterRender(() -> {
+                searchLatency.record(System.nanoTime() - started);
+                if (searchLatency.getCount() % LATENCY_LOG_STEP == 0) {
+                    logger.info("{}", searchLatency.snapshot());
+                }
+                event.finish();
+            });
+        });
+    }
 
-        workerTable.setItems(filteredList);
+    /**
+     * Выполняет действие после ближайшей компоновки сцены с таблицей,
+     * например чтобы завершить измерение времени до отрисовки результата.
+     * Если таблица ещё не показана, действие выполняется сразу.
+     *
+     * @param action действие
+     */
+    private void afterRender(Runnable action) {
+        Scene scene = workerTable.getScene();
+        if (scene == null) {
+            action.run();
+            return;
+        }
+        Runnable listener = new Runnable() {
+            private boolean done;
+
+            @Override
+            public void run() {
+                if (done) {
+                    return;
+                }
+                done = true;
+                action.run();
+                // список слушателей нельзя менять во время их обхода
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+        // без изменений на экране импульс компоновки может не наступить
+        Platform.requestNextPulse();
+    }
+
+    /**
+     * Возвращает накопитель задержки поиска от нажатия клавиши
+     * до отображения результата.
+     *
+     * @return накопитель задержки
+     */
+    public LatencyRecorder getSearchLatency() {
+        return searchLatency;
+    }
+
+    /**
+     * Импортирует работников из выбранного CSV-файла.
+     * Импорт выполняется в фоновом потоке, ход импорта
+     * отображается в строке сообщений.
+     */
+    @FXML
+    private void onImport() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Импорт работников");
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"));
+        File file = chooser.showOpenDialog(LabApplication.getPrimaryStage());
+        if (file == null) {
+            return;
+        }
+
+        Task<WorkerCsvImporter.Result> task = new Task<>() {
+            @Override
+            protected WorkerCsvImporter.Result call() throws Exception {
+                return new WorkerCsvImporter(dao).importFile(file.toPath(),
+                        progress -> updateMessage("Импорт: " + progress));
+            }
+        };
+        task.messageProperty().addListener((obs, oldVal, newVal) ->
+                lblLog.setText(newVal));
+        task.setOnSucceeded(event -> {
+            readFromDB();
+            workerTable.setItems(workers);
+            lblLog.setText("Импорт завершён: " + task.getValue());
+        });
+        task.setOnFailed(event -> {
+            logger.error("Ошибка импорта", task.getException());
+            lblLog.setText("Ошибка импорта: " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "csv-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Экспортирует таблицу работников в файл CSV.
+     */
+    @FXML
+    private void onExportCsv() {
+        exportTo(WorkerExporter.Format.CSV, "*.csv");
+    }
+
+    /**
+     * Экспортирует таблицу работников в файл JSON Lines.
+     */
+    @FXML
+    private void onExportJson() {
+        exportTo(WorkerExporter.Format.JSON_LINES, "*.jsonl");
+    }
+
+    /**
+     * Открывает окно диагностики с журналом медленных запросов.
+     *
+     * @throws IOException при ошибке загрузки окна
+     */
+    @FXML
+    private void onDiagnostics() throws IOException {
+        FXMLLoader loader = new FXMLLoader(
+                LabApplication.class.getResource("diagnostics.fxml"),
+                LabApplication.bundle
+        );
+        Parent page = loader.load();
+
+        Stage stage = new Stage();
+        stage.setTitle(LabApplication.bundle.getString("diag.title"));
+        stage.initOwner(LabApplication.getPrimaryStage());
+        stage.setScene(new Scene(page));
+        stage.show();
+    }
+
+    /**
+     * Запрашивает имя файла и выполняет экспорт в фоновом потоке.
+     * Ход экспорта отображается в строке сообщений.
+     *
+     * @param format формат файла
+     * @param extension маска расширения файла
+     */
+    private void exportTo(WorkerExporter.Format format, String extension) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Экспорт работников");
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(format.name(), extension));
+        File file = chooser.showSaveDialog(LabApplication.getPrimaryStage());
+        if (file == null) {
+            return;
+        }
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                // экспорт читает таблицу напрямую, минуя журнал
+                DaoFactory.flush();
+                return new WorkerExporter().export(file.toPath(), format,
+                        (done, total) -> {
+                            updateProgress(done, total);
+                            updateMessage("Экспорт: " + done + " из " + total);
+                        });
+            }
+        };
+        task.messageProperty().addListener((obs, oldVal, newVal) ->
+                lblLog.setText(newVal));
+        task.setOnSucceeded(event ->
+                lblLog.setText("Экспортировано строк: " + task.getValue()));
+        task.setOnFailed(event -> {
+            logger.error("Ошибка экспорта", task.getException());
+            lblLog.setText("Ошибка экспорта: " + task.getException().getMessage());
+        });
+
+        Thread thread = new Thread(task, "export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Разрешает сортировку колонок без индекса только для результатов
+     * поиска, которые сортируются в памяти. Виртуальный список
+     * сортируется базой данных и только по индексированным полям.
+     */
+    private void updateSortableColumns() {
+        boolean virtual = workerTable.getItems() == workers;
+        sortFields.forEach((column, field) ->
+                column.setSortable(!virtual || PagedWorkerList.isSortable(field)));
+        if (virtual) {
+            workerTable.getSortOrder().removeIf(column -> !column.isSortable());
+        }
+    }
+
+    /**
+     * Упорядочивает виртуальный список по первой колонке сортировки
+     * таблицы. Остальные колонки сортировки не учитываются:
+     * строки с равными значениями упорядочиваются по идентификатору.
+     */
+    private void sortWorkers() {
+        List<TableColumn<Worker, ?>> sortOrder = workerTable.getSortOrder();
+        if (sortOrder.isEmpty()) {
+            workers.sort(WorkerField.ID, false);
+            return;
+        }
+        TableColumn<Worker, ?> column = sortOrder.get(0);
+        WorkerField field = sortFields.getOrDefault(column, WorkerField.ID);
+        if (!PagedWorkerList.isSortable(field)) {
+            // колонка ещё не исключена из сортировки после возврата к списку
+            workers.sort(WorkerField.ID, false);
+            return;
+        }
+        workers.sort(field, column.getSortType() == TableColumn.SortType.DESCENDING);
     }
 
     /**
@@ -308,12 +678,80 @@ public class LabController implements Initializable {
     }
 
     /**
-     * Загружает данные о работниках из базы данных.
+     * Обновляет данные о работниках из базы данных.
+     * <p>
+     * В фоновом потоке из ленты изменений читаются только строки,
+     * вставленные, изменённые или удалённые после последнего обновления,
+     * и применяются к таблице по отдельности. Список перечитывается
+     * целиком только при первом обращении или большом числе изменений.
+     * Строки таблицы загружаются страницами при прокрутке.
+     * </p>
      */
     private void readFromDB() {
-        Collection<Worker> collection = dao.findAll();
-        workers.clear();
-        workers.addAll(collection);
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(true);
+        }
+        UiActionEvent event = UiActionEvent.start("LabController.readFromDB", null);
+        long version = workers.getVersion();
+        int size = workers.size();
+        NavigableMap<Integer, Integer> boundaries = workers.getBoundaries();
+        CompletableFuture<ChangeFeed.Delta> refresh = asyncDao.submit(() -> {
+            try {
+                // лента читает таблицу напрямую, минуя журнал отложенной записи
+                DaoFactory.flush();
+                return changeFeed.diff(version, size, boundaries, maxDelta);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        pendingRefresh = refresh;
+
+        runAsync(refresh, delta -> {
+            if (refresh != pendingRefresh) {
+                return;
+            }
+            pendingRefresh = null;
+            event.resultReady(delta.full() ? delta.size() : delta.changes().size());
+            if (!delta.isEmpty()) {
+                searchCache.clear();
+            }
+            if (!workers.apply(delta)) {
+                // список изменился, пока вычислялись изменения
+                readFromDB();
+                return;
+            }
+            afterRender(event::finish);
+        });
+    }
+
+    /**
+     * Ожидает завершения фонового запроса и передаёт результат
+     * обработчику в потоке JavaFX. Пока запрос выполняется,
+     * отображается индикатор занятости.
+     *
+     * @param future фоновый запрос
+     * @param onSuccess обработчик результата
+     * @param <R> тип результата
+     */
+    private <R> void runAsync(CompletableFuture<R> future, Consumer<R> onSuccess) {
+        busyCount++;
+        busyIndicator.setVisible(true);
+
+        future.whenCompleteAsync((result, error) -> {
+            busyCount--;
+            busyIndicator.setVisible(busyCount > 0);
+
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                logger.error("Ошибка фонового запроса", cause);
+                lblLog.setText("Ошибка: " + cause.getMessage());
+            }
+        }, Platform::runLater);
     }
 
     /**
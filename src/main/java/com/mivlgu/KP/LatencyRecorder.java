@@ -0,0 +1,98 @@
+package com.mivlgu.KP;
+
+import java.util.Arrays;
+
+/**
+ * Накопитель времени выполнения операций для расчёта перцентилей.
+ * <p>
+ * Хранит последние {@code capacity} измерений в кольцевом буфере,
+ * поэтому перцентили отражают недавнюю работу приложения.
+ * Методы потокобезопасны.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class LatencyRecorder {
+
+    /** Название измеряемой операции */
+    private final String name;
+
+    /** Последние измерения в наносекундах */
+    private final long[] samples;
+
+    /** Общее количество измерений */
+    private long count;
+
+    /**
+     * Создаёт накопитель.
+     *
+     * @param name название измеряемой операции
+     * @param capacity количество хранимых измерений
+     */
+    public LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Добавляет измерение.
+     *
+     * @param nanos длительность операции в наносекундах
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (count % samples.length)] = nanos;
+        count++;
+    }
+
+    /**
+     * Возвращает общее количество измерений.
+     *
+     * @return количество измерений
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Рассчитывает перцентили по хранимым измерениям.
+     *
+     * @return сводка измерений
+     */
+    public synchronized Snapshot snapshot() {
+        int n = (int) Math.min(count, samples.length);
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        return new Snapshot(name, count, percentile(sorted, 0.50),
+                percentile(sorted, 0.90), percentile(sorted, 0.99),
+                n == 0 ? 0 : sorted[n - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Сводка измерений в миллисекундах.
+     *
+     * @param name название операции
+     * @param count общее количество измерений
+     * @param p50 медиана
+     * @param p90 90-й перцентиль
+     * @param p99 99-й перцентиль
+     * @param max наибольшее значение
+     */
+    public record Snapshot(String name, long count, double p50, double p90,
+                           double p99, double max) {
+
+        @Override
+        public String toString() {
+            return String.format("%s: n=%d, p50=%.1f мс, p90=%.1f мс, p99=%.1f мс, max=%.1f мс",
+                    name, count, p50, p90, p99, max);
+        }
+    }
+}
@@ -2,8 +2,103 @@ package com.mivlgu.KP;
 
 import javafx.application.Application;
 
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Точка входа приложения.
+ * <p>
+ * Без аргументов запускает окно JavaFX. Аргумент
+ * {@code --import <файл.csv>} выполняет импорт работников,
+ * а {@code --export <файл.csv|файл.jsonl>} — экспорт таблицы
+ * в консольном режиме без запуска JavaFX.
+ * {@code --server [порт]} запускает HTTP API ({@link WorkerHttpServer})
+ * без окна; сервер работает до завершения процесса.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && "--import".equals(args[0])) {
+            runImport(Path.of(args[1]));
+            return;
+        }
+        if (args.length >= 2 && "--export".equals(args[0])) {
+            runExport(Path.of(args[1]));
+            return;
+        }
+        if (args.length >= 1 && "--server".equals(args[0])) {
+            runServer(args.length >= 2 ? Integer.parseInt(args[1]) : -1);
+            return;
+        }
         Application.launch(LabApplication.class, args);
     }
+
+    /**
+     * Импортирует работников из CSV-файла без запуска JavaFX.
+     *
+     * @param file путь к файлу
+     */
+    private static void runImport(Path file) throws Exception {
+        LabApplication.initStorage();
+        try {
+            WorkerCsvImporter importer = new WorkerCsvImporter(new WorkerDao());
+            WorkerCsvImporter.Result result = importer.importFile(file, null);
+            System.out.println("Импорт завершён: " + result);
+            for (String message : result.getRejectMessages()) {
+                System.out.println("  " + message);
+            }
+        } finally {
+            dbCon.stopConnection();
+        }
+    }
+
+    /**
+     * Экспортирует таблицу работников в файл без запуска JavaFX.
+     * Формат определяется по расширению файла.
+     *
+     * @param file путь к файлу
+     */
+    private static void runExport(Path file) throws Exception {
+        LabApplication.initStorage();
+        try {
+            long rows = new WorkerExporter().export(file,
+                    WorkerExporter.Format.forFile(file), null);
+            System.out.println("Экспортировано строк: " + rows);
+        } finally {
+            dbCon.stopConnection();
+        }
+    }
+
+    /**
+     * Запускает HTTP API без запуска JavaFX и ожидает завершения процесса.
+     * При завершении (например, по Ctrl+C) сервер останавливается,
+     * отложенные изменения сохраняются и пул соединений закрывается.
+     *
+     * @param port порт или {@code -1} для значения из конфигурации
+     */
+    private static void runServer(int port) throws Exception {
+        LabApplication.initStorage();
+        WorkerHttpServer server;
+        try {
+            server = WorkerHttpServer.start(LabApplication.getProperty(), port);
+        } catch (Exception e) {
+            DaoFactory.shutdown();
+            dbCon.stopConnection();
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            DaoFactory.shutdown();
+            try {
+                dbCon.stopConnection();
+            } catch (SQLException e) {
+                System.err.println("Ошибка закрытия пула соединений: " + e.getMessage());
+            }
+        }, "server-shutdown"));
+        System.out.println("HTTP API: http://localhost:" + server.getPort() + "/api/workers");
+        Thread.currentThread().join();
+    }
 }
@@ -0,0 +1,90 @@
+package com.mivlgu.KP;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Событие JDK Flight Recorder: преобразование результата запроса
+ * в список работников ({@link WorkerDao#mapper}).
+ * <p>
+ * SQLite вычисляет строки результата по мере вызова {@code ResultSet.next()},
+ * поэтому большая часть выполнения запроса приходится на эту фазу.
+ * Чтобы разделить время базы и время создания объектов,
+ * при включённом событии отдельно измеряется время вызовов
+ * {@code next()} — поле {@code fetchTime}; остальное время
+ * события занимает чтение столбцов и создание {@link Worker}.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@Name("com.mivlgu.KP.Mapper")
+@Label("Result Mapping")
+@Category({"Lab3", "Database"})
+@Description("Преобразование ResultSet в список работников")
+public class MapperEvent extends Event {
+
+    @Label("Rows")
+    @Description("Количество преобразованных строк")
+    long rows;
+
+    @Label("Fetch Time")
+    @Description("Время получения строк от SQLite")
+    @Timespan(Timespan.NANOSECONDS)
+    long fetchTime;
+
+    /** Измерять ли время {@code next()}: только при включённом событии */
+    private transient boolean timed;
+
+    /**
+     * Создаёт событие и начинает отсчёт времени.
+     *
+     * @return начатое событие
+     */
+    static MapperEvent start() {
+        MapperEvent event = new MapperEvent();
+        event.timed = event.isEnabled();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Переходит к следующей строке результата, учитывая время перехода.
+     *
+     * @param rs результат запроса
+     * @return {@code true}, если строка есть
+     * @throws SQLException при ошибке чтения
+     */
+    boolean next(ResultSet rs) throws SQLException {
+        if (!timed) {
+            return rs.next();
+        }
+        long start = System.nanoTime();
+        try {
+            return rs.next();
+        } finally {
+            fetchTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Завершает событие и записывает его, если оно включено
+     * и превышает порог длительности.
+     *
+     * @param rows количество преобразованных строк
+     */
+    void finish(long rows) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            commit();
+        }
+    }
+}
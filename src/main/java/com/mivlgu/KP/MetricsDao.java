@@ -0,0 +1,195 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Обёртка над DAO работников, учитывающая статистику операций.
+ * <p>
+ * Каждый вызов записывает в {@link DaoMetrics} время выполнения
+ * и количество строк результата: размер списка, одну строку
+ * для найденного или сохранённого работника, количество изменённых
+ * строк для пакетных операций. Исключения учитываются как ошибки
+ * и передаются вызывающему коду без изменений.
+ * </p>
+ *
+ * Обёртка ставится последней, поэтому время включает работу
+ * кэша, отложенной записи и поиска в памяти — то, что видит интерфейс.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class MetricsDao implements Dao<Worker, Integer>, AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(MetricsDao.class);
+
+    /** Объект доступа к данным, выполняющий запросы */
+    private final Dao<Worker, Integer> delegate;
+
+    private final OperationMetrics findById = DaoMetrics.operation("findById");
+    private final OperationMetrics findAll = DaoMetrics.operation("findAll");
+    private final OperationMetrics save = DaoMetrics.operation("save");
+    private final OperationMetrics update = DaoMetrics.operation("update");
+    private final OperationMetrics delete = DaoMetrics.operation("delete");
+    private final OperationMetrics deleteById = DaoMetrics.operation("deleteById");
+    private final OperationMetrics search = DaoMetrics.operation("findBySurnameOrGroupName");
+    private final OperationMetrics saveAll = DaoMetrics.operation("saveAll");
+    private final OperationMetrics updateAll = DaoMetrics.operation("updateAll");
+    private final OperationMetrics deleteAllById = DaoMetrics.operation("deleteAllById");
+    private final OperationMetrics count = DaoMetrics.operation("count");
+    private final OperationMetrics countCriteria = DaoMetrics.operation("countByCriteria");
+    private final OperationMetrics findPage = DaoMetrics.operation("findPage");
+    private final OperationMetrics findIdAfter = DaoMetrics.operation("findIdAfter");
+    private final OperationMetrics find = DaoMetrics.operation("find");
+    private final OperationMetrics findSortedPage = DaoMetrics.operation("findSortedPage");
+
+    /**
+     * Создаёт обёртку.
+     *
+     * @param delegate объект доступа к данным
+     */
+    public MetricsDao(Dao<Worker, Integer> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Worker findById(Integer id) {
+        return measure(findById, () -> delegate.findById(id), MetricsDao::one);
+    }
+
+    @Override
+    public Collection<Worker> findAll() {
+        return measure(findAll, delegate::findAll, Collection::size);
+    }
+
+    @Override
+    public Worker save(Worker entity) {
+        return measure(save, () -> delegate.save(entity), MetricsDao::one);
+    }
+
+    @Override
+    public Worker update(Worker entity) {
+        return measure(update, () -> delegate.update(entity), MetricsDao::one);
+    }
+
+    @Override
+    public void delete(Worker entity) {
+        measure(delete, () -> {
+            delegate.delete(entity);
+            return null;
+        }, MetricsDao::one);
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        measure(deleteById, () -> {
+            delegate.deleteById(id);
+            return null;
+        }, MetricsDao::one);
+    }
+
+    @Override
+    public Collection<Worker> findBySurnameOrGroupName(String value) {
+        return measure(search, () -> delegate.findBySurnameOrGroupName(value), Collection::size);
+    }
+
+    @Override
+    public List<Worker> findBySurnameOrGroupName(String value, int limit) {
+        return measure(search, () -> delegate.findBySurnameOrGroupName(value, limit), List::size);
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Worker> entities) {
+        return measure(saveAll, () -> delegate.saveAll(entities), List::size);
+    }
+
+    @Override
+    public int updateAll(Collection<Worker> entities) {
+        return measure(updateAll, () -> delegate.updateAll(entities), Integer::longValue);
+    }
+
+    @Override
+    public int deleteAllById(Collection<Integer> ids) {
+        return measure(deleteAllById, () -> delegate.deleteAllById(ids), Integer::longValue);
+    }
+
+    @Override
+    public long count() {
+        return measure(count, delegate::count, MetricsDao::one);
+    }
+
+    @Override
+    public long count(Criteria criteria) {
+        return measure(countCriteria, () -> delegate.count(criteria), MetricsDao::one);
+    }
+
+    @Override
+    public List<Worker> findPage(Integer afterId, int limit) {
+        return measure(findPage, () -> delegate.findPage(afterId, limit), List::size);
+    }
+
+    @Override
+    public Integer findIdAfter(Integer afterId, int offset) {
+        return measure(findIdAfter, () -> delegate.findIdAfter(afterId, offset), MetricsDao::one);
+    }
+
+    @Override
+    public List<Worker> find(Query query) {
+        return measure(find, () -> delegate.find(query), List::size);
+    }
+
+    @Override
+    public List<Worker> findPage(Query query, Worker after, int offset, int limit) {
+        return measure(findSortedPage, () -> delegate.findPage(query, after, offset, limit),
+                List::size);
+    }
+
+    /**
+     * Выполняет операцию и учитывает её время и количество строк.
+     *
+     * @param metrics статистика операции
+     * @param call операция
+     * @param rows количество строк непустого результата
+     * @return результат операции
+     */
+    private static <R> R measure(OperationMetrics metrics, Supplier<R> call,
+                                 ToLongFunction<? super R> rows) {
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            metrics.failed(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.record(System.nanoTime() - start, result == null ? 0 : rows.applyAsLong(result));
+        return result;
+    }
+
+    /**
+     * Одна строка результата; для процедур без результата — ноль.
+     */
+    private static long one(Object result) {
+        return 1;
+    }
+
+    /**
+     * Закрывает обёрнутый DAO.
+     */
+    @Override
+    public void close() {
+        if (delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.error("Ошибка закрытия обёрнутого DAO", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.mivlgu.KP;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одной операции DAO: количество вызовов, ошибок,
+ * строк и гистограмма времени выполнения.
+ * <p>
+ * Запись измерения не использует блокировок: все счётчики —
+ * {@link LongAdder}, которые распределяют обновления из разных
+ * потоков по отдельным ячейкам. Поэтому учёт не замедляет
+ * параллельные запросы к базе.
+ * </p>
+ *
+ * Гистограмма логарифмически-линейная: каждая степень двойки
+ * наносекунд разбита на {@link #SUB_BUCKETS} равных интервалов,
+ * так что значение перцентиля отличается от точного не более
+ * чем на 12,5 %. Измерения дольше {@link #MAX_TRACKABLE_NANOS}
+ * попадают в последний интервал, но наибольшее значение хранится точно.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    /** Двоичный логарифм количества интервалов на степень двойки */
+    private static final int SUB_BITS = 3;
+
+    /** Количество интервалов на степень двойки */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Наибольшее различимое время — около 9 минут */
+    private static final long MAX_TRACKABLE_NANOS = 1L << 39;
+
+    private final String name;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /** Количество измерений в каждом интервале гистограммы */
+    private final LongAdder[] buckets = new LongAdder[bucket(MAX_TRACKABLE_NANOS) + 1];
+
+    /**
+     * Создаёт пустую статистику.
+     *
+     * @param name название операции
+     */
+    public OperationMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Учитывает успешный вызов.
+     *
+     * @param nanos время выполнения в наносекундах
+     * @param rowCount количество строк результата
+     */
+    public void record(long nanos, long rowCount) {
+        calls.increment();
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        time(nanos);
+    }
+
+    /**
+     * Учитывает вызов, завершившийся исключением.
+     *
+     * @param nanos время выполнения в наносекундах
+     */
+    public void failed(long nanos) {
+        calls.increment();
+        errors.increment();
+        time(nanos);
+    }
+
+    /**
+     * Учитывает ошибку, перехваченную внутри операции
+     * (метод DAO записал её в лог и вернул пустой результат).
+     */
+    public void error() {
+        errors.increment();
+    }
+
+    private void time(long nanos) {
+        long value = Math.max(0, nanos);
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+        buckets[bucket(Math.min(value, MAX_TRACKABLE_NANOS))].increment();
+    }
+
+    /**
+     * Номер интервала гистограммы для значения.
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Наибольшее значение, попадающее в интервал гистограммы.
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Рассчитывает перцентиль по гистограмме.
+     *
+     * @param p доля измерений от 0 до 1
+     * @return значение в миллисекундах
+     */
+    public double percentile(double p) {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // верхняя граница интервала не может превышать наибольшее измерение
+                return Math.min(upperBound(i), maxNanos.get()) / 1e6;
+            }
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getTotalMillis() {
+        return totalNanos.sum() / 1e6;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = calls.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentile(0.50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentile(0.90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentile(0.99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return percentile(0.999);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Сбрасывает статистику. Измерения, записанные одновременно
+     * со сбросом, могут учитываться частично.
+     */
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: вызовов=%d, ошибок=%d, строк=%d, среднее=%.2f мс, "
+                        + "p50=%.2f мс, p90=%.2f мс, p99=%.2f мс, p99.9=%.2f мс, max=%.2f мс",
+                name, getCalls(), getErrors(), getRows(), getMeanMillis(),
+                getP50Millis(), getP90Millis(), getP99Millis(), getP999Millis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mivlgu.KP;
+
+/**
+ * Интерфейс управления JMX для статистики одной операции DAO.
+ * <p>
+ * Время указывается в миллисекундах. Перцентили рассчитываются
+ * по гистограмме с относительной погрешностью не более 12,5 %.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public interface OperationMetricsMBean {
+
+    /** Название операции */
+    String getName();
+
+    /** Количество вызовов */
+    long getCalls();
+
+    /** Количество вызовов, завершившихся ошибкой */
+    long getErrors();
+
+    /** Количество строк, возвращённых или изменённых операцией */
+    long getRows();
+
+    /** Суммарное время выполнения */
+    double getTotalMillis();
+
+    /** Среднее время выполнения */
+    double getMeanMillis();
+
+    /** Медиана времени выполнения */
+    double getP50Millis();
+
+    /** 90-й перцентиль времени выполнения */
+    double getP90Millis();
+
+    /** 99-й перцентиль времени выполнения */
+    double getP99Millis();
+
+    /** 99,9-й перцентиль времени выполнения */
+    double getP999Millis();
+
+    /** Наибольшее время выполнения */
+    double getMaxMillis();
+
+    /** Сбрасывает накопленную статистику */
+    void reset();
+}
@@ -0,0 +1,433 @@
+package com.mivlgu.KP;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Виртуальный список работников для {@link javafx.scene.control.TableView}.
+ * <p>
+ * Список знает только количество строк в таблице, а сами строки
+ * загружает страницами по мере прокрутки. Страницы запрашиваются
+ * по ключу ({@code id > ? ORDER BY id LIMIT ?}) методами
+ * {@link Dao#findPage} и {@link Dao#findIdAfter}; в памяти хранится
+ * небольшое число последних использованных страниц.
+ * </p>
+ *
+ * После вызова {@link #sort} строки упорядочиваются по выбранному полю,
+ * а страницы запрашиваются методом {@link Dao#findPage(Query, Object, int, int)}
+ * с продолжением после последней строки предыдущей страницы.
+ * Сортировка выполняется базой данных по индексу поля, поэтому
+ * первая страница не требует чтения всей таблицы; поля без индекса
+ * для сортировки не принимаются.
+ *
+ * Страницы читаются в фоновом потоке через {@link AsyncDao}. Пока
+ * страница не загружена, её строки представлены заполнителями
+ * ({@link #isPlaceholder}); после загрузки слушатели получают
+ * уведомление о замене этих строк.
+ *
+ * Список доступен только для чтения и используется из потока JavaFX.
+ * После изменения данных в базе следует вызвать {@link #refresh()}
+ * или применить изменения из {@link ChangeFeed} методом {@link #apply},
+ * который сообщает слушателям только о затронутых строках, поэтому
+ * выделение и позиция прокрутки таблицы сохраняются.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class PagedWorkerList extends ObservableListBase<Worker> {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(PagedWorkerList.class);
+
+    /** Количество строк на странице по умолчанию */
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    /** Количество страниц в памяти по умолчанию */
+    public static final int DEFAULT_MAX_PAGES = 16;
+
+    /** Заполнитель строк, которые ещё не загружены или удалены */
+    private static final Worker PLACEHOLDER = new Placeholder();
+
+    /** Объект доступа к данным */
+    private final AsyncDao<Worker, Integer> dao;
+
+    /** Количество строк на странице */
+    private final int pageSize;
+
+    /** Загруженные страницы в порядке последнего использования */
+    private final Map<Integer, List<Worker>> pages;
+
+    /** Загружаемые страницы: номер страницы и фоновый запрос */
+    private final Map<Integer, CompletableFuture<Page>> loading = new HashMap<>();
+
+    /**
+     * Известные границы: номер строки и идентификатор строки перед ней.
+     * Для первой строки граница равна нулю.
+     */
+    private TreeMap<Integer, Integer> boundaries = new TreeMap<>();
+
+    /**
+     * Сортировка списка или {@code null} для порядка идентификаторов,
+     * в котором работает лента изменений.
+     */
+    private Query order;
+
+    /**
+     * Известные границы при сортировке: номер строки и строка перед ней.
+     * Для первой строки граница равна {@code null}.
+     */
+    private final TreeMap<Integer, Worker> keys = new TreeMap<>();
+
+    /** Количество строк в списке */
+    private int size;
+
+    /** Версия ленты изменений, на которой прочитан список */
+    private long version = ChangeFeed.NO_VERSION;
+
+    /**
+     * Создаёт пустой список с параметрами по умолчанию.
+     * Для загрузки данных вызовите {@link #refresh()}.
+     *
+     * @param dao асинхронный объект доступа к данным
+     */
+    public PagedWorkerList(AsyncDao<Worker, Integer> dao) {
+        this(dao, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Создаёт пустой список.
+     * Для загрузки данных вызовите {@link #refresh()}.
+     *
+     * @param dao асинхронный объект доступа к данным
+     * @param pageSize количество строк на странице
+     * @param maxPages количество страниц, хранимых в памяти
+     */
+    public PagedWorkerList(AsyncDao<Worker, Integer> dao, int pageSize, int maxPages) {
+        this.dao = dao;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Worker>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        boundaries.put(0, 0);
+        keys.put(0, null);
+    }
+
+    /**
+     * Перечитывает количество строк и сбрасывает загруженные страницы.
+     * Слушатели получают уведомление о замене всего содержимого списка.
+     */
+    public void refresh() {
+        refresh(dao.getDao().count());
+    }
+
+    /**
+     * Сбрасывает загруженные страницы, используя заранее полученное
+     * количество строк. Позволяет выполнить подсчёт строк
+     * вне потока JavaFX.
+     *
+     * @param count количество строк в таблице
+     */
+    public void refresh(long count) {
+        refresh(count, ChangeFeed.NO_VERSION);
+    }
+
+    /**
+     * Сбрасывает загруженные страницы и запоминает версию
+     * ленты изменений, на которой получено количество строк.
+     *
+     * @param count количество строк в таблице
+     * @param version версия ленты изменений
+     */
+    public void refresh(long count, long version) {
+        this.version = version;
+        int oldSize = size;
+        cancelLoading();
+        pages.clear();
+        boundaries.clear();
+        boundaries.put(0, 0);
+        keys.clear();
+        keys.put(0, null);
+        size = (int) count;
+        logger.debug("Виртуальный список обновлён, строк: {}", size);
+
+        beginChange();
+        if (oldSize > 0) {
+            nextRemove(0, Collections.nCopies(oldSize, (Worker) null));
+        }
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+        endChange();
+    }
+
+    /**
+     * Применяет изменения из ленты изменений.
+     * <p>
+     * Слушатели получают отдельное уведомление о каждой вставленной,
+     * изменённой или удалённой строке. Известные границы заменяются
+     * пересчитанными, а загруженные страницы перечитываются
+     * при следующем обращении. Если список упорядочен не по
+     * идентификатору, при любых изменениях он перечитывается целиком.
+     * </p>
+     *
+     * @param delta изменения, вычисленные от текущей версии списка
+     * @return {@code false}, если изменения вычислены от другой версии
+     * и не применены
+     */
+    public boolean apply(ChangeFeed.Delta delta) {
+        if (delta.fromVersion() != version) {
+            return false;
+        }
+        if (delta.full() || order != null && !delta.changes().isEmpty()) {
+            // позиции изменений вычислены в порядке идентификаторов
+            refresh(delta.size(), delta.toVersion());
+            return true;
+        }
+        version = delta.toVersion();
+        if (delta.changes().isEmpty()) {
+            return true;
+        }
+
+        beginChange();
+        int shift = 0;
+        for (ChangeFeed.Change change : delta.changes()) {
+            int index = change.index();
+            switch (change.type()) {
+                case INSERT -> {
+                    nextAdd(index, index + 1);
+                    shift++;
+                }
+                case DELETE -> {
+                    nextRemove(index, loaded(index - shift));
+                    shift--;
+                }
+                case UPDATE -> nextSet(index, loaded(index - shift));
+            }
+        }
+        cancelLoading();
+        pages.clear();
+        boundaries = new TreeMap<>(delta.boundaries());
+        size = delta.size();
+        endChange();
+        logger.debug("Применено изменений: {}, версия {}", delta.changes().size(), version);
+        return true;
+    }
+
+    /**
+     * Упорядочивает список по полю. Загруженные страницы сбрасываются,
+     * слушатели получают уведомление о замене всего содержимого.
+     *
+     * @param field индексированное поле сортировки
+     * @param descending {@code true} для сортировки по убыванию
+     * @throws IllegalArgumentException если по полю нет индекса
+     */
+    public void sort(WorkerField field, boolean descending) {
+        if (!isSortable(field)) {
+            throw new IllegalArgumentException("Сортировка по полю без индекса: " + field);
+        }
+        Query sorted = field == WorkerField.ID && !descending ? null
+                : Query.all().orderBy(field, descending);
+        if (sorted == null ? order == null
+                : order != null && order.getOrderBy() == field && order.isDescending() == descending) {
+            return;
+        }
+        order = sorted;
+        logger.debug("Сортировка списка по {}{}", field, descending ? " по убыванию" : "");
+        refresh(size, version);
+    }
+
+    /**
+     * Проверяет, можно ли упорядочить список по полю. Сортировка
+     * по полю без индекса потребовала бы чтения всей таблицы
+     * для каждой страницы.
+     *
+     * @param field поле
+     * @return {@code true}, если по полю есть индекс
+     */
+    public static boolean isSortable(WorkerField field) {
+        return field.index() != WorkerField.Index.NONE;
+    }
+
+    /**
+     * Возвращает версию ленты изменений, на которой прочитан список.
+     *
+     * @return версия или {@link ChangeFeed#NO_VERSION}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Возвращает копию известных границ для вычисления изменений.
+     *
+     * @return номер строки и идентификатор строки перед ней
+     */
+    public NavigableMap<Integer, Integer> getBoundaries() {
+        return new TreeMap<>(boundaries);
+    }
+
+    @Override
+    public Worker get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+        }
+        int pageIndex = index / pageSize;
+        List<Worker> page = pages.get(pageIndex);
+        if (page == null) {
+            load(pageIndex);
+            return PLACEHOLDER;
+        }
+        int offset = index % pageSize;
+        // строки могли быть удалены в базе после последнего refresh()
+        return offset < page.size() ? page.get(offset) : PLACEHOLDER;
+    }
+
+    /**
+     * Проверяет, является ли строка заполнителем, а не работником из базы.
+     * Заполнители возвращаются для строк ещё не загруженных страниц
+     * и для строк, удалённых в базе после последнего обновления списка;
+     * их нельзя редактировать или удалять.
+     *
+     * @param worker строка списка
+     * @return {@code true} для заполнителя
+     */
+    public static boolean isPlaceholder(Worker worker) {
+        return worker instanceof Placeholder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает строку из загруженной страницы без обращения к базе.
+     *
+     * @param index номер строки до применения изменений
+     * @return работник или {@code null}, если страница не загружена
+     */
+    private Worker loaded(int index) {
+        List<Worker> page = pages.get(index / pageSize);
+        int offset = index % pageSize;
+        return page != null && offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Начинает фоновую загрузку страницы, если она ещё не загружается.
+     * Запрос строится от известных на этот момент границ.
+     *
+     * @param pageIndex номер страницы
+     */
+    private void load(int pageIndex) {
+        if (loading.containsKey(pageIndex)) {
+            return;
+        }
+        int start = pageIndex * pageSize;
+        Dao<Worker, Integer> source = dao.getDao();
+        int limit = pageSize;
+        CompletableFuture<Page> future;
+        if (order != null) {
+            Query sorted = order;
+            Map.Entry<Integer, Worker> known = keys.floorEntry(start);
+            future = dao.submit(() -> new Page(null,
+                    source.findPage(sorted, known.getValue(), start - known.getKey(), limit)));
+        } else {
+            Integer boundary = boundaries.get(start);
+            Map.Entry<Integer, Integer> known = boundaries.floorEntry(start);
+            future = dao.submit(() -> {
+                Integer afterId = boundary;
+                if (afterId == null) {
+                    // переход к странице без известной границы: отступ
+                    // от ближайшей известной границы слева
+                    afterId = source.findIdAfter(known.getValue(), start - known.getKey() - 1);
+                }
+                return new Page(afterId, afterId == null
+                        ? Collections.emptyList() : source.findPage(afterId, limit));
+            });
+        }
+        loading.put(pageIndex, future);
+        future.whenCompleteAsync((page, error) -> pageLoaded(pageIndex, future, page, error),
+                Platform::runLater);
+    }
+
+    /**
+     * Сохраняет загруженную страницу и сообщает слушателям о замене
+     * заполнителей её строками. Результат запроса, начатого до сброса
+     * списка, отбрасывается.
+     */
+    private void pageLoaded(int pageIndex, CompletableFuture<Page> future, Page page, Throwable error) {
+        if (loading.get(pageIndex) != future) {
+            return;
+        }
+        loading.remove(pageIndex);
+        if (error != null) {
+            if (!(error instanceof CancellationException)) {
+                logger.error("Ошибка загрузки страницы {}", pageIndex, error);
+            }
+            return;
+        }
+        int start = pageIndex * pageSize;
+        List<Worker> rows = page.rows();
+        if (order != null) {
+            if (!rows.isEmpty()) {
+                keys.put(start + rows.size(), rows.get(rows.size() - 1));
+            }
+        } else if (page.afterId() != null) {
+            boundaries.put(start, page.afterId());
+            if (!rows.isEmpty()) {
+                boundaries.put(start + rows.size(), rows.get(rows.size() - 1).getId());
+            }
+        }
+        pages.put(pageIndex, rows);
+        logger.debug("Загружена страница {}{} ({} строк)", pageIndex,
+                order != null ? " по " + order.getOrderBy() : "", rows.size());
+
+        int end = Math.min(start + pageSize, size);
+        if (start < end) {
+            beginChange();
+            nextReplace(start, end, Collections.nCopies(end - start, PLACEHOLDER));
+            endChange();
+        }
+    }
+
+    /**
+     * Отменяет загрузку страниц, начатую до сброса списка.
+     */
+    private void cancelLoading() {
+        for (CompletableFuture<Page> future : loading.values()) {
+            future.cancel(true);
+        }
+        loading.clear();
+    }
+
+    /**
+     * Загруженная страница.
+     *
+     * @param afterId идентификатор строки перед страницей
+     *                или {@code null} при сортировке по полю
+     * @param rows строки страницы
+     */
+    private record Page(Integer afterId, List<Worker> rows) {
+    }
+
+    /**
+     * Пустая строка на месте работника, отсутствующего в базе.
+     */
+    private static final class Placeholder extends Worker {
+    }
+}
@@ -0,0 +1,433 @@
+package com.mivlgu.KP;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Запрос работников: условие отбора, сортировка и ограничение количества.
+ * <p>
+ * Запрос преобразуется ({@link #compile()}) в параметризованный SQL,
+ * текст которого зависит только от формы запроса — полей, операций
+ * и количества значений, но не от самих значений. Поэтому одинаковые
+ * по форме запросы используют одно подготовленное выражение
+ * ({@link StatementCatalog#prepareQuery}). Списки {@code IN}
+ * дополняются до степени двойки повтором последнего значения,
+ * чтобы число различных форм оставалось небольшим.
+ * </p>
+ *
+ * При преобразовании условия {@code AND} верхнего уровня выбирается
+ * одно ведущее условие по индексированному полю — то, которое
+ * по {@link IndexStatistics} отбирает меньше всего строк; без статистики
+ * предпочитается равенство, затем {@code IN}, префикс и диапазон.
+ * Остальные условия по индексированным
+ * полям записываются как {@code +столбец}, что запрещает SQLite
+ * использовать их индексы, поэтому выборку ведёт выбранный индекс.
+ * Равенство по полю с индексом {@code NOCASE} дополняется сравнением
+ * {@code COLLATE NOCASE}, которое может использовать этот индекс,
+ * при сохранении точного сравнения.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class Query {
+
+    /** Предполагаемое количество строк, если статистика не собрана */
+    private static final double DEFAULT_ROWS = 1_000_000;
+
+    private final Criteria criteria;
+    private WorkerField orderBy = WorkerField.ID;
+    private boolean descending;
+    private int limit;
+    private int offset;
+    private Worker after;
+
+    private Query(Criteria criteria) {
+        this.criteria = criteria;
+    }
+
+    /**
+     * Создаёт запрос всех работников.
+     *
+     * @return запрос без условий
+     */
+    public static Query all() {
+        return new Query(null);
+    }
+
+    /**
+     * Создаёт запрос работников, удовлетворяющих условию.
+     *
+     * @param criteria условие отбора
+     * @return запрос
+     */
+    public static Query where(Criteria criteria) {
+        return new Query(Objects.requireNonNull(criteria));
+    }
+
+    /**
+     * Задаёт сортировку по возрастанию поля.
+     */
+    public Query orderBy(WorkerField field) {
+        return orderBy(field, false);
+    }
+
+    /**
+     * Задаёт сортировку по полю. Строки с равными значениями
+     * упорядочиваются по идентификатору в том же направлении.
+     *
+     * @param field поле сортировки
+     * @param descending {@code true} для сортировки по убыванию
+     * @return этот запрос
+     */
+    public Query orderBy(WorkerField field, boolean descending) {
+        this.orderBy = Objects.requireNonNull(field);
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Ограничивает количество возвращаемых работников.
+     *
+     * @param limit наибольшее количество, {@code 0} — без ограничения
+     * @return этот запрос
+     */
+    public Query limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Отрицательное ограничение количества");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Возвращает запрос страницы с тем же условием и сортировкой.
+     * <p>
+     * Страница начинается со строки, следующей в порядке сортировки
+     * за строкой {@code after} (продолжение по ключу): условие
+     * {@code (столбец, id) > (?, ?)} позволяет SQLite начать чтение
+     * индекса сразу с нужного места, поэтому время запроса не зависит
+     * от номера страницы. Отступ {@code offset} используется только
+     * для перехода к странице без известной предыдущей строки.
+     * </p>
+     *
+     * @param after последняя строка предыдущей страницы
+     *              или {@code null} для отсчёта от начала
+     * @param offset количество пропускаемых строк
+     * @param limit количество строк на странице, {@code 0} — без ограничения
+     * @return новый запрос
+     */
+    public Query page(Worker after, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Отрицательный отступ");
+        }
+        Query page = new Query(criteria).orderBy(orderBy, descending).limit(limit);
+        page.after = after;
+        page.offset = offset;
+        return page;
+    }
+
+    public Criteria getCriteria() {
+        return criteria;
+    }
+
+    public WorkerField getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public Worker getAfter() {
+        return after;
+    }
+
+    /**
+     * Преобразует запрос в SQL без учёта статистики индексов.
+     *
+     * @return текст запроса и значения параметров
+     */
+    public Compiled compile() {
+        return compile(IndexStatistics.NONE);
+    }
+
+    /**
+     * Преобразует запрос в SQL, выбирая ведущий индекс по статистике.
+     *
+     * @param statistics статистика индексов
+     * @return текст запроса и значения параметров
+     */
+    public Compiled compile(IndexStatistics statistics) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM workers");
+        List<Object> parameters = new ArrayList<>();
+        where(sql, parameters, statistics);
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ");
+        if (orderBy != WorkerField.ID) {
+            sql.append(orderBy.column());
+            if (orderBy.index() == WorkerField.Index.NOCASE) {
+                sql.append(" COLLATE NOCASE");
+            }
+            sql.append(direction).append(", ");
+        }
+        sql.append("id").append(direction);
+        if (limit > 0 || offset > 0) {
+            sql.append(" LIMIT ?");
+            parameters.add(limit > 0 ? limit : -1);
+        }
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+            parameters.add(offset);
+        }
+        return new Compiled(sql.toString(), List.copyOf(parameters));
+    }
+
+    /**
+     * Преобразует запрос в SQL подсчёта строк, удовлетворяющих
+     * условию и продолжению по ключу. Сортировка, отступ
+     * и ограничение количества не учитываются.
+     *
+     * @param statistics статистика индексов
+     * @return текст запроса и значения параметров
+     */
+    public Compiled compileCount(IndexStatistics statistics) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM workers");
+        List<Object> parameters = new ArrayList<>();
+        where(sql, parameters, statistics);
+        return new Compiled(sql.toString(), List.copyOf(parameters));
+    }
+
+    private void where(StringBuilder sql, List<Object> parameters, IndexStatistics statistics) {
+        if (criteria != null) {
+            List<Criteria> terms = criteria instanceof Criteria.All all ? all.terms() : List.of(criteria);
+            Criteria driver = driver(terms, statistics);
+            sql.append(" WHERE ");
+            for (int i = 0; i < terms.size(); i++) {
+                if (i > 0) {
+                    sql.append(" AND ");
+                }
+                Criteria term = terms.get(i);
+                if (term == driver) {
+                    driving(term, sql, parameters);
+                } else {
+                    render(term, terms.size() > 1 && driver != null, sql, parameters);
+                }
+            }
+        }
+        if (after != null) {
+            sql.append(criteria == null ? " WHERE " : " AND ");
+            keyset(sql, parameters);
+        }
+    }
+
+    /**
+     * Записывает условие продолжения после строки {@link #after}.
+     * <p>
+     * Граница сравнивается как пара значений, чтобы SQLite искал
+     * её в индексе по столбцу сортировки, к которому идентификатор
+     * добавлен неявно. Правило сравнения {@code NOCASE} указывается
+     * у значения: так сравнение совпадает с порядком индекса и он
+     * остаётся применимым. Пустые значения ({@code NULL}) идут
+     * в начале порядка по возрастанию; условие для них записывается
+     * отдельно. Строки с пустыми значениями после непустой границы
+     * при сортировке по убыванию этим условием не отбираются
+     * и дочитываются отдельным запросом ({@link WorkerDao#findPage(Query, Worker, int, int)}).
+     * </p>
+     */
+    private void keyset(StringBuilder sql, List<Object> parameters) {
+        String greater = descending ? " < " : " > ";
+        if (orderBy == WorkerField.ID) {
+            sql.append("id").append(greater).append('?');
+            parameters.add(after.getId());
+            return;
+        }
+        String column = orderBy.column();
+        Object value = orderBy.value(after);
+        if (value != null) {
+            sql.append('(').append(column).append(", id)").append(greater).append("(?");
+            if (orderBy.index() == WorkerField.Index.NOCASE) {
+                sql.append(" COLLATE NOCASE");
+            }
+            sql.append(", ?)");
+            parameters.add(value);
+        } else if (descending) {
+            sql.append('(').append(column).append(" IS NULL AND id < ?)");
+        } else {
+            sql.append('(').append(column).append(" IS NOT NULL OR id > ?)");
+        }
+        parameters.add(after.getId());
+    }
+
+    /**
+     * Выбирает условие, индекс которого отбирает меньше всего строк.
+     *
+     * @return условие или {@code null}, если ни одно не использует индекс
+     */
+    private static Criteria driver(List<Criteria> terms, IndexStatistics statistics) {
+        Criteria best = null;
+        double bestRows = Double.MAX_VALUE;
+        for (Criteria term : terms) {
+            double rows = estimate(term, statistics);
+            if (rows < bestRows) {
+                best = term;
+                bestRows = rows;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Оценивает количество строк, отбираемых условием по индексу.
+     * Без статистики оценка упорядочивает условия по виду:
+     * равенство, {@code IN}, префикс, диапазон.
+     *
+     * @return оценка или {@link Double#MAX_VALUE}, если индекс неприменим
+     */
+    private static double estimate(Criteria term, IndexStatistics statistics) {
+        double rows = statistics.isAvailable() ? statistics.rows() : DEFAULT_ROWS;
+        return switch (term) {
+            case Criteria.Eq eq when eq.value() != null && eq.field().index() != WorkerField.Index.NONE ->
+                    statistics.rowsPerKey(eq.field());
+            case Criteria.In in when !in.values().isEmpty()
+                    && in.field().index() != WorkerField.Index.NONE ->
+                    (double) in.values().size() * statistics.rowsPerKey(in.field());
+            // каждый символ префикса примерно вчетверо сужает выборку
+            case Criteria.Prefix prefix when prefix.field().index() == WorkerField.Index.NOCASE
+                    && !prefix.prefix().isEmpty() ->
+                    Math.max(statistics.rowsPerKey(prefix.field()),
+                            rows / Math.pow(4, prefix.prefix().length()));
+            case Criteria.Range range when range.field().index() == WorkerField.Index.BINARY ->
+                    range.min() != null && range.max() != null ? rows / 8 : rows / 3;
+            default -> Double.MAX_VALUE;
+        };
+    }
+
+    /**
+     * Записывает ведущее условие так, чтобы его индекс мог быть использован.
+     */
+    private static void driving(Criteria term, StringBuilder sql, List<Object> parameters) {
+        if (term instanceof Criteria.Eq eq && eq.field().index() == WorkerField.Index.NOCASE) {
+            sql.append('(').append(eq.field().column()).append(" = ? COLLATE NOCASE AND ")
+                    .append(eq.field().column()).append(" = ?)");
+            parameters.add(eq.value());
+            parameters.add(eq.value());
+        } else if (term instanceof Criteria.In in && in.field().index() == WorkerField.Index.NOCASE) {
+            sql.append('(').append(in.field().column()).append(" COLLATE NOCASE");
+            values(in.values(), sql, parameters);
+            sql.append(" AND ").append(in.field().column());
+            values(in.values(), sql, parameters);
+            sql.append(')');
+        } else {
+            render(term, false, sql, parameters);
+        }
+    }
+
+    /**
+     * Записывает условие.
+     *
+     * @param suppress запретить использование индекса поля условия
+     */
+    private static void render(Criteria term, boolean suppress, StringBuilder sql,
+                               List<Object> parameters) {
+        switch (term) {
+            case Criteria.Eq eq -> {
+                column(eq.field(), suppress, sql);
+                if (eq.value() == null) {
+                    sql.append(" IS NULL");
+                } else {
+                    sql.append(" = ?");
+                    parameters.add(eq.value());
+                }
+            }
+            case Criteria.In in -> {
+                if (in.values().isEmpty()) {
+                    sql.append("0");
+                    return;
+                }
+                column(in.field(), suppress, sql);
+                values(in.values(), sql, parameters);
+            }
+            case Criteria.Range range -> {
+                sql.append('(');
+                if (range.min() != null) {
+                    column(range.field(), suppress, sql);
+                    sql.append(" >= ?");
+                    parameters.add(range.min());
+                }
+                if (range.min() != null && range.max() != null) {
+                    sql.append(" AND ");
+                }
+                if (range.max() != null) {
+                    column(range.field(), suppress, sql);
+                    sql.append(" <= ?");
+                    parameters.add(range.max());
+                }
+                sql.append(')');
+            }
+            case Criteria.Prefix prefix -> {
+                column(prefix.field(), suppress, sql);
+                sql.append(" LIKE ? ESCAPE '\\'");
+                parameters.add(escapeLike(prefix.prefix()) + "%");
+            }
+            case Criteria.All all -> group(all.terms(), " AND ", sql, parameters);
+            case Criteria.Any any -> group(any.terms(), " OR ", sql, parameters);
+        }
+    }
+
+    private static void group(List<Criteria> terms, String operator, StringBuilder sql,
+                              List<Object> parameters) {
+        sql.append('(');
+        for (int i = 0; i < terms.size(); i++) {
+            if (i > 0) {
+                sql.append(operator);
+            }
+            render(terms.get(i), false, sql, parameters);
+        }
+        sql.append(')');
+    }
+
+    private static void column(WorkerField field, boolean suppress, StringBuilder sql) {
+        if (suppress && field.index() != WorkerField.Index.NONE) {
+            sql.append('+');
+        }
+        sql.append(field.column());
+    }
+
+    /**
+     * Записывает список {@code IN}, дополненный до степени двойки.
+     */
+    private static void values(List<Object> values, StringBuilder sql, List<Object> parameters) {
+        int size = Integer.highestOneBit(values.size());
+        if (size < values.size()) {
+            size <<= 1;
+        }
+        sql.append(" IN (");
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            parameters.add(values.get(Math.min(i, values.size() - 1)));
+        }
+        sql.append(')');
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Запрос, преобразованный в SQL.
+     *
+     * @param sql текст запроса с параметрами {@code ?}
+     * @param parameters значения параметров по порядку
+     */
+    public record Compiled(String sql, List<Object> parameters) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.mivlgu.KP;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.List;
+
+/**
+ * Событие JDK Flight Recorder: выполнение SQL-запроса в {@link WorkerDao}.
+ * <p>
+ * Длительность включает выполнение выражения и чтение результата,
+ * в том числе вложенное событие преобразования строк ({@link MapperEvent}).
+ * Для пакетных операций событие охватывает всю транзакцию
+ * вместе с её фиксацией.
+ * </p>
+ *
+ * Поля заполняются только для событий, которые будут записаны,
+ * поэтому без активной записи JFR событие почти ничего не стоит.
+ * Запросы, завершившиеся ошибкой, не записываются — их учитывает
+ * {@link DaoMetrics}.
+ *
+ * Событие также передаёт запросы, превысившие порог,
+ * в журнал медленных запросов ({@link SlowQueryLog}) независимо
+ * от того, идёт ли запись JFR.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@Name("com.mivlgu.KP.Query")
+@Label("SQL Query")
+@Category({"Lab3", "Database"})
+@Description("Выполнение SQL-запроса в WorkerDao")
+public class QueryEvent extends Event {
+
+    @Label("Operation")
+    @Description("Метод DAO")
+    String operation;
+
+    @Label("SQL")
+    @Description("Текст выражения")
+    String sql;
+
+    @Label("Rows")
+    @Description("Количество прочитанных или изменённых строк")
+    long rows;
+
+    /** Момент начала по {@link System#nanoTime()} для журнала медленных запросов */
+    private transient long startNanos;
+
+    /**
+     * Создаёт событие и начинает отсчёт времени.
+     *
+     * @return начатое событие
+     */
+    static QueryEvent start() {
+        QueryEvent event = new QueryEvent();
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Завершает событие и записывает его, если оно включено
+     * и превышает порог длительности.
+     *
+     * @param operation метод DAO
+     * @param key ключ выражения в {@link StatementCatalog}
+     * @param rows количество строк
+     * @param parameters значения параметров или {@code null} для пакетных операций
+     */
+    void finish(String operation, String key, long rows, List<?> parameters) {
+        end();
+        long nanos = System.nanoTime() - startNanos;
+        boolean slow = SlowQueryLog.isSlow(nanos);
+        if (slow || shouldCommit()) {
+            finish(operation, StatementCatalog.sql(key), rows, parameters, nanos, slow);
+        }
+    }
+
+    /**
+     * Завершает событие для выражения, заданного текстом,
+     * например собранного {@link Query}.
+     *
+     * @param operation метод DAO
+     * @param sql текст выражения
+     * @param rows количество строк
+     * @param parameters значения параметров или {@code null} для пакетных операций
+     */
+    void finishSql(String operation, String sql, long rows, List<?> parameters) {
+        end();
+        long nanos = System.nanoTime() - startNanos;
+        finish(operation, sql, rows, parameters, nanos, SlowQueryLog.isSlow(nanos));
+    }
+
+    private void finish(String operation, String sql, long rows, List<?> parameters,
+                        long nanos, boolean slow) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.sql = sql;
+            this.rows = rows;
+            commit();
+        }
+        if (slow) {
+            SlowQueryLog.record(operation, sql, parameters, nanos, rows);
+        }
+    }
+}
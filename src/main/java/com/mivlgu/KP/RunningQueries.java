@@ -0,0 +1,72 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр выполняющихся запросов для их отмены из другого потока.
+ * <p>
+ * Долгий запрос регистрируется на время выполнения
+ * ({@link #register}/{@link #unregister}). Вызов {@link #cancel}
+ * прерывает запрос через {@link Statement#cancel()}; для SQLite
+ * это прерывает выполнение на соединении, и запрос завершается
+ * исключением {@link SQLException}.
+ * </p>
+ *
+ * Снятие с регистрации выполняется до возврата соединения в пул,
+ * а отмена и снятие упорядочены, поэтому отмена не может прервать
+ * чужой запрос на том же соединении.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class RunningQueries {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(RunningQueries.class);
+
+    /** Выполняющиеся запросы по потокам */
+    private static final Map<Thread, Statement> running = new ConcurrentHashMap<>();
+
+    private RunningQueries() {
+    }
+
+    /**
+     * Регистрирует запрос текущего потока.
+     *
+     * @param stmt выражение, которое сейчас будет выполнено
+     */
+    public static void register(Statement stmt) {
+        running.put(Thread.currentThread(), stmt);
+    }
+
+    /**
+     * Снимает с регистрации запрос текущего потока.
+     * Вызывается до возврата соединения в пул.
+     */
+    public static void unregister() {
+        running.remove(Thread.currentThread());
+    }
+
+    /**
+     * Отменяет запрос, выполняющийся в заданном потоке, если он есть.
+     *
+     * @param thread поток, выполняющий запрос
+     */
+    public static void cancel(Thread thread) {
+        running.computeIfPresent(thread, (t, stmt) -> {
+            try {
+                stmt.cancel();
+                logger.debug("Запрос в потоке {} отменён", t.getName());
+            } catch (SQLException e) {
+                logger.warn("Ошибка отмены запроса", e);
+            }
+            return stmt;
+        });
+    }
+}
@@ -0,0 +1,323 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Применяет версионные миграции схемы базы данных.
+ * <p>
+ * Миграции хранятся в ресурсах {@code com/mivlgu/KP/migrations/N.sql},
+ * где {@code N} — номер версии начиная с единицы. Первая строка-комментарий
+ * скрипта служит его описанием. Применённые версии записываются
+ * в таблицу {@code schema_version}; каждая миграция выполняется
+ * в отдельной транзакции, поэтому при ошибке схема остаётся
+ * в состоянии последней успешной версии.
+ * </p>
+ *
+ * Скрипт может содержать несколько выражений, каждое из которых
+ * заканчивается символом {@code ;} в конце строки. Тело триггера
+ * считается одним выражением до строки {@code END;}.
+ *
+ * Строка {@code -- requires: <модуль>} объявляет модуль виртуальных
+ * таблиц, без которого миграция невозможна (например, {@code fts5}).
+ * Если сборка SQLite не содержит модуля, миграция записывается
+ * как пропущенная, не выполняясь, и следующие версии применяются
+ * как обычно: код, использующий такие таблицы, должен проверять
+ * их наличие.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class SchemaMigrator {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SchemaMigrator.class);
+
+    /** Путь к каталогу миграций в ресурсах */
+    private static final String LOCATION = "/com/mivlgu/KP/migrations/";
+
+    /** Строка-комментарий с обязательным модулем виртуальных таблиц */
+    private static final String REQUIRES_PREFIX = "-- requires:";
+
+    /** Префикс ключей контрольных запросов в файле свойств */
+    private static final String PLAN_PREFIX = "plan.";
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Применяет все миграции с номером больше текущей версии схемы.
+     *
+     * @param conn соединение с базой данных
+     * @return текущая версия схемы после применения миграций
+     */
+    public static int migrate(Connection conn) {
+        int version;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(StatementCatalog.sql("sql.create_schema_version"));
+            try (ResultSet rs = stmt.executeQuery(
+                    StatementCatalog.sql("sql.schema_version_current"))) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            logger.error("Ошибка чтения версии схемы", e);
+            return -1;
+        }
+        logger.info("Текущая версия схемы: {}", version);
+
+        while (true) {
+            int next = version + 1;
+            String script = readScript(next);
+            if (script == null) {
+                break;
+            }
+            try {
+                String missing = missingModule(conn, script);
+                if (missing == null) {
+                    apply(conn, next, script);
+                } else {
+                    logger.warn("Миграция {} пропущена: модуль SQLite {} недоступен", next, missing);
+                    record(conn, next, describe(script) + " (пропущена: нет модуля " + missing + ")");
+                }
+            } catch (SQLException e) {
+                logger.error("Ошибка применения миграции {}, схема остаётся в версии {}",
+                        next, version, e);
+                break;
+            }
+            version = next;
+        }
+        return version;
+    }
+
+    /**
+     * Выполняет скрипт миграции и записывает его версию
+     * в одной транзакции.
+     */
+    private static void apply(Connection conn, int version, String script)
+            throws SQLException {
+        String description = describe(script);
+        logger.info("Применение миграции {}: {}", version, description);
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : split(script)) {
+                stmt.execute(sql);
+            }
+            insertVersion(conn, version, description);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Записывает версию пропущенной миграции.
+     */
+    private static void record(Connection conn, int version, String description)
+            throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(true);
+        try {
+            insertVersion(conn, version, description);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void insertVersion(Connection conn, int version, String description)
+            throws SQLException {
+        try (PreparedStatement insert = conn.prepareStatement(
+                StatementCatalog.sql("sql.schema_version_insert"))) {
+            insert.setInt(1, version);
+            insert.setString(2, description);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Возвращает первый модуль из строк {@code -- requires:} скрипта,
+     * которого нет в сборке SQLite.
+     *
+     * @return название модуля или {@code null}, если все модули доступны
+     */
+    private static String missingModule(Connection conn, String script) {
+        for (String module : requiredModules(script)) {
+            if (!isModuleAvailable(conn, module)) {
+                return module;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает модули виртуальных таблиц, объявленные в скрипте.
+     */
+    static List<String> requiredModules(String script) {
+        List<String> modules = new ArrayList<>();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.regionMatches(true, 0, REQUIRES_PREFIX, 0, REQUIRES_PREFIX.length())) {
+                String module = trimmed.substring(REQUIRES_PREFIX.length()).trim();
+                if (!module.matches("\\w+")) {
+                    throw new IllegalArgumentException("Некорректное название модуля: " + module);
+                }
+                modules.add(module);
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Проверяет, что соединение может создать виртуальную таблицу
+     * модуля: модуль может быть встроен в SQLite или загружен
+     * расширением, поэтому проверяется само создание временной таблицы.
+     *
+     * @param conn соединение с базой данных
+     * @param module название модуля, например {@code fts5}
+     * @return {@code true}, если модуль доступен
+     */
+    static boolean isModuleAvailable(Connection conn, String module) {
+        String probe = "temp." + module + "_probe";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE " + probe + " USING " + module + "(x)");
+            stmt.execute("DROP TABLE " + probe);
+            return true;
+        } catch (SQLException e) {
+            logger.debug("Модуль SQLite {} недоступен: {}", module, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Проверяет, что контрольные запросы используют ожидаемые индексы.
+     * <p>
+     * Для каждого свойства {@code plan.<индекс> = <запрос>} выполняется
+     * {@code EXPLAIN QUERY PLAN}; если в плане нет указанного индекса,
+     * в журнал выводится предупреждение.
+     * </p>
+     *
+     * @param conn соединение с базой данных
+     * @param properties свойства из {@code statements.properties}
+     * @return {@code true}, если все запросы используют свои индексы
+     */
+    public static boolean verifyIndexes(Connection conn, Properties properties) {
+        boolean ok = true;
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(PLAN_PREFIX)) {
+                continue;
+            }
+            String index = key.substring(PLAN_PREFIX.length());
+            String sql = properties.getProperty(key).trim();
+            try {
+                List<String> plan = explain(conn, sql);
+                boolean used = plan.stream().anyMatch(line -> line.contains(index));
+                if (used) {
+                    logger.debug("Запрос использует индекс {}: {}", index, plan);
+                } else {
+                    logger.warn("Запрос не использует индекс {}: {} -> {}", index, sql, plan);
+                    ok = false;
+                }
+            } catch (SQLException e) {
+                logger.warn("Не удалось получить план запроса {}", sql, e);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Возвращает план выполнения запроса.
+     *
+     * @param conn соединение с базой данных
+     * @param sql текст запроса без параметров
+     * @return строки плана из столбца {@code detail}
+     * @throws SQLException при ошибке разбора запроса
+     */
+    public static List<String> explain(Connection conn, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.add(rs.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Читает скрипт миграции из ресурсов.
+     *
+     * @param version номер версии
+     * @return текст скрипта или {@code null}, если миграции нет
+     */
+    private static String readScript(int version) {
+        try (InputStream is = SchemaMigrator.class.getResourceAsStream(
+                LOCATION + version + ".sql")) {
+            if (is == null) {
+                return null;
+            }
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Не удалось прочитать миграцию " + version, e);
+        }
+    }
+
+    /**
+     * Возвращает описание миграции из первой строки-комментария.
+     */
+    private static String describe(String script) {
+        String first = script.lines().findFirst().orElse("").trim();
+        return first.startsWith("--") ? first.substring(2).trim() : "";
+    }
+
+    /**
+     * Делит скрипт на отдельные выражения.
+     *
+     * @param script текст скрипта
+     * @return список выражений без завершающего {@code ;}
+     */
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean trigger = false;
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (current.isEmpty()) {
+                trigger = trimmed.toUpperCase().startsWith("CREATE TRIGGER");
+            }
+            current.append(line).append('\n');
+
+            boolean end = trigger
+                    ? trimmed.equalsIgnoreCase("END;")
+                    : trimmed.endsWith(";");
+            if (end) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
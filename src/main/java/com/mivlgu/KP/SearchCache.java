@@ -0,0 +1,126 @@
+package com.mivlgu.KP;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Кэш результатов поиска по подстроке фамилии или должности.
+ * <p>
+ * Помимо точного совпадения строки поиска кэш позволяет уточнить
+ * запрос без обращения к базе: если строка поиска содержит ранее
+ * найденную строку, её результат фильтруется в памяти, так как
+ * каждая строка, содержащая более длинную подстроку, содержит
+ * и более короткую.
+ * </p>
+ *
+ * Уточнение выполняется только для строк, которые
+ * {@link WorkerDao#findBySurnameOrGroupName} ищет по триграммному
+ * индексу без учёта регистра; короткие строки ищутся через
+ * {@code LIKE}, где регистр кириллицы учитывается.
+ * Кэш очищается при любом изменении данных.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class SearchCache {
+
+    /** Количество хранимых результатов по умолчанию */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /** Наибольший размер результата, который помещается в кэш */
+    public static final int MAX_RESULT_SIZE = 10_000;
+
+    /** Результаты по строкам поиска в порядке последнего использования */
+    private final Map<String, List<Worker>> entries;
+
+    /**
+     * Создаёт кэш с ёмкостью по умолчанию.
+     */
+    public SearchCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Создаёт кэш.
+     *
+     * @param capacity количество хранимых результатов
+     */
+    public SearchCache(int capacity) {
+        this.entries = new LinkedHashMap<>(capacity + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Worker>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Возвращает результат поиска из кэша: сохранённый для той же
+     * строки или отфильтрованный из результата более короткой строки.
+     *
+     * @param query строка поиска
+     * @return найденные работники или {@code null}, если нужен запрос к базе
+     */
+    public synchronized List<Worker> lookup(String query) {
+        List<Worker> exact = entries.get(query);
+        if (exact != null || !isCaseInsensitive(query)) {
+            return exact;
+        }
+
+        String needle = query.toLowerCase(Locale.ROOT);
+        String best = null;
+        for (String key : entries.keySet()) {
+            if (isCaseInsensitive(key) && needle.contains(key.toLowerCase(Locale.ROOT))
+                    && (best == null || key.length() > best.length())) {
+                best = key;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        List<Worker> narrowed = new ArrayList<>();
+        for (Worker worker : entries.get(best)) {
+            if (contains(worker.getSurname(), needle) || contains(worker.getPosition(), needle)) {
+                narrowed.add(worker);
+            }
+        }
+        entries.put(query, narrowed);
+        return narrowed;
+    }
+
+    /**
+     * Сохраняет результат поиска, если он не слишком велик.
+     *
+     * @param query строка поиска
+     * @param result найденные работники
+     */
+    public synchronized void put(String query, Collection<Worker> result) {
+        if (result.size() <= MAX_RESULT_SIZE) {
+            entries.put(query, List.copyOf(result));
+        }
+    }
+
+    /**
+     * Удаляет все сохранённые результаты.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Проверяет, выполняется ли поиск по строке без учёта регистра.
+     */
+    private static boolean isCaseInsensitive(String query) {
+        return dbCon.isFullTextSearchAvailable()
+                && query.codePointCount(0, query.length()) >= WorkerDao.FTS_MIN_LENGTH;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
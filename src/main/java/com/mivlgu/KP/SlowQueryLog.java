@@ -0,0 +1,366 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Журнал медленных запросов {@link WorkerDao}.
+ * <p>
+ * Запрос, выполнявшийся дольше порога {@code slowlog.threshold_ms},
+ * записывается в отдельный лог {@code com.mivlgu.KP.SlowQueries}
+ * (файл {@code logs/slow-queries.log}, см. {@code logback.xml})
+ * вместе с параметрами, временем выполнения и планом
+ * {@code EXPLAIN QUERY PLAN}. Полный просмотр таблицы
+ * (например, поиск по {@code LIKE '%…%'}) отмечается в записи.
+ * </p>
+ *
+ * План получается в отдельном фоновом потоке через соединение
+ * для чтения, поэтому медленный запрос не задерживается ещё больше,
+ * и запоминается для каждого текста выражения. Кроме лога,
+ * медленные запросы суммируются по тексту выражения для окна
+ * диагностики: {@link #top(int)} возвращает выражения
+ * с наибольшим суммарным временем, {@link #recent()} — последние запросы.
+ *
+ * Порог {@code 0} записывает все запросы, отрицательный выключает журнал.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class SlowQueryLog {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(SlowQueryLog.class);
+
+    /** Журнал медленных запросов, выводится в отдельный файл */
+    private static final Logger slowLog =
+            LoggerFactory.getLogger("com.mivlgu.KP.SlowQueries");
+
+    /** Порог по умолчанию, мс */
+    public static final long DEFAULT_THRESHOLD_MS = 100;
+
+    /** Наибольшее количество различных выражений в сводке и кэше планов */
+    private static final int MAX_STATEMENTS = 1000;
+
+    /** Количество хранимых последних медленных запросов */
+    private static final int RECENT_SIZE = 200;
+
+    /** Наибольшая длина очереди запросов на получение плана */
+    private static final int EXPLAIN_QUEUE = 100;
+
+    /** Строка плана, означающая просмотр всей таблицы */
+    private static final Pattern FULL_SCAN = Pattern.compile("SCAN (TABLE )?\\w+");
+
+    /** Порог в наносекундах; отрицательный — журнал выключен */
+    private static volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_THRESHOLD_MS);
+
+    /** Сводка по тексту выражения */
+    private static final ConcurrentMap<String, Summary> statements = new ConcurrentHashMap<>();
+
+    /** Планы по тексту выражения */
+    private static final ConcurrentMap<String, Plan> plans = new ConcurrentHashMap<>();
+
+    /** Последние медленные запросы, новые в начале */
+    private static final Deque<SlowQuery> recent = new ArrayDeque<>();
+
+    /** Поток получения планов и записи в лог */
+    private static final ThreadPoolExecutor explainer = new ThreadPoolExecutor(
+            1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(EXPLAIN_QUEUE), r -> {
+        Thread thread = new Thread(r, "slow-query-explain");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SlowQueryLog() {
+    }
+
+    /**
+     * Устанавливает порог из свойства {@code slowlog.threshold_ms}.
+     *
+     * @param properties конфигурация приложения
+     */
+    public static void configure(Properties properties) {
+        String value = properties.getProperty("slowlog.threshold_ms");
+        if (value != null && !value.isBlank()) {
+            setThresholdMillis(Long.parseLong(value.trim()));
+        }
+    }
+
+    /**
+     * Устанавливает порог.
+     *
+     * @param millis порог, мс; {@code 0} — все запросы, отрицательный — выключить
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = millis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+        logger.info("Порог журнала медленных запросов: {} мс", millis);
+    }
+
+    /**
+     * Возвращает порог.
+     *
+     * @return порог, мс; отрицательный, если журнал выключен
+     */
+    public static long getThresholdMillis() {
+        long nanos = thresholdNanos;
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * Проверяет, превышает ли время выполнения порог журнала.
+     *
+     * @param nanos время выполнения, нс
+     * @return {@code true}, если запрос нужно записать
+     */
+    public static boolean isSlow(long nanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && nanos >= threshold;
+    }
+
+    /**
+     * Учитывает выполненный запрос, если он медленнее порога.
+     *
+     * @param operation метод DAO
+     * @param sql текст выражения
+     * @param parameters значения параметров или {@code null} для пакетных операций
+     * @param nanos время выполнения, нс
+     * @param rows количество строк
+     */
+    public static void record(String operation, String sql, List<?> parameters,
+                              long nanos, long rows) {
+        if (!isSlow(nanos)) {
+            return;
+        }
+        SlowQuery query = new SlowQuery(LocalDateTime.now(), operation, sql,
+                parameters == null ? "(пакет)" : String.valueOf(parameters), nanos / 1e6, rows);
+
+        Summary statement = statements.get(sql);
+        if (statement == null && statements.size() < MAX_STATEMENTS) {
+            statement = statements.computeIfAbsent(sql, key -> new Summary(operation, key));
+        }
+        if (statement != null) {
+            statement.add(nanos, query.parameters());
+        }
+        synchronized (recent) {
+            recent.addFirst(query);
+            if (recent.size() > RECENT_SIZE) {
+                recent.removeLast();
+            }
+        }
+
+        if (!slowLog.isWarnEnabled()) {
+            return;
+        }
+        try {
+            explainer.execute(() -> log(query, parameters));
+        } catch (RejectedExecutionException e) {
+            // очередь заполнена — записываем без плана, не задерживая запрос
+            log(query, plans.get(sql));
+        }
+    }
+
+    private static void log(SlowQuery query, List<?> parameters) {
+        log(query, plan(query.sql(), parameters));
+    }
+
+    private static void log(SlowQuery query, Plan plan) {
+        slowLog.warn("{} мс, {}, строк: {}{}\n  SQL: {}\n  Параметры: {}\n  План:\n{}",
+                String.format("%.1f", query.millis()), query.operation(), query.rows(),
+                plan != null && plan.fullScan() ? ", ПОЛНЫЙ ПРОСМОТР ТАБЛИЦЫ" : "",
+                query.sql(), query.parameters(),
+                plan == null || plan.text().isEmpty() ? "    (нет)" : plan.text().indent(4).stripTrailing());
+    }
+
+    /**
+     * Возвращает план выражения, получая его при первом обращении.
+     *
+     * @param sql текст выражения
+     * @param parameters значения параметров или {@code null}
+     * @return план или {@code null}, если его не удалось получить
+     */
+    public static Plan plan(String sql, List<?> parameters) {
+        Plan plan = plans.get(sql);
+        if (plan != null) {
+            return plan;
+        }
+        plan = explain(sql, parameters);
+        if (plan != null && plans.size() < MAX_STATEMENTS) {
+            plans.put(sql, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Выполняет {@code EXPLAIN QUERY PLAN} и строит дерево плана
+     * с отступами по вложенности шагов.
+     */
+    private static Plan explain(String sql, List<?> parameters) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Connection conn = lease.get();
+            try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                if (parameters != null && parameters.size() == stmt.getParameterMetaData().getParameterCount()) {
+                    for (int i = 0; i < parameters.size(); i++) {
+                        stmt.setObject(i + 1, parameters.get(i));
+                    }
+                }
+                StringBuilder text = new StringBuilder();
+                Map<Integer, Integer> depth = new HashMap<>();
+                boolean fullScan = false;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int level = depth.getOrDefault(rs.getInt("parent"), -1) + 1;
+                        depth.put(rs.getInt("id"), level);
+                        String detail = rs.getString("detail");
+                        fullScan |= FULL_SCAN.matcher(detail).matches();
+                        text.append("  ".repeat(level)).append(detail).append('\n');
+                    }
+                }
+                return new Plan(text.toString().stripTrailing(), fullScan);
+            }
+        } catch (SQLException e) {
+            logger.warn("Не удалось получить план запроса: {}", sql, e);
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает выражения с наибольшим суммарным временем медленных запросов.
+     *
+     * @param n количество выражений
+     * @return выражения по убыванию суммарного времени
+     */
+    public static List<Summary> top(int n) {
+        List<Summary> list = new ArrayList<>(statements.values());
+        list.sort(Comparator.comparingDouble(Summary::getTotalMillis).reversed());
+        return list.size() > n ? new ArrayList<>(list.subList(0, n)) : list;
+    }
+
+    /**
+     * Возвращает последние медленные запросы, начиная с самого нового.
+     *
+     * @return последние медленные запросы
+     */
+    public static List<SlowQuery> recent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    /**
+     * Очищает сводку и список последних запросов. Планы сохраняются.
+     */
+    public static void reset() {
+        statements.clear();
+        synchronized (recent) {
+            recent.clear();
+        }
+    }
+
+    /**
+     * Медленный запрос.
+     *
+     * @param time момент завершения
+     * @param operation метод DAO
+     * @param sql текст выражения
+     * @param parameters значения параметров
+     * @param millis время выполнения, мс
+     * @param rows количество строк
+     */
+    public record SlowQuery(LocalDateTime time, String operation, String sql,
+                            String parameters, double millis, long rows) {
+    }
+
+    /**
+     * План выражения.
+     *
+     * @param text строки плана с отступами по вложенности
+     * @param fullScan признак полного просмотра таблицы
+     */
+    public record Plan(String text, boolean fullScan) {
+    }
+
+    /**
+     * Сводка медленных запросов одного выражения.
+     */
+    public static final class Summary {
+
+        private final String operation;
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile String lastParameters;
+
+        Summary(String operation, String sql) {
+            this.operation = operation;
+            this.sql = sql;
+        }
+
+        void add(long nanos, String parameters) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            lastParameters = parameters;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        public String getLastParameters() {
+            return lastParameters;
+        }
+
+        /**
+         * Возвращает план выражения, если он уже получен.
+         *
+         * @return план или {@code null}
+         */
+        public Plan getPlan() {
+            return plans.get(sql);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Каталог SQL-запросов приложения.
+ * <p>
+ * Тексты запросов загружаются из {@code statements.properties}
+ * один раз при запуске приложения. Подготовленные выражения
+ * ({@link PreparedStatement}) хранятся отдельно для каждого соединения
+ * и переиспользуются между вызовами DAO, поэтому SQLite не разбирает
+ * и не планирует один и тот же запрос повторно.
+ * </p>
+ *
+ * Выражения, полученные из каталога, принадлежат каталогу:
+ * вызывающий код закрывает только свои {@link java.sql.ResultSet},
+ * но не сами выражения.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public final class StatementCatalog {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(StatementCatalog.class);
+
+    /** Префикс ключей SQL-запросов в файле свойств */
+    private static final String SQL_PREFIX = "sql.";
+
+    /** Префикс ключей кэша для запросов, составленных во время работы */
+    private static final String QUERY_PREFIX = "query:";
+
+    /** Тексты запросов по ключу */
+    private static final Map<String, String> queries =
+            new ConcurrentHashMap<>();
+
+    /** Подготовленные выражения по соединениям */
+    private static final Map<Connection, Map<String, PreparedStatement>> cache =
+            new ConcurrentHashMap<>();
+
+    /** Количество обращений, обслуженных из кэша */
+    private static final LongAdder hits = new LongAdder();
+
+    /** Количество обращений, потребовавших подготовки выражения */
+    private static final LongAdder misses = new LongAdder();
+
+    private StatementCatalog() {
+    }
+
+    /**
+     * Загружает тексты SQL-запросов из набора свойств.
+     * Повторная загрузка заменяет ранее загруженные запросы.
+     *
+     * @param properties свойства из {@code statements.properties}
+     */
+    public static void load(Properties properties) {
+        queries.clear();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(SQL_PREFIX)) {
+                queries.put(key, properties.getProperty(key).trim());
+            }
+        }
+        logger.info("Каталог SQL-запросов загружен, запросов: {}", queries.size());
+    }
+
+    /**
+     * Возвращает текст SQL-запроса по ключу.
+     *
+     * @param key ключ запроса, например {@code sql.find_by_id}
+     * @return текст запроса
+     * @throws IllegalStateException если запрос отсутствует в каталоге
+     */
+    public static String sql(String key) {
+        String sql = queries.get(key);
+        if (sql == null) {
+            throw new IllegalStateException("SQL-запрос не найден в каталоге: " + key);
+        }
+        return sql;
+    }
+
+    /**
+     * Возвращает подготовленное выражение для запроса из каталога.
+     *
+     * @param connection соединение с базой данных
+     * @param key ключ запроса
+     * @return подготовленное выражение, принадлежащее каталогу
+     * @throws SQLException при ошибке подготовки выражения
+     */
+    public static PreparedStatement prepare(Connection connection, String key)
+            throws SQLException {
+        return prepare(connection, key, false);
+    }
+
+    /**
+     * Возвращает подготовленное выражение для запроса из каталога.
+     *
+     * @param connection соединение с базой данных
+     * @param key ключ запроса
+     * @param returnKeys {@code true}, если выражение должно
+     *                   возвращать сгенерированные ключи
+     * @return подготовленное выражение, принадлежащее каталогу
+     * @throws SQLException при ошибке подготовки выражения
+     */
+    public static PreparedStatement prepare(Connection connection, String key,
+                                            boolean returnKeys) throws SQLException {
+        Map<String, PreparedStatement> statements = cache.computeIfAbsent(
+                connection, c -> new ConcurrentHashMap<>());
+
+        String cacheKey = returnKeys ? key + "#keys" : key;
+        PreparedStatement stmt = statements.get(cacheKey);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            return stmt;
+        }
+
+        misses.increment();
+        String sql = sql(key);
+        stmt = returnKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+        statements.put(cacheKey, stmt);
+        logger.debug("Подготовлено выражение {}", key);
+        return stmt;
+    }
+
+    /**
+     * Возвращает подготовленное выражение для запроса, составленного
+     * во время работы ({@link Query}). Выражения кэшируются по тексту
+     * запроса, поэтому одинаковые по форме запросы подготавливаются
+     * один раз для каждого соединения.
+     *
+     * @param connection соединение с базой данных
+     * @param sql текст запроса с параметрами
+     * @return подготовленное выражение, принадлежащее каталогу
+     * @throws SQLException при ошибке подготовки выражения
+     */
+    public static PreparedStatement prepareQuery(Connection connection, String sql)
+            throws SQLException {
+        Map<String, PreparedStatement> statements = cache.computeIfAbsent(
+                connection, c -> new ConcurrentHashMap<>());
+
+        String cacheKey = QUERY_PREFIX + sql;
+        PreparedStatement stmt = statements.get(cacheKey);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.increment();
+            return stmt;
+        }
+
+        misses.increment();
+        stmt = connection.prepareStatement(sql);
+        statements.put(cacheKey, stmt);
+        logger.debug("Подготовлен запрос: {}", sql);
+        return stmt;
+    }
+
+    /**
+     * Закрывает и удаляет из кэша все выражения соединения.
+     * Вызывается перед закрытием соединения.
+     *
+     * @param connection соединение с базой данных
+     */
+    public static void release(Connection connection) {
+        Map<String, PreparedStatement> statements = cache.remove(connection);
+        if (statements == null) {
+            return;
+        }
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                logger.warn("Не удалось закрыть подготовленное выражение", e);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество обращений, обслуженных из кэша.
+     *
+     * @return число попаданий
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Возвращает количество обращений, потребовавших подготовки выражения.
+     *
+     * @return число промахов
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Возвращает долю обращений, обслуженных из кэша.
+     *
+     * @return доля попаданий от 0 до 1
+     */
+    public static double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Сбрасывает счётчики попаданий и промахов.
+     */
+    public static void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+}
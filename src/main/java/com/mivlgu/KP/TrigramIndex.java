@@ -0,0 +1,510 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Триграммный инвертированный индекс фамилий и должностей в памяти.
+ * <p>
+ * Каждой последовательности из трёх символов (без учёта регистра)
+ * соответствует упорядоченный список идентификаторов работников,
+ * в фамилии или должности которых она встречается. Кандидаты
+ * для поиска подстроки — пересечение списков всех триграмм строки
+ * поиска ({@link #candidates}).
+ * </p>
+ *
+ * Редкие триграммы хранятся массивами {@code int[]}, частые —
+ * битовыми картами, которые при плотном заполнении в несколько раз
+ * компактнее массива. Пересечение начинается с самого короткого списка.
+ *
+ * Индекс заполняется из базы страницами ({@link #load}) и обновляется
+ * по уведомлениям {@link DaoListener}. Растущий массив переводится
+ * в битовую карту, как только она становится компактнее.
+ * При изменении и удалении старые записи списков не удаляются,
+ * поэтому кандидаты — надмножество результата и должны проверяться
+ * по актуальным данным. Количество таких записей возвращает
+ * {@link #getStaleCount()}; когда оно превышает {@link #REBUILD_STALE_RATIO}
+ * проиндексированных работников, индекс перестраивается в фоновом потоке.
+ *
+ * Загрузка и перестроение заполняют новый индекс без блокировки поиска.
+ * Уведомления, полученные за это время, применяются к текущему индексу
+ * и повторяются на новом перед заменой.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class TrigramIndex implements DaoListener<Worker, Integer> {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(TrigramIndex.class);
+
+    /** Длина индексируемой последовательности символов */
+    public static final int GRAM_LENGTH = 3;
+
+    /** Количество строк, загружаемых из базы за один запрос */
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    /**
+     * Список переводится в битовую карту, когда занимает больше места:
+     * массив — 32 бита на элемент, карта — один бит на идентификатор.
+     */
+    private static final int BITMAP_RATIO = 32;
+
+    /** Доля устаревших записей, после которой индекс перестраивается */
+    public static final double REBUILD_STALE_RATIO = 0.25;
+
+    /** Наименьшее количество устаревших записей для перестроения */
+    private static final int REBUILD_MIN_STALE = 1_000;
+
+    private static final int[] NONE = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Списки идентификаторов по триграммам */
+    private Map<Long, Postings> postings = new HashMap<>();
+
+    /** Наибольший проиндексированный идентификатор */
+    private int maxId;
+
+    /** Количество проиндексированных работников */
+    private int documents;
+
+    /** Количество изменённых и удалённых работников с момента загрузки */
+    private int stale;
+
+    /** DAO последней загрузки, из которого индекс перестраивается */
+    private Dao<Worker, Integer> source;
+
+    /**
+     * Уведомления, полученные во время загрузки, для повтора
+     * на новом индексе; {@code null}, если загрузка не идёт
+     */
+    private List<Consumer<TrigramIndex>> replay;
+
+    /** Признак запущенного фонового перестроения */
+    private boolean rebuilding;
+
+    /**
+     * Загружает всех работников из базы данных, заменяя текущее содержимое.
+     *
+     * @param dao объект доступа к данным
+     */
+    public void load(Dao<Worker, Integer> dao) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (replay != null) {
+                throw new IllegalStateException("Загрузка индекса уже выполняется");
+            }
+            source = dao;
+            replay = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TrigramIndex fresh = new TrigramIndex();
+        try {
+            fresh.fill(dao);
+        } catch (RuntimeException e) {
+            // уведомления уже применены к текущему индексу, он остаётся в работе
+            lock.writeLock().lock();
+            try {
+                replay = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = replay.size();
+            for (Consumer<TrigramIndex> change : replay) {
+                change.accept(fresh);
+            }
+            replay = null;
+            postings = fresh.postings;
+            maxId = fresh.maxId;
+            documents = fresh.documents;
+            stale = fresh.stale;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Триграммный индекс загружен: {} работников, {} триграмм за {} мс, повторено уведомлений {}",
+                documents, postings.size(), (System.nanoTime() - start) / 1_000_000, replayed);
+    }
+
+    /**
+     * Заполняет пустой индекс, не доступный другим потокам.
+     */
+    private void fill(Dao<Worker, Integer> dao) {
+        int afterId = 0;
+        List<Worker> page;
+        do {
+            page = dao.findPage(afterId, LOAD_PAGE_SIZE);
+            for (Worker worker : page) {
+                add(worker);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        for (Postings list : postings.values()) {
+            list.optimize(maxId);
+        }
+    }
+
+    /**
+     * Возвращает идентификаторы работников, в фамилии или должности
+     * которых могут содержаться все триграммы строки поиска.
+     *
+     * @param value строка поиска не короче {@link #GRAM_LENGTH} символов
+     * @return упорядоченные идентификаторы кандидатов
+     */
+    public int[] candidates(String value) {
+        long[] grams = grams(value.toLowerCase(Locale.ROOT));
+        if (grams.length == 0) {
+            throw new IllegalArgumentException("Строка поиска короче " + GRAM_LENGTH + " символов");
+        }
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return NONE;
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+            return intersect(lists);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество проиндексированных работников.
+     *
+     * @return количество работников
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество изменённых и удалённых работников,
+     * устаревшие записи которых остались в индексе.
+     *
+     * @return количество устаревших записей
+     */
+    public int getStaleCount() {
+        lock.readLock().lock();
+        try {
+            return stale;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценивает объём памяти индекса в байтах.
+     *
+     * @return объём списков и таблицы триграмм
+     */
+    public long footprint() {
+        lock.readLock().lock();
+        try {
+            // ключ Long, запись HashMap и объект списка
+            long bytes = 72L * postings.size();
+            for (Postings list : postings.values()) {
+                bytes += list.bytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void inserted(Collection<Worker> workers) {
+        lock.writeLock().lock();
+        try {
+            insert(workers);
+            if (replay != null) {
+                replay.add(index -> index.insert(workers));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updated(Collection<Worker> workers) {
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            update(workers);
+            if (replay != null) {
+                replay.add(index -> index.update(workers));
+            }
+            rebuild = scheduleRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rebuild) {
+            startRebuild();
+        }
+    }
+
+    @Override
+    public void deleted(Collection<Integer> ids) {
+        boolean rebuild;
+        lock.writeLock().lock();
+        try {
+            stale += ids.size();
+            if (replay != null) {
+                replay.add(index -> index.stale += ids.size());
+            }
+            rebuild = scheduleRebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (rebuild) {
+            startRebuild();
+        }
+    }
+
+    private void insert(Collection<Worker> workers) {
+        for (Worker worker : workers) {
+            add(worker);
+        }
+    }
+
+    private void update(Collection<Worker> workers) {
+        for (Worker worker : workers) {
+            // новые триграммы добавляются, старые отсеиваются проверкой
+            index(worker.getId(), worker.getSurname());
+            index(worker.getId(), worker.getPosition());
+            stale++;
+        }
+    }
+
+    /**
+     * Отмечает, что индекс нужно перестроить, если устаревших записей
+     * стало слишком много. Вызывается под блокировкой записи.
+     *
+     * @return {@code true}, если перестроение нужно запустить
+     */
+    private boolean scheduleRebuild() {
+        if (rebuilding || replay != null || source == null || stale < REBUILD_MIN_STALE
+                || stale < documents * REBUILD_STALE_RATIO) {
+            return false;
+        }
+        rebuilding = true;
+        return true;
+    }
+
+    /**
+     * Перестраивает индекс в фоновом потоке, чтобы не задерживать
+     * запись, уведомление о которой привело к перестроению.
+     */
+    private void startRebuild() {
+        Dao<Worker, Integer> dao;
+        lock.readLock().lock();
+        try {
+            dao = source;
+            logger.info("Перестроение триграммного индекса: устаревших записей {} из {}", stale, documents);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                load(dao);
+            } catch (RuntimeException e) {
+                logger.error("Ошибка перестроения триграммного индекса", e);
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }, "trigram-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void add(Worker worker) {
+        maxId = Math.max(maxId, worker.getId());
+        index(worker.getId(), worker.getSurname());
+        index(worker.getId(), worker.getPosition());
+        documents++;
+    }
+
+    private void index(int id, String value) {
+        if (value == null) {
+            return;
+        }
+        for (long gram : grams(value.toLowerCase(Locale.ROOT))) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(id, maxId);
+        }
+    }
+
+    /**
+     * Пересекает списки, упорядоченные по возрастанию размера:
+     * идентификаторы самого короткого проверяются по остальным.
+     */
+    private static int[] intersect(Postings[] lists) {
+        int[] result = lists[0].toArray();
+        int[] cursors = new int[lists.length];
+        int count = 0;
+        for (int id : result) {
+            boolean all = true;
+            for (int i = 1; i < lists.length && all; i++) {
+                all = lists[i].contains(id, cursors, i);
+            }
+            if (all) {
+                result[count++] = id;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Различные триграммы строки, упакованные в {@code long}
+     * по 21 бит на кодовую точку.
+     */
+    static long[] grams(String value) {
+        int[] points = value.codePoints().toArray();
+        if (points.length < GRAM_LENGTH) {
+            return new long[0];
+        }
+        long[] grams = new long[points.length - GRAM_LENGTH + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) points[i] << 42) | ((long) points[i + 1] << 21) | points[i + 2];
+        }
+        return Arrays.stream(grams).distinct().toArray();
+    }
+
+    /**
+     * Упорядоченный список идентификаторов: массив или битовая карта.
+     */
+    static class Postings {
+
+        private int[] ids = new int[2];
+        private int size;
+        private BitSet bits;
+
+        void add(int id) {
+            add(id, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Добавляет идентификатор. Заполненный массив вместо
+         * увеличения переводится в битовую карту, если она компактнее.
+         */
+        void add(int id, int maxId) {
+            if (bits == null && size == ids.length) {
+                optimize(maxId);
+            }
+            if (bits != null) {
+                if (!bits.get(id)) {
+                    bits.set(id);
+                    size++;
+                }
+                return;
+            }
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insert(-pos - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        private void insert(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        /**
+         * Выбирает компактное представление и освобождает запас массива.
+         * Вызывается после загрузки и при заполнении массива.
+         */
+        void optimize(int maxId) {
+            if (bits == null && (long) size * BITMAP_RATIO > maxId) {
+                bits = new BitSet(maxId + 1);
+                for (int i = 0; i < size; i++) {
+                    bits.set(ids[i]);
+                }
+                ids = null;
+            } else if (bits == null && ids.length > size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+
+        int cardinality() {
+            return size;
+        }
+
+        int[] toArray() {
+            return bits != null ? bits.stream().toArray() : Arrays.copyOf(ids, size);
+        }
+
+        void forEach(IntConsumer action) {
+            if (bits != null) {
+                for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                    action.accept(id);
+                }
+            } else {
+                for (int i = 0; i < size; i++) {
+                    action.accept(ids[i]);
+                }
+            }
+        }
+
+        /**
+         * Проверяет наличие идентификатора. Идентификаторы проверяются
+         * по возрастанию, поэтому поиск в массиве продолжается
+         * с позиции предыдущего.
+         */
+        boolean contains(int id, int[] cursors, int slot) {
+            if (bits != null) {
+                return bits.get(id);
+            }
+            int pos = Arrays.binarySearch(ids, cursors[slot], size, id);
+            cursors[slot] = pos >= 0 ? pos + 1 : -pos - 1;
+            return pos >= 0;
+        }
+
+        long bytes() {
+            return bits != null ? bits.size() / 8 + 16 : 16 + 4L * ids.length;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.mivlgu.KP;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JDK Flight Recorder: действие интерфейса от начала
+ * до отображения результата.
+ * <p>
+ * Для фоновых действий (обновление таблицы, поиск) событие начинается
+ * в потоке JavaFX при запуске действия и завершается после компоновки
+ * сцены с новым результатом. Поле {@code backgroundTime} — время
+ * от начала до получения результата фонового запроса; остальное
+ * время занимают очередь потока JavaFX, обновление таблицы и компоновка.
+ * Отменённые действия не записываются.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+@Name("com.mivlgu.KP.UiAction")
+@Label("UI Action")
+@Category({"Lab3", "JavaFX"})
+@Description("Действие интерфейса от запуска до отображения результата")
+public class UiActionEvent extends Event {
+
+    @Label("Action")
+    @Description("Метод, выполняющий действие")
+    String action;
+
+    @Label("Detail")
+    @Description("Параметр действия, например строка поиска")
+    String detail;
+
+    @Label("Rows")
+    @Description("Количество отображённых или изменённых строк")
+    long rows;
+
+    @Label("Background Time")
+    @Description("Время до получения результата фонового запроса")
+    @Timespan(Timespan.NANOSECONDS)
+    long backgroundTime;
+
+    /** Момент начала по {@link System#nanoTime()} */
+    private transient long startNanos;
+
+    /**
+     * Создаёт событие и начинает отсчёт времени.
+     *
+     * @param action метод, выполняющий действие
+     * @param detail параметр действия или {@code null}
+     * @return начатое событие
+     */
+    static UiActionEvent start(String action, String detail) {
+        UiActionEvent event = new UiActionEvent();
+        event.action = action;
+        event.detail = detail;
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Отмечает получение результата фонового запроса.
+     *
+     * @param rows количество строк результата
+     */
+    void resultReady(long rows) {
+        this.rows = rows;
+        this.backgroundTime = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Завершает событие и записывает его, если оно включено
+     * и превышает порог длительности.
+     */
+    void finish() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
@@ -10,8 +10,11 @@ import javafx.beans.property.StringProperty;
  * <p>
  * Используется для хранения и отображения данных о работниках
  * в пользовательском интерфейсе JavaFX.
- * Все поля реализованы с использованием JavaFX-свойств
- * для поддержки двустороннего связывания данных.
+ * Значения хранятся в обычных полях, а JavaFX-свойства для
+ * двустороннего связывания создаются только при первом обращении
+ * к методу {@code xxxProperty()}, например из фабрики ячеек таблицы
+ * или диалога редактирования. После создания свойства значение
+ * хранится в нём, поэтому геттеры и сеттеры работают согласованно.
  * </p>
  *
  * Класс используется в слоях Controller и DAO.
@@ -22,25 +25,46 @@ import javafx.beans.property.StringProperty;
 public class Worker {
 
     /** Идентификатор работника */
-    private IntegerProperty id;
+    private int id;
+
+    /** JavaFX-свойство поля id, создаётся при первом обращении */
+    private IntegerProperty idProperty;
 
     /** Имя работника */
-    private StringProperty name;
+    private String name;
+
+    /** JavaFX-свойство поля name, создаётся при первом обращении */
+    private StringProperty nameProperty;
 
     /** Фамилия работника */
-    private StringProperty surname;
+    private String surname;
+
+    /** JavaFX-свойство поля surname, создаётся при первом обращении */
+    private StringProperty surnameProperty;
 
     /** Отчество работника */
-    private StringProperty lastname;
+    private String lastname;
+
+    /** JavaFX-свойство поля lastname, создаётся при первом обращении */
+    private StringProperty lastnameProperty;
 
     /** Возраст работника */
-    private IntegerProperty age;
+    private int age;
+
+    /** JavaFX-свойство поля age, создаётся при первом обращении */
+    private IntegerProperty ageProperty;
 
     /** Город проживания */
-    private StringProperty city;
+    private String city;
+
+    /** JavaFX-свойство поля city, создаётся при первом обращении */
+    private StringProperty cityProperty;
 
     /** Должность работника */
-    private StringProperty position;
+    private String position;
+
+    /** JavaFX-свойство поля position, создаётся при первом обращении */
+    private StringProperty positionProperty;
 
     /**
      * Конструктор с параметрами.
@@ -58,13 +82,13 @@ public class Worker {
                   String lastname, int age,
                   String city, String position) {
 
-        this.id = new SimpleIntegerProperty(id);
-        this.name = new SimpleStringProperty(name);
-        this.surname = new SimpleStringProperty(surname);
-        this.lastname = new SimpleStringProperty(lastname);
-        this.age = new SimpleIntegerProperty(age);
-        this.city = new SimpleStringProperty(city);
-        this.position = new SimpleStringProperty(position);
+        this.id = id;
+        this.name = name;
+        this.surname = surname;
+        this.lastname = lastname;
+        this.age = age;
+        this.city = city;
+        this.position = position;
     }
 
     /**
@@ -81,7 +105,7 @@ public class Worker {
      * @return имя работника
      */
     public String getName() {
-        return name.get();
+        return nameProperty != null ? nameProperty.get() : name;
     }
 
     /**
@@ -90,7 +114,10 @@ public class Worker {
      * @return свойство имени
      */
     public StringProperty nameProperty() {
-        return name;
+        if (nameProperty == null) {
+            nameProperty = new SimpleStringProperty(this, "name", name);
+        }
+        return nameProperty;
     }
 
     /**
@@ -99,7 +126,11 @@ public class Worker {
      * @param name имя работника
      */
     public void setName(String name) {
-        this.name.set(name);
+        if (nameProperty != null) {
+            nameProperty.set(name);
+        } else {
+            this.name = name;
+        }
     }
 
     /**
@@ -108,7 +139,7 @@ public class Worker {
      * @return фамилия работника
      */
     public String getSurname() {
-        return surname.get();
+        return surnameProperty != null ? surnameProperty.get() : surname;
     }
 
     /**
@@ -117,7 +148,10 @@ public class Worker {
      * @return свойство фамилии
      */
     public StringProperty surnameProperty() {
-        return surname;
+        if (surnameProperty == null) {
+            surnameProperty = new SimpleStringProperty(this, "surname", surname);
+        }
+        return surnameProperty;
     }
 
     /**
@@ -126,7 +160,11 @@ public class Worker {
      * @param surname фамилия работника
      */
     public void setSurname(String surname) {
-        this.surname.set(surname);
+        if (surnameProperty != null) {
+            surnameProperty.set(surname);
+        } else {
+            this.surname = surname;
+        }
     }
 
     /**
@@ -135,7 +173,7 @@ public class Worker {
      * @return отчество работника
      */
     public String getLastname() {
-        return lastname.get();
+        return lastnameProperty != null ? lastnameProperty.get() : lastname;
     }
 
     /**
@@ -144,7 +182,10 @@ public class Worker {
      * @return свойство отчества
      */
     public StringProperty lastnameProperty() {
-        return lastname;
+        if (lastnameProperty == null) {
+            lastnameProperty = new SimpleStringProperty(this, "lastname", lastname);
+        }
+        return lastnameProperty;
     }
 
     /**
@@ -153,7 +194,11 @@ public class Worker {
      * @param lastname отчество работника
      */
     public void setLastname(String lastname) {
-        this.lastname.set(lastname);
+        if (lastnameProperty != null) {
+            lastnameProperty.set(lastname);
+        } else {
+            this.lastname = lastname;
+        }
     }
 
     /**
@@ -162,7 +207,7 @@ public class Worker {
      * @return возраст
      */
     public int getAge() {
-        return age.get();
+        return ageProperty != null ? ageProperty.get() : age;
     }
 
     /**
@@ -171,7 +216,10 @@ public class Worker {
      * @return свойство возраста
      */
     public IntegerProperty ageProperty() {
-        return age;
+        if (ageProperty == null) {
+            ageProperty = new SimpleIntegerProperty(this, "age", age);
+        }
+        return ageProperty;
     }
 
     /**
@@ -180,7 +228,11 @@ public class Worker {
      * @param age возраст
      */
     public void setAge(int age) {
-        this.age.set(age);
+        if (ageProperty != null) {
+            ageProperty.set(age);
+        } else {
+            this.age = age;
+        }
     }
 
     /**
@@ -189,7 +241,7 @@ public class Worker {
      * @return город проживания
      */
     public String getCity() {
-        return city.get();
+        return cityProperty != null ? cityProperty.get() : city;
     }
 
     /**
@@ -198,7 +250,10 @@ public class Worker {
      * @return свойство города
      */
     public StringProperty cityProperty() {
-        return city;
+        if (cityProperty == null) {
+            cityProperty = new SimpleStringProperty(this, "city", city);
+        }
+        return cityProperty;
     }
 
     /**
@@ -207,7 +262,11 @@ public class Worker {
      * @param city город проживания
      */
     public void setCity(String city) {
-        this.city.set(city);
+        if (cityProperty != null) {
+            cityProperty.set(city);
+        } else {
+            this.city = city;
+        }
     }
 
     /**
@@ -216,7 +275,7 @@ public class Worker {
      * @return должность
      */
     public String getPosition() {
-        return position.get();
+        return positionProperty != null ? positionProperty.get() : position;
     }
 
     /**
@@ -225,7 +284,10 @@ public class Worker {
      * @return свойство должности
      */
     public StringProperty positionProperty() {
-        return position;
+        if (positionProperty == null) {
+            positionProperty = new SimpleStringProperty(this, "position", position);
+        }
+        return positionProperty;
     }
 
     /**
@@ -234,7 +296,11 @@ public class Worker {
      * @param position должность
      */
     public void setPosition(String position) {
-        this.position.set(position);
+        if (positionProperty != null) {
+            positionProperty.set(position);
+        } else {
+            this.position = position;
+        }
     }
 
     /**
@@ -243,7 +309,7 @@ public class Worker {
      * @return идентификатор
      */
     public int getId() {
-        return id.get();
+        return idProperty != null ? idProperty.get() : id;
     }
 
     /**
@@ -252,7 +318,10 @@ public class Worker {
      * @return свойство идентификатора
      */
     public IntegerProperty idProperty() {
-        return id;
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, "id", id);
+        }
+        return idProperty;
     }
 
     /**
@@ -261,7 +330,11 @@ public class Worker {
      * @param id идентификатор
      */
     public void setId(int id) {
-        this.id.set(id);
+        if (idProperty != null) {
+            idProperty.set(id);
+        } else {
+            this.id = id;
+        }
     }
 }
 
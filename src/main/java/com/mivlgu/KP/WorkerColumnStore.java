@@ -0,0 +1,636 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище всех работников в памяти по столбцам.
+ * <p>
+ * Вместо объектов {@link Worker} с семью JavaFX-свойствами каждый
+ * столбец хранится отдельным массивом: идентификатор и возраст —
+ * в {@code int[]}, город и должность — кодами словаря в {@code int[]},
+ * а фамилия, имя и отчество — ссылками на общие экземпляры строк.
+ * Строки упорядочены по идентификатору.
+ * </p>
+ *
+ * Отбор ({@link Filter}) и подсчёт по группам ({@link #countBy})
+ * выполняются параллельным просмотром столбцов в пуле fork-join;
+ * подсчёт по группам выдаёт HTTP API ({@code /api/workers/groups}).
+ * Хранилище заполняется из базы страницами ({@link #load}) и затем
+ * обновляется по уведомлениям {@link DaoListener} от {@link WorkerDao}.
+ * Удалённые строки помечаются; когда удалённых и перезаписанных строк
+ * становится больше четверти, хранилище сжимается ({@link #compact()})
+ * с перекодированием словарей, а общие экземпляры строк и коды значений,
+ * на которые больше нет ссылок, освобождаются.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerColumnStore implements DaoListener<Worker, Integer> {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WorkerColumnStore.class);
+
+    /** Количество строк, загружаемых из базы за один запрос */
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    /** Начальная ёмкость столбцов */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Оценка размера объекта {@link Worker} без строк: заголовок,
+     * два {@code int}, пять ссылок на значения и семь ссылок
+     * на ещё не созданные свойства (64-битная JVM со сжатыми указателями).
+     */
+    static final int WORKER_OBJECT_BYTES = 72;
+
+    /** Оценка размера записи {@link HashMap} вместе с долей таблицы */
+    private static final int MAP_ENTRY_BYTES = 40;
+
+    /** Доля устаревших строк, при которой хранилище сжимается */
+    private static final double COMPACT_STALE_RATIO = 0.25;
+
+    /** Наименьшее количество устаревших строк для сжатия */
+    private static final int COMPACT_MIN_STALE = 1000;
+
+    /** Столбцы, по которым возможен подсчёт по группам */
+    public enum Column {
+        CITY, POSITION
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] cities = new int[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private String[] surnames = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] lastnames = new String[INITIAL_CAPACITY];
+
+    /** Удалённые строки */
+    private final BitSet deleted = new BitSet();
+
+    /** Количество занятых строк, включая удалённые */
+    private int size;
+
+    /** Количество перезаписанных строк после последнего сжатия */
+    private int replaced;
+
+    private Dictionary cityDictionary = new Dictionary();
+    private Dictionary positionDictionary = new Dictionary();
+
+    /**
+     * Общие экземпляры фамилий, имён и отчеств. Значения перезаписанных
+     * и удалённых строк остаются здесь до сжатия.
+     */
+    private final Map<String, String> strings = new HashMap<>();
+
+    /**
+     * Загружает всех работников из базы данных, заменяя текущее содержимое.
+     *
+     * @param dao объект доступа к данным
+     */
+    public void load(Dao<Worker, Integer> dao) {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            clear();
+            int afterId = 0;
+            List<Worker> page;
+            do {
+                page = dao.findPage(afterId, LOAD_PAGE_SIZE);
+                for (Worker worker : page) {
+                    append(worker);
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Столбцовое хранилище загружено за {} мс: {}",
+                (System.nanoTime() - start) / 1_000_000, footprint());
+    }
+
+    /**
+     * Возвращает количество работников в хранилище.
+     *
+     * @return количество строк без учёта удалённых
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает работника по идентификатору.
+     *
+     * @param id идентификатор работника
+     * @return новый объект работника или {@code null}
+     */
+    public Worker get(int id) {
+        lock.readLock().lock();
+        try {
+            int row = find(id);
+            return row < 0 || deleted.get(row) ? null : toWorker(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает работников по упорядоченному списку идентификаторов.
+     * Отсутствующие идентификаторы пропускаются.
+     *
+     * @param sortedIds идентификаторы в порядке возрастания
+     * @return список новых объектов работников
+     */
+    public List<Worker> get(int[] sortedIds) {
+        lock.readLock().lock();
+        try {
+            List<Worker> result = new ArrayList<>(sortedIds.length);
+            int from = 0;
+            for (int id : sortedIds) {
+                int row = Arrays.binarySearch(ids, from, size, id);
+                if (row >= 0) {
+                    from = row + 1;
+                    if (!deleted.get(row)) {
+                        result.add(toWorker(row));
+                    }
+                } else {
+                    from = -row - 1;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Подсчитывает работников, удовлетворяющих фильтру,
+     * по значениям столбца.
+     *
+     * @param column столбец группировки
+     * @param filter условия отбора
+     * @return количество работников по значениям, по убыванию количества
+     */
+    public Map<String, Integer> countBy(Column column, Filter filter) {
+        lock.readLock().lock();
+        try {
+            IntPredicate match = compile(filter);
+            Dictionary dictionary = column == Column.CITY ? cityDictionary : positionDictionary;
+            int[] codes = column == Column.CITY ? cities : positions;
+            int groups = dictionary.size();
+
+            int[] counts = IntStream.range(0, size).parallel()
+                    .filter(match)
+                    .collect(() -> new int[groups],
+                            (acc, row) -> acc[codes[row]]++,
+                            (a, b) -> {
+                                for (int i = 0; i < groups; i++) {
+                                    a[i] += b[i];
+                                }
+                            });
+
+            Integer[] order = new Integer[groups];
+            for (int i = 0; i < groups; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int code : order) {
+                if (counts[code] > 0) {
+                    result.put(dictionary.decode(code), counts[code]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void inserted(Collection<Worker> workers) {
+        lock.writeLock().lock();
+        try {
+            for (Worker worker : workers) {
+                int row = find(worker.getId());
+                if (row >= 0) {
+                    // идентификатор удалённой строки использован повторно
+                    deleted.clear(row);
+                    set(row, worker);
+                    replaced++;
+                } else if (size == 0 || worker.getId() > ids[size - 1]) {
+                    append(worker);
+                } else {
+                    insertAt(-row - 1, worker);
+                }
+            }
+            compactIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updated(Collection<Worker> workers) {
+        lock.writeLock().lock();
+        try {
+            for (Worker worker : workers) {
+                int row = find(worker.getId());
+                if (row >= 0 && !deleted.get(row)) {
+                    set(row, worker);
+                    replaced++;
+                }
+            }
+            compactIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleted(Collection<Integer> deletedIds) {
+        lock.writeLock().lock();
+        try {
+            for (Integer id : deletedIds) {
+                int row = find(id);
+                if (row >= 0) {
+                    deleted.set(row);
+                }
+            }
+            compactIfStale();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Освобождает место, занятое удалёнными строками, общие экземпляры
+     * строк и коды словарей, которые больше не используются.
+     * Словари города и должности кодируются заново.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactRows();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сжимает хранилище, если устаревших строк накопилось больше
+     * {@link #COMPACT_STALE_RATIO} от всех строк. Вызывается под блокировкой записи.
+     */
+    private void compactIfStale() {
+        int stale = deleted.cardinality() + replaced;
+        if (stale >= COMPACT_MIN_STALE && stale >= size * COMPACT_STALE_RATIO) {
+            compactRows();
+        }
+    }
+
+    private void compactRows() {
+        int target = 0;
+        strings.clear();
+        Dictionary oldCities = cityDictionary;
+        Dictionary oldPositions = positionDictionary;
+        cityDictionary = new Dictionary();
+        positionDictionary = new Dictionary();
+        for (int row = 0; row < size; row++) {
+            if (deleted.get(row)) {
+                continue;
+            }
+            ids[target] = ids[row];
+            ages[target] = ages[row];
+            cities[target] = cityDictionary.encode(oldCities.decode(cities[row]));
+            positions[target] = positionDictionary.encode(oldPositions.decode(positions[row]));
+            surnames[target] = intern(surnames[row]);
+            names[target] = intern(names[row]);
+            lastnames[target] = intern(lastnames[row]);
+            target++;
+        }
+        Arrays.fill(surnames, target, size, null);
+        Arrays.fill(names, target, size, null);
+        Arrays.fill(lastnames, target, size, null);
+        logger.debug("Столбцовое хранилище сжато: {} -> {} строк, {} различных строк, "
+                        + "городов {} -> {}, должностей {} -> {}",
+                size, target, strings.size(), oldCities.size(), cityDictionary.size(),
+                oldPositions.size(), positionDictionary.size());
+        size = target;
+        replaced = 0;
+        deleted.clear();
+    }
+
+    /**
+     * Оценивает объём памяти хранилища и того же набора
+     * работников в виде {@code List<Worker>}.
+     *
+     * @return оценка объёма памяти
+     */
+    public Footprint footprint() {
+        lock.readLock().lock();
+        try {
+            long columns = 4L * intArrayBytes(ids.length)
+                    + 3L * refArrayBytes(surnames.length)
+                    + deleted.size() / 8;
+            for (String value : strings.values()) {
+                columns += stringBytes(value) + MAP_ENTRY_BYTES;
+            }
+            columns += cityDictionary.bytes() + positionDictionary.bytes();
+
+            long list = refArrayBytes(size);
+            for (int row = 0; row < size; row++) {
+                if (deleted.get(row)) {
+                    continue;
+                }
+                // каждая строка результата запроса — отдельный экземпляр
+                list += WORKER_OBJECT_BYTES
+                        + stringBytes(surnames[row]) + stringBytes(names[row])
+                        + stringBytes(lastnames[row])
+                        + stringBytes(cityDictionary.decode(cities[row]))
+                        + stringBytes(positionDictionary.decode(positions[row]));
+            }
+            return new Footprint(size - deleted.cardinality(), columns, list);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка объёма памяти в байтах.
+     *
+     * @param rows количество работников
+     * @param columnBytes объём столбцового хранилища
+     * @param listBytes объём тех же данных в виде {@code List<Worker>}
+     */
+    public record Footprint(int rows, long columnBytes, long listBytes) {
+
+        public double columnBytesPerRow() {
+            return rows == 0 ? 0 : (double) columnBytes / rows;
+        }
+
+        public double listBytesPerRow() {
+            return rows == 0 ? 0 : (double) listBytes / rows;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("строк: %d, столбцы: %.1f байт/строку, List<Worker>: %.1f байт/строку",
+                    rows, columnBytesPerRow(), listBytesPerRow());
+        }
+    }
+
+    /**
+     * Условия отбора работников. Незаданные условия не проверяются.
+     */
+    public static class Filter {
+
+        private int minAge = Integer.MIN_VALUE;
+        private int maxAge = Integer.MAX_VALUE;
+        private String city;
+        private String position;
+        private String surnamePrefix;
+
+        /**
+         * Ограничивает возраст включительно.
+         */
+        public Filter age(int min, int max) {
+            this.minAge = min;
+            this.maxAge = max;
+            return this;
+        }
+
+        public Filter city(String city) {
+            this.city = city;
+            return this;
+        }
+
+        public Filter position(String position) {
+            this.position = position;
+            return this;
+        }
+
+        /**
+         * Отбирает работников, фамилия которых начинается
+         * с заданной строки без учёта регистра.
+         */
+        public Filter surnamePrefix(String prefix) {
+            this.surnamePrefix = prefix;
+            return this;
+        }
+    }
+
+    /**
+     * Преобразует фильтр в проверку номера строки.
+     * Значения города и должности заменяются кодами словаря,
+     * поэтому при просмотре сравниваются только числа.
+     */
+    private IntPredicate compile(Filter filter) {
+        BitSet removed = deleted;
+        IntPredicate match = row -> !removed.get(row);
+        if (filter == null) {
+            return match;
+        }
+        if (filter.minAge != Integer.MIN_VALUE || filter.maxAge != Integer.MAX_VALUE) {
+            int[] ageColumn = ages;
+            int min = filter.minAge;
+            int max = filter.maxAge;
+            match = match.and(row -> ageColumn[row] >= min && ageColumn[row] <= max);
+        }
+        if (filter.city != null) {
+            int code = cityDictionary.lookup(filter.city);
+            int[] codes = cities;
+            match = code < 0 ? row -> false : match.and(row -> codes[row] == code);
+        }
+        if (filter.position != null) {
+            int code = positionDictionary.lookup(filter.position);
+            int[] codes = positions;
+            match = code < 0 ? row -> false : match.and(row -> codes[row] == code);
+        }
+        if (filter.surnamePrefix != null && !filter.surnamePrefix.isEmpty()) {
+            String prefix = filter.surnamePrefix;
+            String[] column = surnames;
+            match = match.and(row -> column[row] != null
+                    && column[row].regionMatches(true, 0, prefix, 0, prefix.length()));
+        }
+        return match;
+    }
+
+    /**
+     * Ищет строку по идентификатору двоичным поиском.
+     *
+     * @return номер строки или {@code -(точка вставки) - 1}
+     */
+    private int find(int id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    private void append(Worker worker) {
+        ensureCapacity(size + 1);
+        set(size++, worker);
+    }
+
+    private void insertAt(int row, Worker worker) {
+        ensureCapacity(size + 1);
+        int tail = size - row;
+        System.arraycopy(ids, row, ids, row + 1, tail);
+        System.arraycopy(ages, row, ages, row + 1, tail);
+        System.arraycopy(cities, row, cities, row + 1, tail);
+        System.arraycopy(positions, row, positions, row + 1, tail);
+        System.arraycopy(surnames, row, surnames, row + 1, tail);
+        System.arraycopy(names, row, names, row + 1, tail);
+        System.arraycopy(lastnames, row, lastnames, row + 1, tail);
+        for (int i = size - 1; i >= row; i--) {
+            deleted.set(i + 1, deleted.get(i));
+        }
+        deleted.clear(row);
+        size++;
+        set(row, worker);
+    }
+
+    private void set(int row, Worker worker) {
+        ids[row] = worker.getId();
+        ages[row] = worker.getAge();
+        cities[row] = cityDictionary.encode(worker.getCity());
+        positions[row] = positionDictionary.encode(worker.getPosition());
+        surnames[row] = intern(worker.getSurname());
+        names[row] = intern(worker.getName());
+        lastnames[row] = intern(worker.getLastname());
+    }
+
+    private Worker toWorker(int row) {
+        return new Worker(ids[row], names[row], surnames[row], lastnames[row],
+                ages[row], cityDictionary.decode(cities[row]),
+                positionDictionary.decode(positions[row]));
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = strings.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int length = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, length);
+        ages = Arrays.copyOf(ages, length);
+        cities = Arrays.copyOf(cities, length);
+        positions = Arrays.copyOf(positions, length);
+        surnames = Arrays.copyOf(surnames, length);
+        names = Arrays.copyOf(names, length);
+        lastnames = Arrays.copyOf(lastnames, length);
+    }
+
+    private void clear() {
+        size = 0;
+        replaced = 0;
+        deleted.clear();
+        strings.clear();
+        cityDictionary.clear();
+        positionDictionary.clear();
+        Arrays.fill(surnames, null);
+        Arrays.fill(names, null);
+        Arrays.fill(lastnames, null);
+    }
+
+    private static long intArrayBytes(int length) {
+        return align(16 + 4L * length);
+    }
+
+    private static long refArrayBytes(int length) {
+        return align(16 + 4L * length);
+    }
+
+    /**
+     * Оценивает размер строки: объект {@link String} и массив байтов
+     * (латиница — байт на символ, кириллица — два).
+     */
+    static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        return 24 + align(16 + (long) value.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Словарь значений столбца: каждому различному значению
+     * соответствует код — номер в порядке первого появления.
+     * Отсутствующее значение ({@code null}) получает собственный код
+     * и не смешивается с пустой строкой.
+     */
+    private static class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int lookup(String value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        long bytes() {
+            long total = refArrayBytes(values.size()) + (long) MAP_ENTRY_BYTES * values.size();
+            for (String value : values) {
+                total += stringBytes(value);
+            }
+            return total;
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковый импорт работников из CSV-файла.
+ * <p>
+ * Файл читается построчно средствами NIO и делится на пакеты строк.
+ * Пакеты разбираются и проверяются в пуле потоков, а готовые
+ * работники передаются через ограниченную очередь единственному
+ * потоку записи, который сохраняет их методом {@link Dao#saveAll}.
+ * </p>
+ *
+ * Если запись не успевает за разбором, очередь заполняется
+ * и чтение файла приостанавливается, поэтому объём занятой памяти
+ * не зависит от размера файла.
+ *
+ * Если поток записи завершается исключением (например, обёрнутый
+ * DAO остановлен или получатель прогресса выбросил исключение),
+ * разбор и чтение файла прекращаются, а {@link #importFile}
+ * выбрасывает {@link IllegalStateException} с исходной ошибкой
+ * в качестве причины. Ошибки SQL, которые {@link Dao#saveAll}
+ * обрабатывает сам, учитываются как отклонённые строки.
+ *
+ * Ожидаемый порядок столбцов: фамилия, имя, отчество, возраст,
+ * город, должность. Разделитель {@code ;} или {@code ,} определяется
+ * по первой строке, строка заголовка пропускается.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerCsvImporter {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WorkerCsvImporter.class);
+
+    /** Количество столбцов в строке файла */
+    private static final int COLUMNS = 6;
+
+    /** Сколько сообщений об отклонённых строках сохраняется в отчёте */
+    private static final int MAX_REJECT_MESSAGES = 100;
+
+    /** Допустимые символы имени, фамилии и отчества */
+    private static final Pattern TEXT_ONLY = Pattern.compile("[а-яА-ЯёЁa-zA-Z]+");
+
+    /** Допустимые символы города и должности */
+    private static final Pattern CITY_OR_POSITION = Pattern.compile("[а-яА-ЯёЁa-zA-Z0-9 -]+");
+
+    /** Признак окончания потока пакетов для потока записи */
+    private static final List<Worker> END = Collections.emptyList();
+
+    /** Интервал проверки остановки потока записи при заполненной очереди, мс */
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    /** Объект доступа к данным */
+    private final Dao<Worker, Integer> dao;
+
+    /** Количество потоков разбора */
+    private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /** Количество строк в одном пакете */
+    private int batchSize = WorkerDao.DEFAULT_CHUNK_SIZE;
+
+    /** Ёмкость очереди пакетов, ожидающих записи */
+    private int queueCapacity = 4;
+
+    /**
+     * Создаёт импортёр, сохраняющий данные через указанный DAO.
+     *
+     * @param dao объект доступа к данным
+     */
+    public WorkerCsvImporter(Dao<Worker, Integer> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Устанавливает количество потоков разбора строк.
+     *
+     * @param parserThreads количество потоков
+     */
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = Math.max(1, parserThreads);
+    }
+
+    /**
+     * Устанавливает количество строк в одном пакете.
+     *
+     * @param batchSize количество строк
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Устанавливает ёмкость очереди пакетов, ожидающих записи.
+     *
+     * @param queueCapacity количество пакетов
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Импортирует работников из CSV-файла.
+     *
+     * @param file путь к файлу
+     * @param progress получатель промежуточных результатов,
+     *                 вызывается из потока записи; может быть {@code null}
+     * @return итоговый отчёт об импорте
+     * @throws IOException при ошибке чтения файла
+     * @throws InterruptedException если поток был прерван во время импорта
+     * @throws IllegalStateException если поток записи завершился ошибкой
+     */
+    public Result importFile(Path file, Consumer<Result> progress)
+            throws IOException, InterruptedException {
+        logger.info("Импорт работников из файла {}", file);
+
+        Result result = new Result();
+        BlockingQueue<List<Worker>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Semaphore inFlight = new Semaphore(parserThreads * 2);
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads, r -> {
+            Thread t = new Thread(r, "csv-parser");
+            t.setDaemon(true);
+            return t;
+        });
+
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> writeLoop(queue, result, progress, failure), "csv-writer");
+        writer.setDaemon(true);
+        BooleanSupplier aborted = () -> failure.get() != null || !writer.isAlive();
+        writer.start();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            char delimiter = line != null && line.indexOf(';') >= 0 ? ';' : ',';
+            long lineNumber = 1;
+            if (line != null && isHeader(line, delimiter)) {
+                line = reader.readLine();
+                lineNumber++;
+            }
+
+            List<String> lines = new ArrayList<>(batchSize);
+            long firstLine = lineNumber;
+            while (line != null && !aborted.getAsBoolean()) {
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    submit(parsers, inFlight, queue, lines, firstLine, delimiter, result, aborted);
+                    firstLine += lines.size();
+                    lines = new ArrayList<>(batchSize);
+                }
+                line = reader.readLine();
+            }
+            if (!lines.isEmpty() && !aborted.getAsBoolean()) {
+                submit(parsers, inFlight, queue, lines, firstLine, delimiter, result, aborted);
+            }
+
+            // разбор завершается и при остановке записи: пакеты не ждут места в очереди
+            parsers.shutdown();
+            parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (offer(queue, END, aborted)) {
+                writer.join();
+            }
+        } finally {
+            parsers.shutdownNow();
+            writer.interrupt();
+        }
+
+        RuntimeException error = failure.get();
+        if (error != null) {
+            result.finish();
+            logger.error("Импорт прерван ошибкой записи: {}", result, error);
+            throw new IllegalStateException("Импорт прерван: " + error.getMessage(), error);
+        }
+
+        result.finish();
+        logger.info("Импорт завершён: {}", result);
+        return result;
+    }
+
+    /**
+     * Передаёт пакет строк в пул разбора. Блокирует чтение файла,
+     * если разобранные пакеты не успевают записываться.
+     */
+    private void submit(ExecutorService parsers, Semaphore inFlight,
+                        BlockingQueue<List<Worker>> queue, List<String> lines,
+                        long firstLine, char delimiter, Result result,
+                        BooleanSupplier aborted)
+            throws InterruptedException {
+        inFlight.acquire();
+        parsers.execute(() -> {
+            try {
+                List<Worker> workers = new ArrayList<>(lines.size());
+                long number = firstLine;
+                for (String line : lines) {
+                    if (!line.isBlank()) {
+                        try {
+                            workers.add(parse(line, delimiter));
+                        } catch (IllegalArgumentException e) {
+                            result.reject(number, e.getMessage());
+                        }
+                    }
+                    number++;
+                }
+                if (!workers.isEmpty()) {
+                    offer(queue, workers, aborted);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * Помещает пакет в очередь, ожидая места, пока поток записи работает.
+     *
+     * @return {@code false}, если запись остановлена и пакет отброшен
+     */
+    private static boolean offer(BlockingQueue<List<Worker>> queue, List<Worker> batch,
+                                 BooleanSupplier aborted) throws InterruptedException {
+        while (!queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            if (aborted.getAsBoolean()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Цикл потока записи: сохраняет пакеты из очереди до получения
+     * признака окончания. Исключение при записи или в получателе
+     * прогресса останавливает цикл и сохраняется в {@code failure}.
+     */
+    private void writeLoop(BlockingQueue<List<Worker>> queue, Result result,
+                           Consumer<Result> progress,
+                           AtomicReference<RuntimeException> failure) {
+        try {
+            while (true) {
+                List<Worker> batch = queue.take();
+                if (batch == END) {
+                    return;
+                }
+                List<Integer> ids = dao.saveAll(batch);
+                if (ids.size() == batch.size()) {
+                    result.accepted.addAndGet(ids.size());
+                } else {
+                    result.reject(-1, "Ошибка записи пакета из " + batch.size() + " строк");
+                    result.rejected.addAndGet(batch.size() - 1);
+                }
+                if (progress != null) {
+                    progress.accept(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.set(e);
+        }
+    }
+
+    /**
+     * Проверяет, является ли строка заголовком таблицы.
+     */
+    private static boolean isHeader(String line, char delimiter) {
+        List<String> fields = split(line, delimiter);
+        return fields.size() >= COLUMNS && !fields.get(3).trim().matches("\\d+");
+    }
+
+    /**
+     * Разбирает и проверяет одну строку файла.
+     *
+     * @param line строка файла
+     * @param delimiter разделитель столбцов
+     * @return объект работника
+     * @throws IllegalArgumentException если строка не прошла проверку
+     */
+    static Worker parse(String line, char delimiter) {
+        List<String> fields = split(line, delimiter);
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("ожидалось " + COLUMNS
+                    + " столбцов, получено " + fields.size());
+        }
+        return validate(fields.get(0), fields.get(1), fields.get(2),
+                fields.get(3), fields.get(4), fields.get(5));
+    }
+
+    /**
+     * Проверяет значения полей работника: допустимые символы
+     * и возраст от 0 до 120. Используется также для тел запросов HTTP API.
+     *
+     * @param surname фамилия
+     * @param name имя
+     * @param lastname отчество
+     * @param age возраст
+     * @param city город
+     * @param position должность
+     * @return объект работника без идентификатора
+     * @throws IllegalArgumentException если значение не прошло проверку
+     */
+    static Worker validate(String surname, String name, String lastname,
+                           String age, String city, String position) {
+        String validSurname = require(surname, TEXT_ONLY, "фамилия");
+        String validName = require(name, TEXT_ONLY, "имя");
+        String validLastname = require(lastname, TEXT_ONLY, "отчество");
+        int validAge;
+        try {
+            validAge = Integer.parseInt(age == null ? "" : age.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("возраст не является числом");
+        }
+        if (validAge < 0 || validAge > 120) {
+            throw new IllegalArgumentException("возраст вне диапазона 0..120");
+        }
+        String validCity = require(city, CITY_OR_POSITION, "город");
+        String validPosition = require(position, CITY_OR_POSITION, "должность");
+        return new Worker(0, validName, validSurname, validLastname, validAge, validCity, validPosition);
+    }
+
+    private static String require(String value, Pattern pattern, String field) {
+        String trimmed = value == null ? "" : value.trim();
+        if (!pattern.matcher(trimmed).matches()) {
+            throw new IllegalArgumentException("недопустимое значение поля «" + field + "»");
+        }
+        return trimmed;
+    }
+
+    /**
+     * Делит строку на поля с учётом кавычек.
+     * Кавычка внутри поля в кавычках записывается удвоенной.
+     */
+    private static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Отчёт об импорте.
+     * <p>
+     * Счётчики обновляются во время импорта, поэтому объект
+     * можно использовать для отображения промежуточного прогресса.
+     * </p>
+     */
+    public static class Result {
+
+        /** Количество сохранённых строк */
+        private final AtomicLong accepted = new AtomicLong();
+
+        /** Количество отклонённых строк */
+        private final AtomicLong rejected = new AtomicLong();
+
+        /** Первые сообщения об отклонённых строках */
+        private final List<String> rejectMessages =
+                Collections.synchronizedList(new ArrayList<>());
+
+        /** Время начала импорта */
+        private final long startNanos = System.nanoTime();
+
+        /** Время окончания импорта, {@code 0} пока импорт идёт */
+        private volatile long endNanos;
+
+        private void reject(long lineNumber, String message) {
+            rejected.incrementAndGet();
+            if (rejectMessages.size() < MAX_REJECT_MESSAGES) {
+                rejectMessages.add(lineNumber > 0
+                        ? "строка " + lineNumber + ": " + message
+                        : message);
+            }
+        }
+
+        private void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        /**
+         * Возвращает количество сохранённых строк.
+         *
+         * @return количество строк
+         */
+        public long getAccepted() {
+            return accepted.get();
+        }
+
+        /**
+         * Возвращает количество отклонённых строк.
+         *
+         * @return количество строк
+         */
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        /**
+         * Возвращает первые сообщения об отклонённых строках.
+         *
+         * @return список сообщений
+         */
+        public List<String> getRejectMessages() {
+            synchronized (rejectMessages) {
+                return new ArrayList<>(rejectMessages);
+            }
+        }
+
+        /**
+         * Возвращает время импорта в миллисекундах.
+         *
+         * @return длительность импорта
+         */
+        public long getElapsedMillis() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+
+        /**
+         * Возвращает скорость импорта в строках в секунду.
+         *
+         * @return количество обработанных строк в секунду
+         */
+        public double getRowsPerSecond() {
+            long millis = Math.max(1, getElapsedMillis());
+            return (getAccepted() + getRejected()) * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("сохранено %d, отклонено %d, %.0f строк/с, %d мс",
+                    getAccepted(), getRejected(), getRowsPerSecond(), getElapsedMillis());
+        }
+    }
+}
@@ -5,8 +5,11 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -18,7 +21,14 @@ import java.util.List;
  * </p>
  *
  * SQL-запросы загружаются из конфигурационного файла
- * {@code statements.properties}.
+ * {@code statements.properties} и выполняются через
+ * подготовленные выражения из {@link StatementCatalog}.
+ *
+ * Несколько операций записи можно выполнить одной транзакцией
+ * через {@link #inTransaction}: операции присоединяются к ней,
+ * ошибка любой из них откатывает всю транзакцию, а получатели
+ * уведомлений ({@link DaoListener}) узнают об изменениях
+ * только после её фиксации.
  *
  * @author Igor Builov
  * @version 1.0
@@ -28,6 +38,136 @@ public class WorkerDao implements Dao<Worker, Integer> {
     private static final Logger logger =
             LoggerFactory.getLogger(WorkerDao.class);
 
+    /** Минимальная длина строки поиска для триграммного индекса */
+    static final int FTS_MIN_LENGTH = 3;
+
+    /** Размер пакета по умолчанию для пакетных операций */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /** Количество строк, отправляемых в базу данных одним пакетом */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /** Получатели уведомлений об изменениях */
+    private final List<DaoListener<Worker, Integer>> listeners =
+            new CopyOnWriteArrayList<>();
+
+    /** Транзакция {@link #inTransaction}, открытая текущим потоком */
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+    /** Статистика индексов для выбора плана запросов {@link Query} */
+    private volatile IndexStatistics statistics;
+
+    /**
+     * Конструктор DAO.
+     * Размер пакета берётся из свойства {@code batch.chunk_size},
+     * если оно задано в {@code statements.properties}.
+     */
+    public WorkerDao() {
+        if (LabApplication.getProperty() != null) {
+            String value = LabApplication.getProperty()
+                    .getProperty("batch.chunk_size");
+            if (value != null) {
+                chunkSize = checkChunkSize(Integer.parseInt(value.trim()));
+            }
+        }
+    }
+
+    /**
+     * Возвращает размер пакета для пакетных операций.
+     *
+     * @return количество строк в одном пакете
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Устанавливает размер пакета для пакетных операций.
+     *
+     * @param chunkSize количество строк в одном пакете
+     * @throws IllegalArgumentException если размер меньше единицы
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = checkChunkSize(chunkSize);
+    }
+
+    private static int checkChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Размер пакета должен быть положительным");
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Добавляет получателя уведомлений об изменениях,
+     * записанных этим DAO.
+     *
+     * @param listener получатель уведомлений
+     */
+    public void addListener(DaoListener<Worker, Integer> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Удаляет получателя уведомлений об изменениях.
+     *
+     * @param listener получатель уведомлений
+     */
+    public void removeListener(DaoListener<Worker, Integer> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Выполняет операции записи этого DAO одной транзакцией.
+     * <p>
+     * Методы записи, вызванные внутри {@code body}, присоединяются
+     * к транзакции и не фиксируют её сами. Если хотя бы один из них
+     * завершился ошибкой (хотя сам он, как обычно, вернул пустой
+     * результат), или {@code body} выбросил исключение, транзакция
+     * откатывается и исключение передаётся вызывающему. Уведомления
+     * получателей откладываются до фиксации и отбрасываются при откате;
+     * идентификаторы, присвоенные новым работникам в откаченной
+     * транзакции, недействительны.
+     * </p>
+     *
+     * Вложенный вызов присоединяется к уже открытой транзакции.
+     *
+     * @param body операции в транзакции
+     * @param <T> тип результата
+     * @return результат {@code body}
+     * @throws SQLException при ошибке записи или фиксации; изменения не сохраняются
+     */
+    public <T> T inTransaction(TransactionBody<T> body) throws SQLException {
+        if (transaction.get() != null) {
+            return body.run(this);
+        }
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            Connection conn = lease.get();
+            requireKnownTransaction(conn);
+            Transaction tx = new Transaction();
+            transaction.set(tx);
+            conn.setAutoCommit(false);
+            T result;
+            try {
+                result = body.run(this);
+                if (tx.failure != null) {
+                    throw new SQLException("Операция в транзакции завершилась ошибкой", tx.failure);
+                }
+                conn.commit();
+            } catch (Throwable e) {
+                rollback(conn, true);
+                throw e;
+            } finally {
+                transaction.remove();
+                endTransaction(conn, true);
+            }
+            for (Runnable notification : tx.notifications) {
+                notification.run();
+            }
+            return result;
+        }
+    }
+
     /**
      * Выполняет поиск работника по его идентификатору.
      *
@@ -37,14 +177,13 @@ public class WorkerDao implements Dao<Worker, Integer> {
      */
     @Override
     public Worker findById(Integer id) {
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.find_by_id");
-
-        try (PreparedStatement stmt =
-                     dbCon.getConnection().prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.find_by_id");
 
             stmt.setLong(1, id);
 
+            QueryEvent event = QueryEvent.start();
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     Worker s = new Worker();
@@ -55,11 +194,14 @@ public class WorkerDao implements Dao<Worker, Integer> {
                     s.setAge(rs.getInt("age"));
                     s.setCity(rs.getString("city"));
                     s.setPosition(rs.getString("position"));
+                    event.finish("findById", "sql.find_by_id", 1, List.of(id));
                     return s;
                 }
             }
+            event.finish("findById", "sql.find_by_id", 0, List.of(id));
 
         } catch (SQLException e) {
+            DaoMetrics.error("findById");
             logger.error("Ошибка при поиске работника", e);
         }
         return null;
@@ -73,19 +215,20 @@ public class WorkerDao implements Dao<Worker, Integer> {
     @Override
     public Collection<Worker> findAll() {
         List<Worker> list = null;
-        ResultSet rs = null;
-
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.find_all");
 
-        try (PreparedStatement statement =
-                     dbCon.getConnection().prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement statement = StatementCatalog.prepare(
+                    lease.get(), "sql.find_all");
 
-            rs = statement.executeQuery();
-            list = mapper(rs);
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = statement.executeQuery()) {
+                list = mapper(rs);
+            }
+            event.finish("findAll", "sql.find_all", list.size(), List.of());
 
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            DaoMetrics.error("findAll");
+            logger.error("Ошибка при загрузке всех работников", e);
         }
         return list;
     }
@@ -103,25 +246,26 @@ public class WorkerDao implements Dao<Worker, Integer> {
     @Override
     public Worker save(Worker worker) {
         logger.debug("Сохранение работника: {}", worker.getSurname());
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.save");
-        try (PreparedStatement statement =
-                     dbCon.getConnection().prepareStatement(sql)) {
-
-            statement.setString(1, worker.getName());
-            statement.setString(2, worker.getSurname());
-            statement.setString(3, worker.getLastname());
-            statement.setInt(4, worker.getAge());
-            statement.setString(5, worker.getCity());
-            statement.setString(6, worker.getPosition());
-            statement.executeUpdate();
-
-            ResultSet keys = statement.getGeneratedKeys();
-            if (keys.next()) {
-                worker.setId(keys.getInt(1));
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            requireKnownTransaction(lease.get());
+            PreparedStatement statement = StatementCatalog.prepare(
+                    lease.get(), "sql.save", true);
+
+            bindFields(statement, worker);
+            QueryEvent event = QueryEvent.start();
+            int rows = statement.executeUpdate();
+
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (keys.next()) {
+                    worker.setId(keys.getInt(1));
+                }
             }
+            event.finish("save", "sql.save", rows, fields(worker));
             logger.info("Работник сохранён, id={}", worker.getId());
+            fireInserted(List.of(worker));
         } catch (SQLException e) {
+            DaoMetrics.error("save");
+            failTransaction(e);
             logger.error("Ошибка сохранения работника", e);
         }
         return worker;
@@ -136,27 +280,26 @@ public class WorkerDao implements Dao<Worker, Integer> {
     @Override
     public Worker update(Worker worker) {
         logger.debug("Обновление данных работника: {}", worker.getId());
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.update");
-
-        try (PreparedStatement stmt =
-                     dbCon.getConnection().prepareStatement(sql)) {
-
-            stmt.setString(1, worker.getName());
-            stmt.setString(2, worker.getSurname());
-            stmt.setString(3, worker.getLastname());
-            stmt.setInt(4, worker.getAge());
-            stmt.setString(5, worker.getCity());
-            stmt.setString(6, worker.getPosition());
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            requireKnownTransaction(lease.get());
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.update");
+
+            bindFields(stmt, worker);
             stmt.setInt(7, worker.getId());
 
+            QueryEvent event = QueryEvent.start();
             int rowsUpdated = stmt.executeUpdate();
+            event.finish("update", "sql.update", rowsUpdated, fields(worker, worker.getId()));
             if (rowsUpdated == 0) {
                 logger.info("Работник с id={} , не найден", worker.getId());
             } else {
                 logger.info("Работник с id={} , успешно обновлен", worker.getId());
+                fireUpdated(List.of(worker));
             }
         } catch (SQLException e) {
+            DaoMetrics.error("update");
+            failTransaction(e);
             logger.error("Ошибка при обновлении работника", e);
         }
         return worker;
@@ -181,27 +324,689 @@ public class WorkerDao implements Dao<Worker, Integer> {
      */
     @Override
     public void deleteById(Integer id) {
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.deleteById");
         logger.info("Попытка удаления работника с id={}", id);
 
-        try (PreparedStatement stmt =
-                     dbCon.getConnection().prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            requireKnownTransaction(lease.get());
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.deleteById");
 
             stmt.setLong(1, id);
+            QueryEvent event = QueryEvent.start();
             int rows = stmt.executeUpdate();
+            event.finish("deleteById", "sql.deleteById", rows, List.of(id));
 
             if (rows == 0) {
                 logger.warn("Работник с id={} не найден", id);
             } else {
                 logger.info("Работник с id={} успешно удалён", id);
+                fireDeleted(List.of(id));
             }
 
         } catch (SQLException e) {
+            DaoMetrics.error("deleteById");
+            failTransaction(e);
             logger.error("Ошибка при удалении работника с id={}", id, e);
         }
     }
 
+    /**
+     * Возвращает количество работников в базе данных.
+     *
+     * @return количество строк или {@code 0} при ошибке
+     */
+    @Override
+    public long count() {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.count");
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                event.finish("count", "sql.count", 1, List.of());
+                return count;
+            }
+        } catch (SQLException e) {
+            DaoMetrics.error("count");
+            logger.error("Ошибка подсчёта работников", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Возвращает страницу работников, упорядоченных по идентификатору.
+     * <p>
+     * Страница начинается с первой строки, идентификатор которой
+     * больше {@code afterId}, поэтому запрос использует первичный ключ
+     * и не зависит от номера страницы.
+     * </p>
+     *
+     * @param afterId идентификатор последней строки предыдущей страницы
+     *                или {@code null} для первой страницы
+     * @param limit количество строк на странице
+     * @return список работников
+     */
+    @Override
+    public List<Worker> findPage(Integer afterId, int limit) {
+        List<Worker> result = new ArrayList<>();
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.find_page");
+            stmt.setLong(1, afterId == null ? 0 : afterId);
+            stmt.setInt(2, limit);
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                result = mapper(rs);
+            }
+            event.finish("findPage", "sql.find_page", result.size(),
+                    List.of(afterId == null ? 0 : afterId, limit));
+        } catch (SQLException e) {
+            DaoMetrics.error("findPage");
+            logger.error("Ошибка загрузки страницы после id={}", afterId, e);
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает работников по запросу с условиями отбора и сортировкой.
+     * Подготовленное выражение переиспользуется для запросов той же формы.
+     *
+     * @param query запрос
+     * @return список работников
+     */
+    @Override
+    public List<Worker> find(Query query) {
+        List<Worker> result = new ArrayList<>();
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Query.Compiled compiled = query.compile(statistics(lease.get()));
+            PreparedStatement stmt = StatementCatalog.prepareQuery(lease.get(), compiled.sql());
+            bind(stmt, compiled.parameters());
+            RunningQueries.register(stmt);
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                result = mapper(rs);
+            } finally {
+                RunningQueries.unregister();
+            }
+            event.finishSql("find", compiled.sql(), result.size(), compiled.parameters());
+        } catch (SQLException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                logger.debug("Запрос по условию {} отменён", query.getCriteria());
+            } else {
+                DaoMetrics.error("find");
+                logger.error("Ошибка выполнения запроса по условию {}", query.getCriteria(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает страницу работников в порядке сортировки запроса.
+     * <p>
+     * Страница продолжает порядок после строки {@code after}
+     * (см. {@link Query#page}), поэтому при сортировке по индексированному
+     * полю первая и последующие страницы читаются из индекса без
+     * сортировки всей таблицы. При сортировке по убыванию строки
+     * с пустым значением поля идут последними; если страница
+     * доходит до них, они дочитываются отдельным запросом
+     * по индексу того же поля.
+     * </p>
+     *
+     * @param query запрос с условием и сортировкой
+     * @param after последняя строка предыдущей страницы
+     *              или {@code null} для первой страницы
+     * @param offset количество пропускаемых строк после {@code after}
+     * @param limit количество строк на странице
+     * @return список работников
+     */
+    @Override
+    public List<Worker> findPage(Query query, Worker after, int offset, int limit) {
+        List<Worker> page = find(query.page(after, offset, limit));
+        WorkerField field = query.getOrderBy();
+        if (page.size() == limit || !query.isDescending() || field == WorkerField.ID
+                || after == null || field.value(after) == null) {
+            return page;
+        }
+        // отступ мог пройти часть строк с пустым значением
+        long skipped = page.isEmpty() ? count(query.page(after, 0, 0)) : offset;
+        Criteria empty = Criteria.eq(field, null);
+        Query tail = Query.where(query.getCriteria() == null ? empty : query.getCriteria().and(empty))
+                .orderBy(WorkerField.ID, true)
+                .page(null, (int) Math.max(0, offset - skipped), limit - page.size());
+        List<Worker> result = new ArrayList<>(page);
+        result.addAll(find(tail));
+        return result;
+    }
+
+    /**
+     * Возвращает количество работников, удовлетворяющих условию.
+     * Подсчёт выполняется по индексу ведущего условия.
+     *
+     * @param criteria условие отбора или {@code null} для всех работников
+     * @return количество строк или {@code 0} при ошибке
+     */
+    @Override
+    public long count(Criteria criteria) {
+        return criteria == null ? count() : count(Query.where(criteria));
+    }
+
+    private long count(Query query) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Query.Compiled compiled = query.compileCount(statistics(lease.get()));
+            PreparedStatement stmt = StatementCatalog.prepareQuery(lease.get(), compiled.sql());
+            bind(stmt, compiled.parameters());
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                long count = rs.next() ? rs.getLong(1) : 0;
+                event.finishSql("countByCriteria", compiled.sql(), 1, compiled.parameters());
+                return count;
+            }
+        } catch (SQLException e) {
+            DaoMetrics.error("countByCriteria");
+            logger.error("Ошибка подсчёта работников по условию {}", query.getCriteria(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * Возвращает статистику индексов, читая её при первом обращении.
+     */
+    private IndexStatistics statistics(Connection conn) {
+        IndexStatistics current = statistics;
+        if (current == null) {
+            current = IndexStatistics.load(conn);
+            statistics = current;
+        }
+        return current;
+    }
+
+    private static void bind(PreparedStatement stmt, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            stmt.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    /**
+     * Возвращает идентификатор строки, отстоящей на {@code offset} строк
+     * от первой строки после {@code afterId} в порядке идентификаторов.
+     * Используется для перехода к произвольной странице.
+     *
+     * @param afterId идентификатор, после которого ведётся отсчёт,
+     *                или {@code null} для отсчёта от начала таблицы
+     * @param offset отступ, начиная с нуля
+     * @return идентификатор или {@code null}, если строк меньше
+     */
+    @Override
+    public Integer findIdAfter(Integer afterId, int offset) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt = StatementCatalog.prepare(
+                    lease.get(), "sql.find_id_after");
+            stmt.setLong(1, afterId == null ? 0 : afterId);
+            stmt.setInt(2, offset);
+            QueryEvent event = QueryEvent.start();
+            try (ResultSet rs = stmt.executeQuery()) {
+                Integer id = rs.next() ? rs.getInt(1) : null;
+                event.finish("findIdAfter", "sql.find_id_after", id == null ? 0 : 1,
+                        List.of(afterId == null ? 0 : afterId, offset));
+                return id;
+            }
+        } catch (SQLException e) {
+            DaoMetrics.error("findIdAfter");
+            logger.error("Ошибка поиска границы страницы после id={}", afterId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет коллекцию новых работников одной транзакцией.
+     * <p>
+     * Строки отправляются пакетами по {@link #getChunkSize()} штук.
+     * Внутри одной транзакции SQLite выдаёт идентификаторы подряд,
+     * поэтому идентификаторы пакета восстанавливаются по значению
+     * {@code last_insert_rowid()} после его выполнения.
+     * После фиксации транзакции идентификаторы устанавливаются
+     * в объекты работников.
+     * </p>
+     *
+     * Внутри {@link #inTransaction} метод участвует в открытой транзакции
+     * и не фиксирует её самостоятельно; ошибка откатывает всю транзакцию.
+     *
+     * @param workers коллекция новых работников
+     * @return идентификаторы в порядке следования работников
+     * или пустой список при ошибке
+     */
+    @Override
+    public List<Integer> saveAll(Collection<Worker> workers) {
+        List<Integer> ids = new ArrayList<>(workers.size());
+        if (workers.isEmpty()) {
+            return ids;
+        }
+        logger.debug("Пакетное сохранение работников: {}", workers.size());
+
+        ConnectionPool.Lease lease = null;
+        Connection conn = null;
+        boolean ownTransaction = false;
+        try {
+            lease = dbCon.writer();
+            conn = lease.get();
+            ownTransaction = beginTransaction(conn);
+
+            QueryEvent event = QueryEvent.start();
+            insertRows(conn, workers, ids);
+
+            if (ownTransaction) {
+                conn.commit();
+            }
+            event.finish("saveAll", "sql.save", ids.size(), null);
+            assignIds(workers, ids);
+            logger.info("Пакетно сохранено работников: {}", ids.size());
+            fireInserted(workers);
+        } catch (SQLException e) {
+            DaoMetrics.error("saveAll");
+            failTransaction(e);
+            logger.error("Ошибка пакетного сохранения работников", e);
+            rollback(conn, ownTransaction);
+            ids.clear();
+        } finally {
+            endTransaction(conn, ownTransaction);
+            if (lease != null) {
+                lease.close();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Обновляет коллекцию работников одной транзакцией.
+     *
+     * @param workers коллекция работников с обновлёнными данными
+     * @return количество обновлённых строк или {@code 0} при ошибке
+     */
+    @Override
+    public int updateAll(Collection<Worker> workers) {
+        if (workers.isEmpty()) {
+            return 0;
+        }
+        logger.debug("Пакетное обновление работников: {}", workers.size());
+
+        ConnectionPool.Lease lease = null;
+        Connection conn = null;
+        boolean ownTransaction = false;
+        try {
+            lease = dbCon.writer();
+            conn = lease.get();
+            ownTransaction = beginTransaction(conn);
+
+            QueryEvent event = QueryEvent.start();
+            int updated = updateRows(conn, workers);
+
+            if (ownTransaction) {
+                conn.commit();
+            }
+            event.finish("updateAll", "sql.update", updated, null);
+            logger.info("Пакетно обновлено работников: {}", updated);
+            fireUpdated(workers);
+            return updated;
+        } catch (SQLException e) {
+            DaoMetrics.error("updateAll");
+            failTransaction(e);
+            logger.error("Ошибка пакетного обновления работников", e);
+            rollback(conn, ownTransaction);
+            return 0;
+        } finally {
+            endTransaction(conn, ownTransaction);
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    /**
+     * Удаляет работников по идентификаторам одной транзакцией.
+     *
+     * @param ids идентификаторы работников
+     * @return количество удалённых строк или {@code 0} при ошибке
+     */
+    @Override
+    public int deleteAllById(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        logger.debug("Пакетное удаление работников: {}", ids.size());
+
+        ConnectionPool.Lease lease = null;
+        Connection conn = null;
+        boolean ownTransaction = false;
+        try {
+            lease = dbCon.writer();
+            conn = lease.get();
+            ownTransaction = beginTransaction(conn);
+
+            QueryEvent event = QueryEvent.start();
+            int deleted = deleteRows(conn, ids);
+
+            if (ownTransaction) {
+                conn.commit();
+            }
+            event.finish("deleteAllById", "sql.deleteById", deleted, null);
+            logger.info("Пакетно удалено работников: {}", deleted);
+            fireDeleted(ids);
+            return deleted;
+        } catch (SQLException e) {
+            DaoMetrics.error("deleteAllById");
+            failTransaction(e);
+            logger.error("Ошибка пакетного удаления работников", e);
+            rollback(conn, ownTransaction);
+            return 0;
+        } finally {
+            endTransaction(conn, ownTransaction);
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    /**
+     * Применяет накопленные изменения одной транзакцией:
+     * сначала удаления, затем обновления и вставки.
+     * <p>
+     * В отличие от остальных методов DAO ошибка не подавляется:
+     * транзакция откатывается, а исключение передаётся вызывающему,
+     * чтобы изменения можно было повторить. Используется
+     * {@link WriteBehindDao} для группового сохранения.
+     * </p>
+     *
+     * @param deleted идентификаторы удаляемых работников
+     * @param updated работники с обновлёнными данными
+     * @param inserted новые работники; им присваиваются идентификаторы
+     * @throws SQLException при ошибке записи, изменения не сохраняются
+     */
+    public void applyChanges(Collection<Integer> deleted, Collection<Worker> updated,
+                             Collection<Worker> inserted) throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            Connection conn = lease.get();
+            boolean ownTransaction = beginTransaction(conn);
+            List<Integer> ids = new ArrayList<>(inserted.size());
+            QueryEvent event = QueryEvent.start();
+            try {
+                int rows = deleteRows(conn, deleted) + updateRows(conn, updated);
+                insertRows(conn, inserted, ids);
+                if (ownTransaction) {
+                    conn.commit();
+                }
+                event.finishSql("applyChanges", String.join(";\n", StatementCatalog.sql("sql.deleteById"),
+                        StatementCatalog.sql("sql.update"), StatementCatalog.sql("sql.save")),
+                        rows + ids.size(), null);
+            } catch (SQLException e) {
+                rollback(conn, ownTransaction);
+                throw e;
+            } finally {
+                endTransaction(conn, ownTransaction);
+            }
+            assignIds(inserted, ids);
+        }
+        fireDeleted(deleted);
+        fireUpdated(updated);
+        fireInserted(inserted);
+    }
+
+    /**
+     * Вставляет работников пакетами в текущей транзакции
+     * и добавляет идентификаторы вставленных строк в список.
+     */
+    private void insertRows(Connection conn, Collection<Worker> workers,
+                            List<Integer> ids) throws SQLException {
+        if (workers.isEmpty()) {
+            return;
+        }
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.save");
+        PreparedStatement lastId = StatementCatalog.prepare(conn, "sql.last_insert_rowid");
+
+        int pending = 0;
+        for (Worker worker : workers) {
+            bindFields(stmt, worker);
+            stmt.addBatch();
+            if (++pending == chunkSize) {
+                executeInsertChunk(stmt, lastId, pending, ids);
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            executeInsertChunk(stmt, lastId, pending, ids);
+        }
+    }
+
+    /**
+     * Обновляет работников пакетами в текущей транзакции.
+     *
+     * @return количество обновлённых строк
+     */
+    private int updateRows(Connection conn, Collection<Worker> workers) throws SQLException {
+        if (workers.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.update");
+        int updated = 0;
+        int pending = 0;
+        for (Worker worker : workers) {
+            bindFields(stmt, worker);
+            stmt.setInt(7, worker.getId());
+            stmt.addBatch();
+            if (++pending == chunkSize) {
+                updated += sum(stmt.executeBatch());
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            updated += sum(stmt.executeBatch());
+        }
+        return updated;
+    }
+
+    /**
+     * Удаляет работников пакетами в текущей транзакции.
+     *
+     * @return количество удалённых строк
+     */
+    private int deleteRows(Connection conn, Collection<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.deleteById");
+        int deleted = 0;
+        int pending = 0;
+        for (Integer id : ids) {
+            stmt.setLong(1, id);
+            stmt.addBatch();
+            if (++pending == chunkSize) {
+                deleted += sum(stmt.executeBatch());
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            deleted += sum(stmt.executeBatch());
+        }
+        return deleted;
+    }
+
+    /**
+     * Присваивает работникам идентификаторы вставленных строк.
+     */
+    private static void assignIds(Collection<Worker> workers, List<Integer> ids) {
+        Iterator<Integer> it = ids.iterator();
+        for (Worker worker : workers) {
+            worker.setId(it.next());
+        }
+    }
+
+    /**
+     * Заполняет параметры выражения значениями полей работника
+     * в порядке столбцов запросов {@code sql.save} и {@code sql.update}.
+     *
+     * @param stmt подготовленное выражение
+     * @param worker объект работника
+     * @throws SQLException при ошибке установки параметров
+     */
+    private void bindFields(PreparedStatement stmt, Worker worker) throws SQLException {
+        stmt.setString(1, worker.getName());
+        stmt.setString(2, worker.getSurname());
+        stmt.setString(3, worker.getLastname());
+        stmt.setInt(4, worker.getAge());
+        stmt.setString(5, worker.getCity());
+        stmt.setString(6, worker.getPosition());
+    }
+
+    /**
+     * Значения полей работника в порядке параметров {@link #bindFields}
+     * для журнала медленных запросов.
+     */
+    private static List<Object> fields(Worker worker, Object... extra) {
+        List<Object> values = new ArrayList<>(Arrays.asList(worker.getName(), worker.getSurname(),
+                worker.getLastname(), worker.getAge(), worker.getCity(), worker.getPosition()));
+        values.addAll(Arrays.asList(extra));
+        return values;
+    }
+
+    /**
+     * Выполняет накопленный пакет вставок и добавляет
+     * идентификаторы вставленных строк в список.
+     */
+    private void executeInsertChunk(PreparedStatement stmt, PreparedStatement lastId,
+                                    int size, List<Integer> ids) throws SQLException {
+        stmt.executeBatch();
+        try (ResultSet rs = lastId.executeQuery()) {
+            rs.next();
+            long last = rs.getLong(1);
+            for (long id = last - size + 1; id <= last; id++) {
+                ids.add((int) id);
+            }
+        }
+    }
+
+    /**
+     * Начинает транзакцию, если соединение работает в режиме автофиксации.
+     *
+     * @return {@code true}, если транзакция начата этим вызовом
+     */
+    private boolean beginTransaction(Connection conn) throws SQLException {
+        requireKnownTransaction(conn);
+        if (conn.getAutoCommit()) {
+            conn.setAutoCommit(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, что открытая на соединении транзакция начата
+     * {@link #inTransaction}. К транзакции, открытой в обход DAO,
+     * операции не присоединяются: без неё нельзя ни сообщить об ошибке,
+     * ни отложить уведомления до фиксации.
+     *
+     * @throws IllegalStateException если транзакция открыта в обход DAO
+     */
+    private void requireKnownTransaction(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit() && transaction.get() == null) {
+            throw new IllegalStateException(
+                    "Соединение для записи уже в транзакции, открытой в обход WorkerDao.inTransaction");
+        }
+    }
+
+    /**
+     * Отмечает ошибку операции, присоединённой к транзакции
+     * {@link #inTransaction}, чтобы транзакция была откачена.
+     */
+    private void failTransaction(SQLException e) {
+        Transaction tx = transaction.get();
+        if (tx != null && tx.failure == null) {
+            tx.failure = e;
+        }
+    }
+
+    /**
+     * Откатывает транзакцию, начатую пакетной операцией.
+     */
+    private void rollback(Connection conn, boolean ownTransaction) {
+        if (conn == null || !ownTransaction) {
+            return;
+        }
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            logger.error("Ошибка отката транзакции", e);
+        }
+    }
+
+    /**
+     * Возвращает соединение в режим автофиксации после пакетной операции.
+     */
+    private void endTransaction(Connection conn, boolean ownTransaction) {
+        if (conn == null || !ownTransaction) {
+            return;
+        }
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            logger.error("Ошибка восстановления режима автофиксации", e);
+        }
+    }
+
+    private void fireInserted(Collection<Worker> workers) {
+        if (!workers.isEmpty()) {
+            notifyListeners(() -> {
+                for (DaoListener<Worker, Integer> listener : listeners) {
+                    listener.inserted(workers);
+                }
+            });
+        }
+    }
+
+    private void fireUpdated(Collection<Worker> workers) {
+        if (!workers.isEmpty()) {
+            notifyListeners(() -> {
+                for (DaoListener<Worker, Integer> listener : listeners) {
+                    listener.updated(workers);
+                }
+            });
+        }
+    }
+
+    private void fireDeleted(Collection<Integer> ids) {
+        if (!ids.isEmpty()) {
+            notifyListeners(() -> {
+                for (DaoListener<Worker, Integer> listener : listeners) {
+                    listener.deleted(ids);
+                }
+            });
+        }
+    }
+
+    /**
+     * Уведомляет получателей сразу или, внутри {@link #inTransaction},
+     * после фиксации транзакции.
+     */
+    private void notifyListeners(Runnable notification) {
+        Transaction tx = transaction.get();
+        if (tx != null) {
+            tx.notifications.add(notification);
+        } else {
+            notification.run();
+        }
+    }
+
+    /**
+     * Суммирует количество изменённых строк по результатам пакета.
+     */
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
     /**
      * Преобразует результат SQL-запроса в список объектов {@link Worker}.
      *
@@ -210,8 +1015,9 @@ public class WorkerDao implements Dao<Worker, Integer> {
      */
     protected List<Worker> mapper(ResultSet rs) {
         List<Worker> list = new ArrayList<>();
+        MapperEvent event = MapperEvent.start();
         try {
-            while (rs.next()) {
+            while (event.next(rs)) {
                 list.add(new Worker(
                         rs.getInt("id"),
                         rs.getString("name"),
@@ -222,10 +1028,16 @@ public class WorkerDao implements Dao<Worker, Integer> {
                         rs.getString("position")
                 ));
             }
+            event.finish(list.size());
             logger.debug("Результат запроса преобразован в список. Количество записей: {}",
                     list.size());
         } catch (SQLException e) {
-            logger.error("Ошибка при преобразовании ResultSet в список работников", e);
+            if (Thread.currentThread().isInterrupted()) {
+                logger.debug("Чтение результата прервано отменой запроса");
+            } else {
+                DaoMetrics.error("mapper");
+                logger.error("Ошибка при преобразовании ResultSet в список работников", e);
+            }
         }
 
         return list;
@@ -233,39 +1045,133 @@ public class WorkerDao implements Dao<Worker, Integer> {
 
     /**
      * Выполняет поиск работников по фамилии или названию группы.
+     * <p>
+     * Если доступен полнотекстовый индекс и строка поиска содержит
+     * не менее трёх символов, поиск выполняется по триграммному
+     * индексу FTS5 без учёта регистра, в том числе для кириллицы.
+     * Иначе используется запрос с {@code LIKE}.
+     * </p>
+     *
+     * Запрос можно отменить из другого потока через {@link RunningQueries}.
      *
      * @param value поисковое значение
      * @return коллекция найденных работников
      */
     @Override
     public Collection<Worker> findBySurnameOrGroupName(String value) {
+        return search(value, -1);
+    }
 
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.findBySurnameOrGroupName");
+    /**
+     * Выполняет поиск работников по фамилии или названию группы,
+     * ограничивая количество строк в самом запросе.
+     *
+     * @param value поисковое значение
+     * @param limit наибольшее количество работников
+     * @return первые найденные работники в порядке возрастания идентификатора
+     */
+    @Override
+    public List<Worker> findBySurnameOrGroupName(String value, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Ограничение не может быть отрицательным");
+        }
+        return search(value, limit);
+    }
 
+    /**
+     * Поиск по подстроке; отрицательное ограничение SQLite
+     * понимает как его отсутствие.
+     */
+    private List<Worker> search(String value, int limit) {
         logger.info("Поиск работников по подстроке: '{}'", value);
 
         List<Worker> result = new ArrayList<>();
 
-        try (PreparedStatement stmt =
-                     dbCon.getConnection().prepareStatement(sql)) {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt;
+            String key;
+            List<Object> parameters;
+            if (dbCon.isFullTextSearchAvailable()
+                    && value.codePointCount(0, value.length()) >= FTS_MIN_LENGTH) {
+                key = "sql.findBySurnameOrGroupName_fts";
+                stmt = StatementCatalog.prepare(lease.get(), key);
+                String match = ftsQuery(value);
+                parameters = List.of(match, limit);
+                stmt.setString(1, match);
+                stmt.setInt(2, limit);
+            } else {
+                key = "sql.findBySurnameOrGroupName";
+                stmt = StatementCatalog.prepare(lease.get(), key);
 
-            String pattern = "%" + value + "%";
+                String pattern = "%" + value + "%";
+                parameters = List.of(pattern, pattern, limit);
 
-            stmt.setString(1, pattern);
-            stmt.setString(2, pattern);
+                stmt.setString(1, pattern);
+                stmt.setString(2, pattern);
+                stmt.setInt(3, limit);
+            }
 
+            RunningQueries.register(stmt);
+            QueryEvent event = QueryEvent.start();
             try (ResultSet rs = stmt.executeQuery()) {
                 result = mapper(rs);
+            } finally {
+                RunningQueries.unregister();
             }
+            event.finish("findBySurnameOrGroupName", key, result.size(), parameters);
 
             logger.debug("Поиск завершён. Найдено записей: {}", result.size());
 
         } catch (SQLException e) {
-            logger.error("Ошибка поиска работников по значению: '{}'", value, e);
+            if (Thread.currentThread().isInterrupted()) {
+                logger.debug("Поиск по значению '{}' отменён", value);
+            } else {
+                DaoMetrics.error("findBySurnameOrGroupName");
+                logger.error("Ошибка поиска работников по значению: '{}'", value, e);
+            }
         }
 
         return result;
     }
-}
 
+    /**
+     * Формирует выражение FTS5 для поиска подстроки
+     * в фамилии или должности.
+     *
+     * @param value поисковое значение
+     * @return выражение для оператора {@code MATCH}
+     */
+    private static String ftsQuery(String value) {
+        return "{surname position} : \"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Операции, выполняемые в транзакции {@link #inTransaction}.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    public interface TransactionBody<T> {
+
+        /**
+         * Выполняет операции записи.
+         *
+         * @param dao DAO, к транзакции которого присоединяются операции
+         * @return результат
+         * @throws SQLException при ошибке; транзакция откатывается
+         */
+        T run(WorkerDao dao) throws SQLException;
+    }
+
+    /**
+     * Состояние транзакции {@link #inTransaction}.
+     */
+    private static final class Transaction {
+
+        /** Уведомления, отложенные до фиксации */
+        private final List<Runnable> notifications = new ArrayList<>();
+
+        /** Первая ошибка присоединённой операции */
+        private SQLException failure;
+    }
+}
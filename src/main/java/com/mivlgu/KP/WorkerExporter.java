@@ -0,0 +1,293 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Потоковый экспорт таблицы работников в файл.
+ * <p>
+ * Строки читаются курсором с фиксированным размером выборки
+ * и записываются напрямую в {@link FileChannel} через буфер,
+ * без создания объектов {@link Worker}. Поэтому объём занятой
+ * памяти не зависит от размера таблицы.
+ * </p>
+ *
+ * Поддерживаются форматы CSV (с разделителем {@code ;}, как при импорте)
+ * и JSON Lines (один JSON-объект на строку).
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerExporter {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WorkerExporter.class);
+
+    /** Количество строк, запрашиваемых у курсора за один раз */
+    public static final int FETCH_SIZE = 1000;
+
+    /** Размер буфера записи в байтах */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Как часто сообщать о прогрессе, в строках */
+    private static final int PROGRESS_STEP = 1000;
+
+    /** Разделитель столбцов CSV */
+    private static final char CSV_DELIMITER = ';';
+
+    /**
+     * Формат файла экспорта.
+     */
+    public enum Format {
+        /** Текст с разделителем {@code ;} и строкой заголовка */
+        CSV,
+        /** Один JSON-объект на строку */
+        JSON_LINES;
+
+        /**
+         * Определяет формат по расширению имени файла.
+         *
+         * @param file путь к файлу
+         * @return {@link #JSON_LINES} для {@code .jsonl} и {@code .json},
+         * иначе {@link #CSV}
+         */
+        public static Format forFile(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    /**
+     * Получатель сведений о ходе экспорта.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * Вызывается после записи очередной порции строк.
+         *
+         * @param done количество записанных строк
+         * @param total общее количество строк
+         */
+        void update(long done, long total);
+    }
+
+    /**
+     * Экспортирует всех работников в файл.
+     *
+     * @param file путь к файлу; существующий файл перезаписывается
+     * @param format формат файла
+     * @param progress получатель сведений о ходе экспорта,
+     *                 может быть {@code null}
+     * @return количество записанных строк
+     * @throws IOException при ошибке записи файла
+     * @throws SQLException при ошибке чтения базы данных
+     */
+    public long export(Path file, Format format, Progress progress)
+            throws IOException, SQLException {
+        logger.info("Экспорт работников в файл {} ({})", file, format);
+        long start = System.nanoTime();
+
+        long done;
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            done = write(lease.get(), file, format, progress);
+        }
+
+        logger.info("Экспорт завершён: {} строк за {} мс", done,
+                (System.nanoTime() - start) / 1_000_000);
+        return done;
+    }
+
+    /**
+     * Записывает строки таблицы в файл через арендованное соединение.
+     */
+    private long write(Connection conn, Path file, Format format, Progress progress)
+            throws IOException, SQLException {
+        long total = count(conn);
+        long done = 0;
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+             PreparedStatement stmt = conn.prepareStatement(
+                     StatementCatalog.sql("sql.find_all"))) {
+
+            stmt.setFetchSize(FETCH_SIZE);
+            ChannelWriter out = new ChannelWriter(channel);
+            StringBuilder row = new StringBuilder(256);
+
+            if (format == Format.CSV) {
+                row.append("id;surname;name;lastname;age;city;position\n");
+                out.write(row);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    row.setLength(0);
+                    if (format == Format.CSV) {
+                        appendCsvRow(row, rs);
+                    } else {
+                        appendJsonRow(row, rs);
+                    }
+                    out.write(row);
+
+                    done++;
+                    if (progress != null && done % PROGRESS_STEP == 0) {
+                        progress.update(done, total);
+                    }
+                }
+            }
+            out.flush();
+        }
+
+        if (progress != null) {
+            progress.update(done, total);
+        }
+        return done;
+    }
+
+    /**
+     * Возвращает количество строк в таблице работников.
+     */
+    private long count(Connection conn) throws SQLException {
+        PreparedStatement stmt = StatementCatalog.prepare(conn, "sql.count");
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void appendCsvRow(StringBuilder row, ResultSet rs) throws SQLException {
+        row.append(rs.getInt("id")).append(CSV_DELIMITER);
+        appendCsv(row, rs.getString("surname")).append(CSV_DELIMITER);
+        appendCsv(row, rs.getString("name")).append(CSV_DELIMITER);
+        appendCsv(row, rs.getString("lastname")).append(CSV_DELIMITER);
+        row.append(rs.getInt("age")).append(CSV_DELIMITER);
+        appendCsv(row, rs.getString("city")).append(CSV_DELIMITER);
+        appendCsv(row, rs.getString("position")).append('\n');
+    }
+
+    private static void appendJsonRow(StringBuilder row, ResultSet rs) throws SQLException {
+        row.append("{\"id\":").append(rs.getInt("id"));
+        row.append(",\"surname\":");
+        appendJson(row, rs.getString("surname"));
+        row.append(",\"name\":");
+        appendJson(row, rs.getString("name"));
+        row.append(",\"lastname\":");
+        appendJson(row, rs.getString("lastname"));
+        row.append(",\"age\":").append(rs.getInt("age"));
+        row.append(",\"city\":");
+        appendJson(row, rs.getString("city"));
+        row.append(",\"position\":");
+        appendJson(row, rs.getString("position"));
+        row.append("}\n");
+    }
+
+    /**
+     * Добавляет значение поля CSV, заключая его в кавычки при необходимости.
+     */
+    private static StringBuilder appendCsv(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb;
+        }
+        boolean quote = value.indexOf(CSV_DELIMITER) >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            return sb.append(value);
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Добавляет строковое значение JSON в кавычках с экранированием.
+     *
+     * @param sb построитель строки
+     * @param value значение, {@code null} записывается как {@code null}
+     */
+    static void appendJson(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Буферизованная запись текста в канал файла в кодировке UTF-8.
+     */
+    private static class ChannelWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, false);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isUnderflow()) {
+                    return;
+                } else {
+                    result.throwException();
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mivlgu.KP;
+
+/**
+ * Поля работника, доступные в условиях отбора ({@link Criteria})
+ * и сортировке ({@link Query}).
+ * <p>
+ * Для каждого поля известен столбец таблицы {@code workers} и индекс
+ * по нему (миграция 2): по фамилии и должности индексы построены
+ * с правилом сравнения {@code NOCASE}, по городу и возрасту —
+ * с обычным, идентификатор является первичным ключом.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public enum WorkerField {
+
+    ID("id", null, Index.BINARY, false),
+    NAME("name", null, Index.NONE, true),
+    SURNAME("surname", "idx_workers_surname", Index.NOCASE, true),
+    LASTNAME("lastname", null, Index.NONE, true),
+    AGE("age", "idx_workers_age", Index.BINARY, false),
+    CITY("city", "idx_workers_city", Index.BINARY, true),
+    POSITION("position", "idx_workers_position", Index.NOCASE, true);
+
+    /** Вид индекса по столбцу */
+    public enum Index {
+        /** Индекса нет */
+        NONE,
+        /** Индекс с обычным сравнением */
+        BINARY,
+        /** Индекс со сравнением без учёта регистра латиницы */
+        NOCASE
+    }
+
+    private final String column;
+    private final String indexName;
+    private final Index index;
+    private final boolean text;
+
+    WorkerField(String column, String indexName, Index index, boolean text) {
+        this.column = column;
+        this.indexName = indexName;
+        this.index = index;
+        this.text = text;
+    }
+
+    /**
+     * Возвращает имя столбца таблицы.
+     *
+     * @return имя столбца
+     */
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Возвращает имя индекса по столбцу.
+     *
+     * @return имя индекса или {@code null} для первичного ключа
+     *         и неиндексированных полей
+     */
+    public String indexName() {
+        return indexName;
+    }
+
+    /**
+     * Возвращает вид индекса по столбцу.
+     *
+     * @return вид индекса
+     */
+    public Index index() {
+        return index;
+    }
+
+    /**
+     * Проверяет, является ли поле строковым.
+     *
+     * @return {@code true} для строковых полей
+     */
+    public boolean isText() {
+        return text;
+    }
+
+    /**
+     * Возвращает значение поля работника.
+     *
+     * @param worker работник
+     * @return значение поля
+     */
+    public Object value(Worker worker) {
+        return switch (this) {
+            case ID -> worker.getId();
+            case NAME -> worker.getName();
+            case SURNAME -> worker.getSurname();
+            case LASTNAME -> worker.getLastname();
+            case AGE -> worker.getAge();
+            case CITY -> worker.getCity();
+            case POSITION -> worker.getPosition();
+        };
+    }
+}
@@ -0,0 +1,767 @@
+package com.mivlgu.KP;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serial;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Встроенный HTTP-сервер с JSON API над {@link Dao} работников.
+ * <p>
+ * Сервер построен на {@link HttpServer} из JDK; каждый запрос
+ * обрабатывается в собственном виртуальном потоке, поэтому
+ * тысячи одновременных соединений не требуют тысяч потоков ОС.
+ * Обращения к базе выполняются через общий DAO
+ * ({@link DaoFactory#workerDao()}) со всеми его декораторами —
+ * кэшем, индексом поиска и метриками.
+ * </p>
+ *
+ * Ресурсы:
+ * <pre>
+ * GET    /api/workers?limit=&amp;after=&amp;offset=&amp;sort=&amp;desc=&amp;city=&amp;position=&amp;surname=&amp;age_min=&amp;age_max=
+ * GET    /api/workers/count?city=&amp;position=&amp;surname=&amp;age_min=&amp;age_max=
+ * GET    /api/workers/groups?by=city|position&amp;city=&amp;position=&amp;surname=&amp;age_min=&amp;age_max=
+ * GET    /api/workers/search?q=&amp;limit=
+ * GET    /api/workers/{id}
+ * POST   /api/workers
+ * PUT    /api/workers/{id}
+ * DELETE /api/workers/{id}
+ * </pre>
+ *
+ * Списки выдаются постранично (не более {@link #MAX_LIMIT} строк)
+ * продолжением по ключу: {@code after} — идентификатор последней строки
+ * предыдущей страницы, ссылка на следующую страницу передаётся
+ * в заголовке {@code Link}. Подсчёт по городам или должностям
+ * ({@code /groups}) выполняется по столбцовому хранилищу
+ * ({@link WorkerColumnStore}) без запроса к таблице; префикс фамилии
+ * в нём сравнивается без учёта регистра для любых букв. Массив JSON записывается в ответ по мере
+ * сериализации строк с передачей по частям, без сборки всего ответа в памяти.
+ *
+ * Ответы на чтение помечаются заголовком {@code ETag} — версией
+ * журнала изменений ({@link ChangeFeed}), общей для всей таблицы.
+ * Версия читается до выполнения запроса, поэтому тело ответа
+ * не старше своего {@code ETag}. Повторный запрос с {@code If-None-Match}
+ * при неизменной таблице получает {@code 304} без выполнения запроса
+ * к таблице; одновременные проверки версии объединяются в одно чтение.
+ * Условные изменения ({@code If-Match}) не поддерживаются.
+ *
+ * Количество одновременных обращений к базе ограничено
+ * ({@code server.max_queries}), чтобы очередь за соединениями пула
+ * не превышала его время ожидания: запрос, не дождавшийся
+ * разрешения за {@code server.queue_timeout_ms}, получает {@code 503}.
+ * Разрешение освобождается до записи ответа, поэтому медленный
+ * клиент не занимает соединение с базой.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WorkerHttpServer implements AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WorkerHttpServer.class);
+
+    /** Порт по умолчанию */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** Длина очереди входящих соединений по умолчанию */
+    public static final int DEFAULT_BACKLOG = 1024;
+
+    /** Наибольшее количество одновременных обращений к базе по умолчанию */
+    public static final int DEFAULT_MAX_QUERIES = 64;
+
+    /** Время ожидания разрешения на обращение к базе по умолчанию, мс */
+    public static final long DEFAULT_QUEUE_TIMEOUT_MS = 2000;
+
+    /** Количество строк на странице по умолчанию */
+    static final int DEFAULT_LIMIT = 100;
+
+    /** Наибольшее количество строк на странице */
+    static final int MAX_LIMIT = 1000;
+
+    /** Корень ресурсов API */
+    private static final String ROOT = "/api/workers";
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Dao<Worker, Integer> dao;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /** Разрешения на одновременные обращения к базе */
+    private final Semaphore queries;
+    private final long queueTimeoutMillis;
+    private final VersionReader versions = new VersionReader();
+
+    private WorkerHttpServer(Dao<Worker, Integer> dao, InetSocketAddress address, int backlog,
+                             int maxQueries, long queueTimeoutMillis) throws IOException {
+        this.dao = dao;
+        this.queries = new Semaphore(maxQueries);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, backlog);
+        server.setExecutor(executor);
+        server.createContext(ROOT, this::handle);
+        server.start();
+    }
+
+    /**
+     * Запускает сервер с параметрами из конфигурации приложения.
+     * Хранилище должно быть инициализировано
+     * ({@link LabApplication#initStorage()}).
+     *
+     * @param properties конфигурация приложения
+     * @param port порт или {@code -1} для значения {@code server.port};
+     *             {@code 0} — любой свободный порт
+     * @return запущенный сервер
+     * @throws IOException если порт занят
+     */
+    public static WorkerHttpServer start(Properties properties, int port) throws IOException {
+        // настройки HttpServer читаются при первом создании сервера:
+        // по умолчанию он держит не более 200 простаивающих соединений keep-alive
+        // и не отключает алгоритм Нейгла, из-за чего короткие ответы, записанные
+        // заголовками и телом по отдельности, ждут отложенного подтверждения около 40 мс
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections",
+                    properties.getProperty("server.max_idle_connections", "4096").trim());
+        }
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        int actualPort = port >= 0 ? port : intProperty(properties, "server.port", DEFAULT_PORT);
+        WorkerHttpServer httpServer = new WorkerHttpServer(DaoFactory.workerDao(),
+                new InetSocketAddress(actualPort),
+                intProperty(properties, "server.backlog", DEFAULT_BACKLOG),
+                intProperty(properties, "server.max_queries", DEFAULT_MAX_QUERIES),
+                intProperty(properties, "server.queue_timeout_ms", (int) DEFAULT_QUEUE_TIMEOUT_MS));
+        logger.info("HTTP API запущен: http://localhost:{}{}", httpServer.getPort(), ROOT);
+        return httpServer;
+    }
+
+    private static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Возвращает порт, на котором сервер принимает соединения.
+     *
+     * @return номер порта
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Останавливает сервер, давая начатым запросам до секунды на завершение.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("HTTP API остановлен");
+    }
+
+    /**
+     * Разбирает путь и метод запроса и выполняет соответствующую операцию.
+     */
+    private void handle(HttpExchange exchange) {
+        try {
+            String path = exchange.getRequestURI().getRawPath().substring(ROOT.length());
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+            switch (path) {
+                case "" -> {
+                    if ("GET".equals(method)) {
+                        list(exchange, params);
+                    } else if ("POST".equals(method)) {
+                        create(exchange);
+                    } else {
+                        throw methodNotAllowed("GET, POST");
+                    }
+                }
+                case "/count" -> {
+                    requireGet(method);
+                    count(exchange, params);
+                }
+                case "/groups" -> {
+                    requireGet(method);
+                    groups(exchange, params);
+                }
+                case "/search" -> {
+                    requireGet(method);
+                    search(exchange, params);
+                }
+                default -> {
+                    int id = id(path);
+                    switch (method) {
+                        case "GET" -> get(exchange, id);
+                        case "PUT" -> update(exchange, id);
+                        case "DELETE" -> delete(exchange, id);
+                        default -> throw methodNotAllowed("GET, PUT, DELETE");
+                    }
+                }
+            }
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage(), e.headers);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage(), Map.of());
+        } catch (IOException e) {
+            // клиент закрыл соединение во время ответа
+            logger.debug("Ответ не отправлен: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Ошибка обработки запроса {} {}",
+                    exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, 500, "внутренняя ошибка сервера", Map.of());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Страница работников с необязательными условиями и сортировкой.
+     */
+    private void list(HttpExchange exchange, Map<String, String> params) throws IOException {
+        int limit = limit(params);
+        Integer after = params.containsKey("after") ? integer(params, "after") : null;
+        int offset = params.containsKey("offset") ? integer(params, "offset") : 0;
+        if (offset < 0) {
+            throw new IllegalArgumentException("отрицательный offset");
+        }
+        WorkerField sort = params.containsKey("sort") ? field(params.get("sort")) : WorkerField.ID;
+        boolean descending = Boolean.parseBoolean(params.get("desc"));
+        Criteria criteria = criteria(params);
+
+        String etag = etag();
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        List<Worker> page = query(() -> {
+            if (criteria == null && sort == WorkerField.ID && !descending && offset == 0) {
+                // основной случай — продолжение по первичному ключу
+                return dao.findPage(after == null ? 0 : after, limit);
+            }
+            Query query = (criteria == null ? Query.all() : Query.where(criteria)).orderBy(sort, descending);
+            return dao.findPage(query, afterRow(sort, after), offset, limit);
+        });
+
+        if (page.size() == limit) {
+            Map<String, String> next = new LinkedHashMap<>(params);
+            next.remove("offset");
+            next.put("after", String.valueOf(page.get(page.size() - 1).getId()));
+            exchange.getResponseHeaders().set("Link", "<" + ROOT + "?" + query(next) + ">; rel=\"next\"");
+        }
+        sendArray(exchange, etag, page);
+    }
+
+    /**
+     * Строка, после которой начинается страница. Для сортировки
+     * не по идентификатору нужны значения её полей, поэтому
+     * она читается из базы.
+     */
+    private Worker afterRow(WorkerField sort, Integer after) {
+        if (after == null) {
+            return null;
+        }
+        if (sort == WorkerField.ID) {
+            Worker row = new Worker();
+            row.setId(after);
+            return row;
+        }
+        Worker row = dao.findById(after);
+        if (row == null) {
+            throw new HttpError(404, "строка after=" + after + " не найдена");
+        }
+        return row;
+    }
+
+    private void count(HttpExchange exchange, Map<String, String> params) throws IOException {
+        Criteria criteria = criteria(params);
+        String etag = etag();
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        long count = query(() -> criteria == null ? dao.count() : dao.count(criteria));
+        send(exchange, 200, etag, "{\"count\":" + count + "}");
+    }
+
+    /**
+     * Количество работников по значениям города или должности,
+     * по убыванию количества.
+     */
+    private void groups(HttpExchange exchange, Map<String, String> params) throws IOException {
+        WorkerColumnStore.Column column = column(params.get("by"));
+        WorkerColumnStore.Filter filter = filter(params);
+        String etag = etag();
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        // первое обращение загружает хранилище из базы
+        Map<String, Integer> counts = query(() -> DaoFactory.columnStore().countBy(column, filter));
+        StringBuilder sb = new StringBuilder("[");
+        counts.forEach((value, count) -> {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append("\n{\"value\":");
+            WorkerExporter.appendJson(sb, value);
+            sb.append(",\"count\":").append(count).append('}');
+        });
+        send(exchange, 200, etag, sb.append("\n]\n").toString());
+    }
+
+    private void search(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String value = params.get("q");
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("не задан параметр q");
+        }
+        int limit = limit(params);
+        String etag = etag();
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        List<Worker> found = query(() -> dao.findBySurnameOrGroupName(value.trim(), limit));
+        sendArray(exchange, etag, found);
+    }
+
+    private void get(HttpExchange exchange, int id) throws IOException {
+        String etag = etag();
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        Worker worker = query(() -> dao.findById(id));
+        if (worker == null) {
+            throw new HttpError(404, "работник " + id + " не найден");
+        }
+        sendWorker(exchange, 200, etag, worker);
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        Worker worker = WorkerJson.parse(body(exchange));
+        Worker saved = query(() -> dao.save(worker));
+        if (saved.getId() == 0) {
+            throw new HttpError(500, "работник не сохранён");
+        }
+        exchange.getResponseHeaders().set("Location", ROOT + "/" + saved.getId());
+        sendWorker(exchange, 201, null, saved);
+    }
+
+    private void update(HttpExchange exchange, int id) throws IOException {
+        Worker worker = WorkerJson.parse(body(exchange));
+        worker.setId(id);
+        Worker updated = query(() -> dao.findById(id) == null ? null : dao.update(worker));
+        if (updated == null) {
+            throw new HttpError(404, "работник " + id + " не найден");
+        }
+        sendWorker(exchange, 200, null, updated);
+    }
+
+    private void delete(HttpExchange exchange, int id) throws IOException {
+        boolean deleted = query(() -> {
+            if (dao.findById(id) == null) {
+                return false;
+            }
+            dao.deleteById(id);
+            return true;
+        });
+        if (!deleted) {
+            throw new HttpError(404, "работник " + id + " не найден");
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Выполняет обращение к базе, дождавшись разрешения.
+     *
+     * @throws HttpError 503, если разрешение не получено вовремя
+     */
+    private <T> T query(Supplier<T> action) {
+        boolean acquired;
+        try {
+            acquired = queries.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "сервер останавливается");
+        }
+        if (!acquired) {
+            throw new HttpError(503, "сервер перегружен", Map.of("Retry-After", "1"));
+        }
+        try {
+            return action.get();
+        } finally {
+            queries.release();
+        }
+    }
+
+    /**
+     * Возвращает {@code ETag} текущей версии таблицы
+     * или {@code null}, если версию прочитать не удалось.
+     */
+    private String etag() {
+        try {
+            // отложенные изменения ещё не учтены в журнале изменений
+            DaoFactory.flush();
+        } catch (SQLException e) {
+            logger.warn("Не удалось сохранить отложенные изменения", e);
+            return null;
+        }
+        long version = versions.current();
+        return version < 0 ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Отвечает {@code 304}, если клиент уже получил ответ этой версии.
+     *
+     * @return {@code true}, если ответ отправлен
+     */
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (etag == null || header == null) {
+            return false;
+        }
+        for (String tag : header.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || value.equals("*")) {
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("ETag", etag);
+                headers.set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Записывает массив работников по мере сериализации.
+     */
+    private static void sendArray(HttpExchange exchange, String etag,
+                                  Collection<Worker> workers) throws IOException {
+        headers(exchange, etag);
+        // длина 0 — передача по частям
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            StringBuilder row = new StringBuilder(256);
+            int written = 0;
+            out.write('[');
+            for (Worker worker : workers) {
+                row.setLength(0);
+                if (written++ > 0) {
+                    row.append(',');
+                }
+                row.append('\n');
+                WorkerJson.append(row, worker);
+                out.append(row);
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    private static void sendWorker(HttpExchange exchange, int status, String etag,
+                                   Worker worker) throws IOException {
+        StringBuilder sb = new StringBuilder(256);
+        WorkerJson.append(sb, worker);
+        send(exchange, status, etag, sb.append('\n').toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String etag, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        headers(exchange, etag);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void headers(HttpExchange exchange, String etag) {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        if (etag != null) {
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "no-cache");
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message,
+                                  Map<String, String> extraHeaders) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        WorkerExporter.appendJson(sb, message);
+        sb.append("}\n");
+        try {
+            extraHeaders.forEach(exchange.getResponseHeaders()::set);
+            send(exchange, status, null, sb.toString());
+        } catch (IOException e) {
+            logger.debug("Ответ об ошибке не отправлен: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Читает тело запроса не длиннее {@link WorkerJson#MAX_LENGTH} байт.
+     */
+    private static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(WorkerJson.MAX_LENGTH + 1);
+            if (bytes.length > WorkerJson.MAX_LENGTH) {
+                throw new HttpError(413, "тело запроса длиннее " + WorkerJson.MAX_LENGTH + " байт");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Собирает условие из параметров {@code city}, {@code position},
+     * {@code surname} (префикс), {@code age_min} и {@code age_max}.
+     *
+     * @return условие или {@code null}, если параметры не заданы
+     */
+    private static Criteria criteria(Map<String, String> params) {
+        List<Criteria> parts = new ArrayList<>();
+        if (params.containsKey("city")) {
+            parts.add(Criteria.eq(WorkerField.CITY, params.get("city")));
+        }
+        if (params.containsKey("position")) {
+            parts.add(Criteria.eq(WorkerField.POSITION, params.get("position")));
+        }
+        if (params.containsKey("surname")) {
+            parts.add(Criteria.startsWith(WorkerField.SURNAME, params.get("surname")));
+        }
+        if (params.containsKey("age_min") && params.containsKey("age_max")) {
+            parts.add(Criteria.between(WorkerField.AGE, integer(params, "age_min"), integer(params, "age_max")));
+        } else if (params.containsKey("age_min")) {
+            parts.add(Criteria.atLeast(WorkerField.AGE, integer(params, "age_min")));
+        } else if (params.containsKey("age_max")) {
+            parts.add(Criteria.atMost(WorkerField.AGE, integer(params, "age_max")));
+        }
+        return switch (parts.size()) {
+            case 0 -> null;
+            case 1 -> parts.get(0);
+            default -> Criteria.allOf(parts.toArray(new Criteria[0]));
+        };
+    }
+
+    /**
+     * Собирает условия отбора столбцового хранилища из тех же параметров,
+     * что и {@link #criteria}.
+     */
+    private static WorkerColumnStore.Filter filter(Map<String, String> params) {
+        WorkerColumnStore.Filter filter = new WorkerColumnStore.Filter();
+        if (params.containsKey("city")) {
+            filter.city(params.get("city"));
+        }
+        if (params.containsKey("position")) {
+            filter.position(params.get("position"));
+        }
+        if (params.containsKey("surname")) {
+            filter.surnamePrefix(params.get("surname"));
+        }
+        if (params.containsKey("age_min") || params.containsKey("age_max")) {
+            filter.age(params.containsKey("age_min") ? integer(params, "age_min") : Integer.MIN_VALUE,
+                    params.containsKey("age_max") ? integer(params, "age_max") : Integer.MAX_VALUE);
+        }
+        return filter;
+    }
+
+    private static WorkerColumnStore.Column column(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("не задан параметр by");
+        }
+        try {
+            return WorkerColumnStore.Column.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("параметр by должен быть city или position");
+        }
+    }
+
+    private static int limit(Map<String, String> params) {
+        if (!params.containsKey("limit")) {
+            return DEFAULT_LIMIT;
+        }
+        int limit = integer(params, "limit");
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit должен быть от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    private static WorkerField field(String name) {
+        try {
+            return WorkerField.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("неизвестное поле сортировки: " + name);
+        }
+    }
+
+    private static int integer(Map<String, String> params, String name) {
+        try {
+            return Integer.parseInt(params.get(name).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("параметр " + name + " не является целым числом");
+        }
+    }
+
+    private static int id(String path) {
+        try {
+            return Integer.parseInt(path.substring(1));
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "ресурс не найден");
+        }
+    }
+
+    private static void requireGet(String method) {
+        if (!"GET".equals(method)) {
+            throw methodNotAllowed("GET");
+        }
+    }
+
+    private static HttpError methodNotAllowed(String allow) {
+        return new HttpError(405, "метод не поддерживается", Map.of("Allow", allow));
+    }
+
+    /**
+     * Разбирает строку запроса; при повторе параметра используется последнее значение.
+     */
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static String query(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder();
+        params.forEach((name, value) -> {
+            if (!sb.isEmpty()) {
+                sb.append('&');
+            }
+            sb.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Чтение версии таблицы с объединением одновременных обращений.
+     * <p>
+     * Запрос может использовать только чтение, начатое после его
+     * поступления, иначе он получил бы версию старше уже видимых
+     * изменений. Поэтому запрос присоединяется к выполняющемуся чтению,
+     * если оно начато позже, и начинает новое в противном случае.
+     * Под нагрузкой одновременно выполняется не более двух чтений версии.
+     * </p>
+     */
+    private static final class VersionReader {
+
+        private final ChangeFeed changeFeed = new ChangeFeed();
+        private CompletableFuture<Long> pending;
+        private long pendingStart;
+
+        /**
+         * @return версия или {@code -1} при ошибке чтения
+         */
+        long current() {
+            long arrival = System.nanoTime();
+            CompletableFuture<Long> future;
+            boolean owner = false;
+            synchronized (this) {
+                if (pending != null && pendingStart - arrival >= 0) {
+                    future = pending;
+                } else {
+                    future = new CompletableFuture<>();
+                    pending = future;
+                    pendingStart = System.nanoTime();
+                    owner = true;
+                }
+            }
+            if (owner) {
+                try {
+                    future.complete(changeFeed.currentVersion());
+                } catch (SQLException | RuntimeException e) {
+                    logger.warn("Не удалось прочитать версию таблицы", e);
+                    future.complete(-1L);
+                } finally {
+                    synchronized (this) {
+                        if (pending == future) {
+                            pending = null;
+                        }
+                    }
+                }
+            }
+            return future.join();
+        }
+    }
+
+    /**
+     * Ответ с кодом ошибки HTTP.
+     */
+    private static final class HttpError extends RuntimeException {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        private final transient Map<String, String> headers;
+
+        HttpError(int status, String message) {
+            this(status, message, Map.of());
+        }
+
+        HttpError(int status, String message, Map<String, String> headers) {
+            super(message, null, false, false);
+            this.status = status;
+            this.headers = headers;
+        }
+    }
+}
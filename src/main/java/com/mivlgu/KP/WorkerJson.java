@@ -0,0 +1,183 @@
+package com.mivlgu.KP;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Представление работника в JSON для HTTP API ({@link WorkerHttpServer}).
+ * <p>
+ * Объект записывается с теми же полями и в том же порядке,
+ * что и строка экспорта JSON Lines ({@link WorkerExporter}).
+ * Для разбора тел запросов достаточно плоского объекта
+ * со строками и числами, поэтому вместо библиотеки JSON
+ * используется небольшой разборщик; вложенные объекты
+ * и массивы не допускаются.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+final class WorkerJson {
+
+    /** Наибольшая длина тела запроса с одним работником, символов */
+    static final int MAX_LENGTH = 16 * 1024;
+
+    private WorkerJson() {
+    }
+
+    /**
+     * Добавляет объект работника.
+     *
+     * @param sb построитель строки
+     * @param worker работник
+     */
+    static void append(StringBuilder sb, Worker worker) {
+        sb.append("{\"id\":").append(worker.getId());
+        sb.append(",\"surname\":");
+        WorkerExporter.appendJson(sb, worker.getSurname());
+        sb.append(",\"name\":");
+        WorkerExporter.appendJson(sb, worker.getName());
+        sb.append(",\"lastname\":");
+        WorkerExporter.appendJson(sb, worker.getLastname());
+        sb.append(",\"age\":").append(worker.getAge());
+        sb.append(",\"city\":");
+        WorkerExporter.appendJson(sb, worker.getCity());
+        sb.append(",\"position\":");
+        WorkerExporter.appendJson(sb, worker.getPosition());
+        sb.append('}');
+    }
+
+    /**
+     * Разбирает и проверяет работника из тела запроса.
+     * Поле {@code id} и неизвестные поля не учитываются.
+     *
+     * @param json объект JSON
+     * @return работник без идентификатора
+     * @throws IllegalArgumentException если тело не является объектом
+     *                                  или поля не прошли проверку
+     */
+    static Worker parse(String json) {
+        Map<String, String> fields = new Parser(json).object();
+        return WorkerCsvImporter.validate(fields.get("surname"), fields.get("name"),
+                fields.get("lastname"), fields.get("age"), fields.get("city"), fields.get("position"));
+    }
+
+    /**
+     * Разборщик плоского объекта JSON.
+     * Значения возвращаются строками, {@code null} — отсутствием значения.
+     */
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                do {
+                    String name = string();
+                    expect(':');
+                    fields.put(name, value());
+                } while (consume(','));
+                expect('}');
+            }
+            if (peek() != 0) {
+                throw error("лишние символы после объекта");
+            }
+            return fields;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("вложенные объекты и массивы не поддерживаются");
+            }
+            int start = pos;
+            while (pos < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) {
+                throw error("ожидалось значение");
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> sb.append(escaped);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw error("неполная escape-последовательность");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("недопустимая escape-последовательность");
+                        }
+                        pos += 4;
+                    }
+                    default -> throw error("недопустимая escape-последовательность");
+                }
+            }
+            throw error("незакрытая строка");
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("ожидался символ '" + c + "'");
+            }
+            pos++;
+        }
+
+        private boolean consume(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /** Пропускает пробелы и возвращает следующий символ или {@code 0} в конце текста */
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("некорректный JSON в позиции " + pos + ": " + message);
+        }
+    }
+}
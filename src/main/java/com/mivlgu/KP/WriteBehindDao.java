@@ -0,0 +1,621 @@
+package com.mivlgu.KP;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * DAO с отложенной записью изменений.
+ * <p>
+ * Вставки, обновления и удаления не записываются в базу сразу,
+ * а накапливаются в журнале в памяти. Изменения одной строки
+ * объединяются: повторное обновление заменяет предыдущее,
+ * удаление отменяет ожидающее обновление, а удаление ещё не
+ * сохранённого работника убирает его из журнала. Журнал хранит
+ * копии данных на момент вызова, поэтому последующие изменения
+ * объекта вызывающим кодом в него не попадают.
+ * </p>
+ *
+ * Журнал сохраняется одной транзакцией ({@link WorkerDao#applyChanges})
+ * фоновым потоком каждые {@code flushIntervalMillis} миллисекунд
+ * или сразу после накопления {@code maxPending} изменений.
+ * Чтение по идентификатору учитывает ожидающие обновления и удаления
+ * журнала. Постраничное чтение ({@code findPage}, {@code findIdAfter})
+ * журнал не сохраняет и видит данные на момент последнего сохранения,
+ * чтобы прокрутка таблицы не ждала записи в базу; изменения
+ * доходят до таблицы через ленту изменений после сохранения.
+ * Перед остальными чтениями журнал сохраняется, поэтому они
+ * видят собственные изменения.
+ *
+ * При аварийном завершении процесса теряются изменения, накопленные
+ * после последнего сохранения (не более одного интервала), но база
+ * не содержит частично сохранённых групп. При ошибке записи группа
+ * возвращается в журнал и сохраняется повторно, но не более
+ * {@code maxAttempts} раз подряд: затем она переносится в карантин
+ * ({@link #getQuarantinedCount()}), чтобы не задерживать следующие
+ * изменения, и может быть возвращена в журнал {@link #retryQuarantined()}.
+ * При штатном завершении следует вызвать {@link #close()}.
+ *
+ * Идентификатор нового работника присваивается при сохранении журнала.
+ * Объект, переданный в {@link #save}, при этом не изменяется, так как
+ * сохранение выполняется фоновым потоком, а объект может быть связан
+ * с интерфейсом: присвоенный идентификатор возвращает {@link #idOf},
+ * а последующие {@link #update} и {@link #delete} этого объекта
+ * применяются к сохранённой строке.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+public class WriteBehindDao implements Dao<Worker, Integer>, AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WriteBehindDao.class);
+
+    /** Интервал сохранения журнала по умолчанию, мс */
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 200;
+
+    /** Количество изменений, после которого журнал сохраняется сразу */
+    public static final int DEFAULT_MAX_PENDING = 256;
+
+    /** Количество попыток сохранения группы до переноса в карантин */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    /** DAO, выполняющий запись в базу данных */
+    private final WorkerDao delegate;
+
+    /** Количество изменений, после которого журнал сохраняется сразу */
+    private final int maxPending;
+
+    /** Количество попыток сохранения группы до переноса в карантин */
+    private final int maxAttempts;
+
+    /** Поток, сохраняющий журнал */
+    private final ScheduledExecutorService committer;
+
+    /** Блокировка, упорядочивающая сохранение журнала */
+    private final Object flushLock = new Object();
+
+    /** Журнал изменений, ожидающих сохранения */
+    private Journal journal = new Journal();
+
+    /** Группы, не сохранённые за {@link #maxAttempts} попыток */
+    private final List<Journal> quarantine = new ArrayList<>();
+
+    /**
+     * Идентификаторы, присвоенные новым работникам при сохранении,
+     * по ссылке на объект вызывающего кода
+     */
+    private final Map<Worker, Integer> assignedIds = new WeakHashMap<>();
+
+    /** Признак закрытия DAO */
+    private volatile boolean closed;
+
+    /**
+     * Создаёт DAO с параметрами по умолчанию и запускает
+     * фоновое сохранение журнала.
+     *
+     * @param delegate DAO, выполняющий запись в базу данных
+     * @return DAO с отложенной записью
+     */
+    public static WriteBehindDao start(WorkerDao delegate) {
+        return start(delegate, DEFAULT_FLUSH_INTERVAL_MS, DEFAULT_MAX_PENDING, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * Создаёт DAO и запускает фоновое сохранение журнала.
+     *
+     * @param delegate DAO, выполняющий запись в базу данных
+     * @param flushIntervalMillis интервал сохранения журнала, мс
+     * @param maxPending количество изменений, после которого
+     *                   журнал сохраняется сразу
+     * @param maxAttempts количество попыток сохранения группы
+     *                    до переноса в карантин
+     * @return DAO с отложенной записью
+     */
+    public static WriteBehindDao start(WorkerDao delegate, long flushIntervalMillis,
+                                       int maxPending, int maxAttempts) {
+        WriteBehindDao dao = new WriteBehindDao(delegate, flushIntervalMillis, maxPending, maxAttempts);
+        // сохранение планируется после конструктора, чтобы поток не увидел недостроенный объект
+        dao.committer.scheduleWithFixedDelay(dao::flushQuietly,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Отложенная запись: интервал {} мс, не более {} изменений, {} попыток",
+                flushIntervalMillis, maxPending, maxAttempts);
+        return dao;
+    }
+
+    private WriteBehindDao(WorkerDao delegate, long flushIntervalMillis, int maxPending, int maxAttempts) {
+        if (flushIntervalMillis < 1 || maxPending < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("Параметры отложенной записи должны быть положительными");
+        }
+        this.delegate = delegate;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Возвращает работника с учётом ожидающих изменений журнала.
+     */
+    @Override
+    public Worker findById(Integer id) {
+        synchronized (this) {
+            if (journal.deletes.contains(id)) {
+                return null;
+            }
+            Worker pending = journal.updates.get(id);
+            if (pending != null) {
+                return copy(pending);
+            }
+        }
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Collection<Worker> findAll() {
+        flushQuietly();
+        return delegate.findAll();
+    }
+
+    /**
+     * Добавляет копию работника в журнал.
+     * Идентификатор, присвоенный при сохранении журнала, возвращает {@link #idOf}.
+     *
+     * @param worker новый работник
+     * @return тот же объект работника
+     */
+    @Override
+    public Worker save(Worker worker) {
+        enqueue(j -> j.insert(worker));
+        return worker;
+    }
+
+    /**
+     * Добавляет копию обновлённого работника в журнал.
+     * Если работник ещё не сохранён, обновляется ожидающая вставка.
+     *
+     * @param worker объект работника с обновлёнными данными
+     * @return тот же объект работника
+     */
+    @Override
+    public Worker update(Worker worker) {
+        awaitInsert(worker);
+        enqueue(j -> j.update(withAssignedId(j, worker)));
+        return worker;
+    }
+
+    @Override
+    public void delete(Worker entity) {
+        if (entity != null) {
+            awaitInsert(entity);
+            enqueue(j -> j.delete(withAssignedId(j, entity)));
+        }
+    }
+
+    @Override
+    public void deleteById(Integer id) {
+        enqueue(j -> j.deleteById(id));
+    }
+
+    @Override
+    public Collection<Worker> findBySurnameOrGroupName(String value) {
+        flushQuietly();
+        return delegate.findBySurnameOrGroupName(value);
+    }
+
+    @Override
+    public List<Worker> findBySurnameOrGroupName(String value, int limit) {
+        flushQuietly();
+        return delegate.findBySurnameOrGroupName(value, limit);
+    }
+
+    /**
+     * Сохраняет журнал и выполняет пакетную вставку сразу,
+     * так как она уже выполняется одной транзакцией.
+     */
+    @Override
+    public List<Integer> saveAll(Collection<Worker> entities) {
+        flushQuietly();
+        return delegate.saveAll(entities);
+    }
+
+    @Override
+    public int updateAll(Collection<Worker> entities) {
+        flushQuietly();
+        return delegate.updateAll(entities);
+    }
+
+    @Override
+    public int deleteAllById(Collection<Integer> ids) {
+        flushQuietly();
+        return delegate.deleteAllById(ids);
+    }
+
+    @Override
+    public long count() {
+        flushQuietly();
+        return delegate.count();
+    }
+
+    @Override
+    public long count(Criteria criteria) {
+        flushQuietly();
+        return delegate.count(criteria);
+    }
+
+    @Override
+    public List<Worker> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Integer findIdAfter(Integer afterId, int offset) {
+        return delegate.findIdAfter(afterId, offset);
+    }
+
+    @Override
+    public List<Worker> find(Query query) {
+        flushQuietly();
+        return delegate.find(query);
+    }
+
+    @Override
+    public List<Worker> findPage(Query query, Worker after, int offset, int limit) {
+        return delegate.findPage(query, after, offset, limit);
+    }
+
+    /**
+     * Возвращает идентификатор работника с учётом идентификаторов,
+     * присвоенных новым работникам при сохранении журнала.
+     *
+     * @param worker объект, переданный в {@link #save}
+     * @return идентификатор или {@code 0}, если работник ещё не сохранён
+     */
+    public int idOf(Worker worker) {
+        if (worker.getId() != 0) {
+            return worker.getId();
+        }
+        synchronized (this) {
+            Integer id = assignedIds.get(worker);
+            return id != null ? id : 0;
+        }
+    }
+
+    /**
+     * Возвращает количество изменений, ожидающих сохранения.
+     *
+     * @return размер журнала
+     */
+    public int getPendingCount() {
+        synchronized (this) {
+            return journal.size();
+        }
+    }
+
+    /**
+     * Возвращает количество изменений в карантине.
+     *
+     * @return количество изменений, не сохранённых за все попытки
+     */
+    public int getQuarantinedCount() {
+        synchronized (this) {
+            int count = 0;
+            for (Journal batch : quarantine) {
+                count += batch.size();
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Возвращает изменения из карантина в журнал перед более поздними
+     * изменениями и сохраняет журнал.
+     *
+     * @return количество сохранённых изменений
+     * @throws SQLException при ошибке записи
+     */
+    public int retryQuarantined() throws SQLException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                Journal merged = new Journal();
+                for (Journal batch : quarantine) {
+                    merged.replay(batch);
+                }
+                merged.replay(journal);
+                quarantine.clear();
+                journal = merged;
+            }
+            return flush();
+        }
+    }
+
+    /**
+     * Сохраняет журнал одной транзакцией.
+     * При ошибке изменения возвращаются в журнал, а после
+     * {@code maxAttempts} неудачных попыток подряд переносятся в карантин.
+     *
+     * @return количество сохранённых изменений
+     * @throws SQLException при ошибке записи
+     */
+    public int flush() throws SQLException {
+        synchronized (flushLock) {
+            Journal batch;
+            synchronized (this) {
+                if (journal.isEmpty()) {
+                    return 0;
+                }
+                batch = journal;
+                journal = new Journal();
+            }
+
+            long start = System.nanoTime();
+            try {
+                delegate.applyChanges(batch.deletes, batch.updates.values(), batch.insertedData());
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    if (++batch.attempts >= maxAttempts) {
+                        // более поздние изменения остаются в журнале и сохраняются отдельно
+                        quarantine.add(batch);
+                        DaoMetrics.error("writeBehind");
+                        logger.error("Группа из {} изменений не сохранена за {} попыток и перенесена в карантин: "
+                                + "удаления {}, обновления {}, вставок {}", batch.size(), batch.attempts,
+                                batch.deletes, batch.updates.keySet(), batch.inserts.size(), e);
+                    } else {
+                        batch.replay(journal);
+                        journal = batch;
+                    }
+                }
+                throw e;
+            }
+            synchronized (this) {
+                batch.assignIds(assignedIds);
+            }
+            logger.debug("Журнал сохранён: {} изменений за {} мкс", batch.size(),
+                    (System.nanoTime() - start) / 1_000);
+            return batch.size();
+        }
+    }
+
+    /**
+     * Останавливает фоновый поток и сохраняет оставшиеся изменения.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        committer.shutdown();
+        try {
+            committer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            int saved = flush();
+            logger.info("Отложенная запись остановлена, сохранено изменений: {}", saved);
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Изменения не сохранены при завершении: {}", getPendingCount(), e);
+        }
+        int quarantined = getQuarantinedCount();
+        if (quarantined > 0) {
+            logger.error("Изменения в карантине не сохранены при завершении: {}", quarantined);
+        }
+    }
+
+    /**
+     * Дожидается присвоения идентификатора работнику, который
+     * в данный момент сохраняется фоновым потоком. Иначе изменение
+     * такого работника было бы принято за новую вставку.
+     */
+    private void awaitInsert(Worker worker) {
+        if (worker.getId() != 0) {
+            return;
+        }
+        synchronized (this) {
+            if (journal.indexOf(worker) >= 0 || assignedIds.containsKey(worker)) {
+                return;
+            }
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Возвращает копию данных сохранённого нового работника
+     * с присвоенным идентификатором. Объект, ожидающий вставки
+     * или уже имеющий идентификатор, возвращается без изменений.
+     * Вызывается под блокировкой журнала.
+     */
+    private Worker withAssignedId(Journal journal, Worker worker) {
+        if (worker.getId() != 0 || journal.indexOf(worker) >= 0) {
+            return worker;
+        }
+        Integer id = assignedIds.get(worker);
+        if (id == null) {
+            return worker;
+        }
+        Worker data = copy(worker);
+        data.setId(id);
+        return data;
+    }
+
+    /**
+     * Сохраняет журнал, записывая ошибку в лог.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            logger.error("Ошибка сохранения журнала", e);
+        }
+    }
+
+    /**
+     * Вносит изменение в журнал и запускает сохранение,
+     * если журнал достиг предельного размера.
+     */
+    private void enqueue(Consumer<Journal> change) {
+        if (closed) {
+            throw new IllegalStateException("Отложенная запись остановлена");
+        }
+        int size;
+        synchronized (this) {
+            change.accept(journal);
+            size = journal.size();
+        }
+        if (size >= maxPending) {
+            committer.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Копирует данные работника.
+     */
+    private static Worker copy(Worker worker) {
+        return new Worker(worker.getId(), worker.getName(), worker.getSurname(),
+                worker.getLastname(), worker.getAge(), worker.getCity(), worker.getPosition());
+    }
+
+    /**
+     * Журнал изменений, объединённых по идентификатору.
+     * Хранит копии данных работников.
+     * Доступ синхронизирован внешним объектом.
+     */
+    private static class Journal {
+
+        /** Новые работники в порядке добавления */
+        private final List<Insert> inserts = new ArrayList<>();
+
+        /** Обновления по идентификатору, последнее заменяет предыдущее */
+        private final Map<Integer, Worker> updates = new LinkedHashMap<>();
+
+        /** Идентификаторы удаляемых работников */
+        private final Set<Integer> deletes = new LinkedHashSet<>();
+
+        /** Количество неудачных попыток сохранения подряд */
+        private int attempts;
+
+        void insert(Worker worker) {
+            if (worker.getId() != 0) {
+                update(worker);
+            } else {
+                put(new Insert(worker, copy(worker)));
+            }
+        }
+
+        void update(Worker worker) {
+            if (worker.getId() == 0) {
+                // ещё не сохранённый работник вставляется с новыми данными
+                insert(worker);
+            } else if (!deletes.contains(worker.getId())) {
+                updates.put(worker.getId(), copy(worker));
+            }
+        }
+
+        void delete(Worker worker) {
+            int index = indexOf(worker);
+            if (index >= 0) {
+                inserts.remove(index);
+            } else if (worker.getId() != 0) {
+                deleteById(worker.getId());
+            }
+        }
+
+        void deleteById(Integer id) {
+            updates.remove(id);
+            deletes.add(id);
+        }
+
+        /**
+         * Применяет изменения более позднего журнала поверх этого.
+         */
+        void replay(Journal later) {
+            for (Integer id : later.deletes) {
+                deleteById(id);
+            }
+            for (Worker data : later.updates.values()) {
+                if (!deletes.contains(data.getId())) {
+                    updates.put(data.getId(), data);
+                }
+            }
+            for (Insert insert : later.inserts) {
+                put(insert);
+            }
+        }
+
+        private void put(Insert insert) {
+            int index = indexOf(insert.worker);
+            if (index >= 0) {
+                inserts.set(index, insert);
+            } else {
+                inserts.add(insert);
+            }
+        }
+
+        /**
+         * Копии новых работников для записи в базу.
+         */
+        List<Worker> insertedData() {
+            List<Worker> data = new ArrayList<>(inserts.size());
+            for (Insert insert : inserts) {
+                data.add(insert.data);
+            }
+            return data;
+        }
+
+        /**
+         * Запоминает идентификаторы, присвоенные копиям при записи,
+         * по ссылкам на объекты вызывающего кода.
+         */
+        void assignIds(Map<Worker, Integer> ids) {
+            for (Insert insert : inserts) {
+                ids.put(insert.worker, insert.data.getId());
+            }
+        }
+
+        /**
+         * Ищет нового работника по ссылке, а не по значению полей.
+         */
+        private int indexOf(Worker worker) {
+            for (int i = 0; i < inserts.size(); i++) {
+                if (inserts.get(i).worker == worker) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int size() {
+            return inserts.size() + updates.size() + deletes.size();
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+    }
+
+    /**
+     * Ожидающая вставка: объект вызывающего кода и копия его данных.
+     *
+     * @param worker объект вызывающего кода, по которому ищется вставка
+     * @param data данные на момент последнего изменения
+     */
+    private record Insert(Worker worker, Worker data) {
+    }
+}
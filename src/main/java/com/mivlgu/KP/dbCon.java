@@ -3,79 +3,182 @@ package com.mivlgu.KP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Properties;
 
 /**
- * Класс для управления соединением с базой данных.
+ * Класс для управления соединениями с базой данных.
  * <p>
- * Обеспечивает создание, получение и корректное закрытие
- * соединения с базой данных SQLite, а также инициализацию
+ * Обеспечивает выдачу соединений из пула ({@link ConnectionPool})
+ * и корректное закрытие пула, а также инициализацию
  * структуры базы данных при запуске приложения.
  * </p>
  *
- * Реализует шаблон Singleton для работы с соединением.
+ * Пул создаётся при первом обращении по настройкам из
+ * {@code database.properties}. Любой параметр можно переопределить
+ * системным свойством с префиксом {@code kp.}, например
+ * {@code -Dkp.db.url=jdbc:sqlite:/tmp/test.db}.
  *
  * @author Igor Builov
  * @version 1.0
  */
 public class dbCon {
 
-    /** Соединение с базой данных */
-    private static Connection connection;
+    /** Префикс системных свойств, переопределяющих настройки */
+    private static final String OVERRIDE_PREFIX = "kp.";
+
+    /** Пул соединений с базой данных */
+    private static ConnectionPool pool;
+
+    /** Признак доступности полнотекстового индекса FTS5 */
+    private static volatile boolean fullTextSearch;
+
     private static final Logger logger =
             LoggerFactory.getLogger(dbCon.class);
 
     /**
-     * Возвращает соединение с базой данных.
-     * <p>
-     * Если соединение отсутствует или было закрыто,
-     * создаётся новое соединение с файлом базы данных.
-     * </p>
+     * Выдаёт соединение только для чтения.
+     * Соединение возвращается в пул при закрытии аренды.
+     *
+     * @return аренда соединения
+     * @throws SQLException при ошибке подключения к базе данных
+     */
+    public static ConnectionPool.Lease reader() throws SQLException {
+        return pool().acquireRead();
+    }
+
+    /**
+     * Выдаёт соединение для записи. Запись упорядочена:
+     * пока аренда не закрыта, другие потоки ожидают.
      *
-     * @return объект {@link Connection}
+     * @return аренда соединения
      * @throws SQLException при ошибке подключения к базе данных
      */
-    public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            String url = "jdbc:sqlite:worker.db";
-            connection = DriverManager.getConnection(url);
+    public static ConnectionPool.Lease writer() throws SQLException {
+        return pool().acquireWrite();
+    }
+
+    /**
+     * Возвращает пул соединений, создавая его при первом обращении.
+     *
+     * @return пул соединений
+     */
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(loadConfig());
+        }
+        return pool;
+    }
+
+    /**
+     * Загружает настройки пула из {@code database.properties}
+     * и применяет переопределения из системных свойств.
+     *
+     * @return настройки пула
+     */
+    private static Properties loadConfig() {
+        Properties config = new Properties();
+        try (InputStream is = dbCon.class.getResourceAsStream(
+                "/com/mivlgu/KP/database.properties")) {
+            if (is != null) {
+                config.load(is);
+            } else {
+                logger.warn("Файл database.properties не найден, используются настройки по умолчанию");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(OVERRIDE_PREFIX)) {
+                config.setProperty(key.substring(OVERRIDE_PREFIX.length()),
+                        System.getProperty(key));
+            }
         }
-        return connection;
+        return config;
     }
 
     /**
      * Инициализирует структуру базы данных.
      * <p>
      * Выполняет SQL-запрос создания таблицы работников,
-     * если она ещё не существует.
-     * SQL-запрос загружается из конфигурационного файла.
+     * если она ещё не существует, и применяет миграции схемы
+     * ({@link SchemaMigrator}), в том числе полнотекстовый индекс.
+     * Из журнала изменений удаляются старые записи ({@link ChangeFeed}).
+     * SQL-запрос загружается из каталога {@link StatementCatalog}.
+     * Все изменения выполняются через соединение для записи.
      * </p>
      */
     public static void initDatabase() {
         logger.info("Инициализация базы данных");
-        String sql = LabApplication.getProperty()
-                .getProperty("sql.create_table");
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
-            logger.info("Таблица успешно создана или уже существует");
+        String sql = StatementCatalog.sql("sql.create_table");
+        try (ConnectionPool.Lease lease = writer()) {
+            Connection conn = lease.get();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+                logger.info("Таблица успешно создана или уже существует");
+            }
+            SchemaMigrator.migrate(conn);
+            checkFullTextIndex(conn);
+            Properties property = LabApplication.getProperty();
+            if (property != null) {
+                SchemaMigrator.verifyIndexes(conn, property);
+            }
+            ChangeFeed.prune(conn, property == null ? ChangeFeed.DEFAULT_RETAIN
+                    : Integer.parseInt(property.getProperty("changes.retain",
+                    String.valueOf(ChangeFeed.DEFAULT_RETAIN)).trim()));
+            IndexStatistics.analyze(conn);
+        } catch (SQLException e) {
+            logger.error("Ошибка инициализации базы данных", e);
+        }
+    }
+
+    /**
+     * Проверяет наличие полнотекстового индекса FTS5 по фамилии
+     * и должности, создаваемого миграцией схемы. Если SQLite собран
+     * без FTS5, миграция пропускается и поиск выполняется через {@code LIKE}.
+     *
+     * @param conn соединение для записи
+     */
+    private static void checkFullTextIndex(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(StatementCatalog.sql("sql.fts_exists"))) {
+            fullTextSearch = rs.next();
         } catch (SQLException e) {
-            logger.error("Ошибка при создании таблицы", e);
+            fullTextSearch = false;
+            logger.warn("Ошибка проверки полнотекстового индекса", e);
         }
+        if (!fullTextSearch) {
+            logger.warn("Полнотекстовый индекс FTS5 недоступен, поиск будет выполняться через LIKE");
+        }
+    }
+
+    /**
+     * Возвращает признак доступности полнотекстового индекса.
+     *
+     * @return {@code true}, если индекс FTS5 создан
+     */
+    public static boolean isFullTextSearchAvailable() {
+        return fullTextSearch;
     }
 
     /**
      * Корректно завершает работу с базой данных.
-     * Закрывает активное соединение при завершении приложения.
+     * Закрывает пул вместе с подготовленными выражениями
+     * при завершении приложения.
      *
      * @throws SQLException при ошибке закрытия соединения
      */
-    public static void stopConnection() throws SQLException {
-        if (connection != null) {
-            connection.close();
+    public static synchronized void stopConnection() throws SQLException {
+        if (pool != null) {
+            logger.info("Кэш выражений: попаданий={}, промахов={}",
+                    StatementCatalog.getHits(), StatementCatalog.getMisses());
+            pool.close();
+            pool = null;
         }
     }
 }
@@ -2,6 +2,9 @@ module com.mivlgu.KP {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.management;
+    requires jdk.jfr;
+    requires jdk.httpserver;
     requires javafx.base;
     requires javafx.graphics;
     requires org.slf4j;
@@ -0,0 +1,5 @@
+-- Индексы по фамилии и должности
+-- NOCASE совпадает с правилом сравнения LIKE, поэтому индексы
+-- используются для поиска по префиксу и сортировки.
+CREATE INDEX IF NOT EXISTS idx_workers_surname ON workers (surname COLLATE NOCASE);
+CREATE INDEX IF NOT EXISTS idx_workers_position ON workers (position COLLATE NOCASE);
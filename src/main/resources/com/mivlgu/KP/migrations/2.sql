@@ -0,0 +1,3 @@
+-- Индексы по городу и возрасту
+CREATE INDEX IF NOT EXISTS idx_workers_city ON workers (city);
+CREATE INDEX IF NOT EXISTS idx_workers_age ON workers (age);
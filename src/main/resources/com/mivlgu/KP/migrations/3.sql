@@ -0,0 +1,20 @@
+-- Журнал изменений таблицы работников для инкрементального обновления
+-- Каждая вставка, изменение и удаление получает возрастающий номер
+-- версии; клиенты запрашивают изменения после последней известной им версии.
+CREATE TABLE IF NOT EXISTS worker_changes (
+    version INTEGER PRIMARY KEY AUTOINCREMENT,
+    worker_id INTEGER NOT NULL,
+    op TEXT NOT NULL
+);
+CREATE TRIGGER IF NOT EXISTS worker_changes_ai AFTER INSERT ON workers
+BEGIN
+    INSERT INTO worker_changes (worker_id, op) VALUES (new.id, 'I');
+END;
+CREATE TRIGGER IF NOT EXISTS worker_changes_au AFTER UPDATE ON workers
+BEGIN
+    INSERT INTO worker_changes (worker_id, op) VALUES (new.id, 'U');
+END;
+CREATE TRIGGER IF NOT EXISTS worker_changes_ad AFTER DELETE ON workers
+BEGIN
+    INSERT INTO worker_changes (worker_id, op) VALUES (old.id, 'D');
+END;
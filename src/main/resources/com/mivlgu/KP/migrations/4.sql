@@ -0,0 +1,22 @@
+-- Полнотекстовый индекс FTS5 по фамилии и должности
+-- Триграммный токенизатор без учёта регистра позволяет искать подстроку,
+-- в том числе в кириллице. Индекс хранит только ссылки на строки workers
+-- и синхронизируется с таблицей триггерами; перестроение заполняет его
+-- существующими строками. Без модуля FTS5 миграция пропускается,
+-- и поиск выполняется через LIKE.
+-- requires: fts5
+CREATE VIRTUAL TABLE IF NOT EXISTS workers_fts USING fts5(surname, position, content='workers', content_rowid='id', tokenize='trigram case_sensitive 0');
+CREATE TRIGGER IF NOT EXISTS workers_fts_ai AFTER INSERT ON workers
+BEGIN
+    INSERT INTO workers_fts(rowid, surname, position) VALUES (new.id, new.surname, new.position);
+END;
+CREATE TRIGGER IF NOT EXISTS workers_fts_ad AFTER DELETE ON workers
+BEGIN
+    INSERT INTO workers_fts(workers_fts, rowid, surname, position) VALUES ('delete', old.id, old.surname, old.position);
+END;
+CREATE TRIGGER IF NOT EXISTS workers_fts_au AFTER UPDATE OF surname, position ON workers
+BEGIN
+    INSERT INTO workers_fts(workers_fts, rowid, surname, position) VALUES ('delete', old.id, old.surname, old.position);
+    INSERT INTO workers_fts(rowid, surname, position) VALUES (new.id, new.surname, new.position);
+END;
+INSERT INTO workers_fts(workers_fts) VALUES ('rebuild');
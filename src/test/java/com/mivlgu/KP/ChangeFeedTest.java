@@ -0,0 +1,130 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки ленты изменений ({@link ChangeFeed}): свёртка операций
+ * над одной строкой и полное обновление для устаревших клиентов.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class ChangeFeedTest {
+
+    private static final int ROWS = 10;
+
+    @TempDir
+    Path dir;
+
+    private WorkerDao dao;
+    private final ChangeFeed feed = new ChangeFeed();
+
+    @BeforeEach
+    void open() {
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + dir.resolve("worker.db"));
+        LabApplication.initStorage();
+        dao = new WorkerDao();
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            workers.add(worker("Иванов"));
+        }
+        dao.saveAll(workers);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        dbCon.stopConnection();
+        System.clearProperty("kp.db.url");
+    }
+
+    private static Worker worker(String surname) {
+        return new Worker(0, "Иван", surname, "Иванович", 30, "Москва", "Инженер");
+    }
+
+    private static NavigableMap<Integer, Integer> start() {
+        NavigableMap<Integer, Integer> boundaries = new TreeMap<>();
+        boundaries.put(0, 0);
+        return boundaries;
+    }
+
+    @Test
+    void insertThenDeleteFoldsToNothing() throws SQLException {
+        long version = feed.currentVersion();
+        Worker saved = dao.save(worker("Петров"));
+        dao.deleteById(saved.getId());
+
+        ChangeFeed.Delta delta = feed.diff(version, ROWS, start(), ChangeFeed.DEFAULT_MAX_CHANGES);
+
+        assertFalse(delta.full());
+        assertTrue(delta.changes().isEmpty());
+        assertEquals(ROWS, delta.size());
+        assertTrue(delta.toVersion() > version);
+    }
+
+    @Test
+    void updateAfterInsertIsInsert() throws SQLException {
+        long version = feed.currentVersion();
+        Worker saved = dao.save(worker("Петров"));
+        saved.setSurname("Сидоров");
+        dao.update(saved);
+        Worker fifth = dao.findPage(0, 5).get(4);
+        fifth.setAge(40);
+        dao.update(fifth);
+
+        ChangeFeed.Delta delta = feed.diff(version, ROWS, start(), ChangeFeed.DEFAULT_MAX_CHANGES);
+
+        assertFalse(delta.full());
+        assertEquals(ROWS + 1, delta.size());
+        assertEquals(List.of(
+                new ChangeFeed.Change(ChangeFeed.Change.Type.UPDATE, fifth.getId(), 4),
+                new ChangeFeed.Change(ChangeFeed.Change.Type.INSERT, saved.getId(), ROWS)),
+                delta.changes());
+    }
+
+    @Test
+    void prunedHistoryFallsBackToFullRefresh() throws SQLException {
+        long version = feed.currentVersion();
+        for (Worker worker : dao.findPage(0, 5)) {
+            worker.setAge(50);
+            dao.update(worker);
+        }
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            ChangeFeed.prune(lease.get(), 2);
+        }
+
+        ChangeFeed.Delta delta = feed.diff(version, ROWS, start(), ChangeFeed.DEFAULT_MAX_CHANGES);
+
+        assertTrue(delta.full());
+        assertEquals(ROWS, delta.size());
+        assertEquals(version + 5, delta.toVersion());
+        // клиент, прочитавший список после очистки, снова получает изменения
+        assertTrue(feed.diff(delta.toVersion(), ROWS, start(), ChangeFeed.DEFAULT_MAX_CHANGES).isEmpty());
+    }
+
+    @Test
+    void tooManyChangesFallBackToFullRefresh() throws SQLException {
+        long version = feed.currentVersion();
+        for (Worker worker : dao.findPage(0, 5)) {
+            worker.setAge(50);
+            dao.update(worker);
+        }
+
+        assertTrue(feed.diff(version, ROWS, start(), 4).full());
+        assertFalse(feed.diff(version, ROWS, start(), 5).full());
+        assertTrue(feed.diff(ChangeFeed.NO_VERSION, ROWS, start(), 5).full());
+    }
+}
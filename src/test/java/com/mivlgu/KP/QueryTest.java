@@ -0,0 +1,212 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Проверки преобразования запросов ({@link Query}) в SQL
+ * и чтения страниц по ключу ({@link WorkerDao#findPage(Query, Worker, int, int)}).
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class QueryTest {
+
+    private static final String[] CITIES = {null, "Москва", "Казань", null, "Омск", "Москва", null};
+    private static final int ROWS = 20;
+    private static final int PAGE = 3;
+
+    @TempDir
+    Path dir;
+
+    private WorkerDao dao;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + dir.resolve("worker.db"));
+        LabApplication.initStorage();
+        dao = new WorkerDao();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        dbCon.stopConnection();
+        System.clearProperty("kp.db.url");
+    }
+
+    private static Worker worker(int id, String surname, String city) {
+        return new Worker(id, "Иван", surname, "Иванович", 30, city, "Инженер");
+    }
+
+    private void fill() {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            workers.add(worker(0, "Фамилия" + i, CITIES[i % CITIES.length]));
+        }
+        dao.saveAll(workers);
+    }
+
+    private static List<Integer> ids(List<Worker> workers) {
+        return workers.stream().map(Worker::getId).toList();
+    }
+
+    @Test
+    void keysetShapeDependsOnSortAndBoundary() {
+        Query byId = Query.all().page(worker(5, "Иванов", "Москва"), 0, 10);
+        assertEquals("SELECT * FROM workers WHERE id > ? ORDER BY id LIMIT ?", byId.compile().sql());
+        assertEquals(List.of(5, 10), byId.compile().parameters());
+
+        Query bySurname = Query.all().orderBy(WorkerField.SURNAME)
+                .page(worker(5, "Иванов", "Москва"), 0, 10);
+        assertEquals("SELECT * FROM workers WHERE (surname, id) > (? COLLATE NOCASE, ?)"
+                + " ORDER BY surname COLLATE NOCASE, id LIMIT ?", bySurname.compile().sql());
+        assertEquals(List.of("Иванов", 5, 10), bySurname.compile().parameters());
+
+        Query byCity = Query.where(Criteria.eq(WorkerField.AGE, 30))
+                .orderBy(WorkerField.CITY, true).page(worker(5, "Иванов", "Москва"), 2, 10);
+        assertEquals("SELECT * FROM workers WHERE age = ? AND (city, id) < (?, ?)"
+                + " ORDER BY city DESC, id DESC LIMIT ? OFFSET ?", byCity.compile().sql());
+        assertEquals(List.of(30, "Москва", 5, 10, 2), byCity.compile().parameters());
+
+        // пустое значение границы: по возрастанию дальше идут все непустые
+        Query nullAscending = Query.all().orderBy(WorkerField.CITY).page(worker(5, "Иванов", null), 0, 10);
+        assertEquals("SELECT * FROM workers WHERE (city IS NOT NULL OR id > ?)"
+                + " ORDER BY city, id LIMIT ?", nullAscending.compile().sql());
+        Query nullDescending = Query.all().orderBy(WorkerField.CITY, true)
+                .page(worker(5, "Иванов", null), 0, 10);
+        assertEquals("SELECT * FROM workers WHERE (city IS NULL AND id < ?)"
+                + " ORDER BY city DESC, id DESC LIMIT ?", nullDescending.compile().sql());
+        assertEquals(List.of(5, 10), nullDescending.compile().parameters());
+    }
+
+    @Test
+    void driverIsChosenByKindWithoutStatistics() {
+        Query prefixAndCity = Query.where(Criteria.startsWith(WorkerField.SURNAME, "Ив")
+                .and(Criteria.eq(WorkerField.CITY, "Москва")));
+        assertEquals("SELECT * FROM workers WHERE +surname LIKE ? ESCAPE '\\' AND city = ?"
+                + " ORDER BY id", prefixAndCity.compile().sql());
+        assertEquals(List.of("Ив%", "Москва"), prefixAndCity.compile().parameters());
+
+        Query rangeAndPosition = Query.where(Criteria.between(WorkerField.AGE, 20, 30)
+                .and(Criteria.eq(WorkerField.POSITION, "Инженер"))
+                .and(Criteria.eq(WorkerField.NAME, "Иван")));
+        assertEquals("SELECT * FROM workers WHERE (+age >= ? AND +age <= ?)"
+                + " AND (position = ? COLLATE NOCASE AND position = ?) AND name = ?"
+                + " ORDER BY id", rangeAndPosition.compile().sql());
+        assertEquals(List.of(20, 30, "Инженер", "Инженер", "Иван"),
+                rangeAndPosition.compile().parameters());
+
+        // без индексированных полей ведущего условия нет и индексы не подавляются
+        Query unindexed = Query.where(Criteria.eq(WorkerField.NAME, "Иван")
+                .and(Criteria.startsWith(WorkerField.LASTNAME, "Ив")));
+        assertEquals("SELECT * FROM workers WHERE name = ? AND lastname LIKE ? ESCAPE '\\'"
+                + " ORDER BY id", unindexed.compile().sql());
+    }
+
+    @Test
+    void driverIsChosenByStatistics() throws SQLException {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            workers.add(worker(0, "Фамилия" + i, "Москва"));
+        }
+        dao.saveAll(workers);
+        IndexStatistics statistics;
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            IndexStatistics.analyze(lease.get());
+            statistics = IndexStatistics.load(lease.get());
+        }
+        Query query = Query.where(Criteria.eq(WorkerField.CITY, "Москва")
+                .and(Criteria.eq(WorkerField.SURNAME, "Фамилия7")));
+
+        // без статистики равенства равноценны и ведёт первое
+        assertEquals("SELECT * FROM workers WHERE city = ? AND +surname = ? ORDER BY id",
+                query.compile().sql());
+        // по статистике город отбирает все строки, фамилия — одну
+        assertEquals("SELECT * FROM workers WHERE +city = ?"
+                + " AND (surname = ? COLLATE NOCASE AND surname = ?) ORDER BY id",
+                query.compile(statistics).sql());
+        assertEquals(1, dao.find(query).size());
+    }
+
+    @Test
+    void paddedInListsShareStatement() throws SQLException {
+        Query three = Query.where(Criteria.in(WorkerField.CITY, List.of("Москва", "Казань", "Омск")));
+        Query four = Query.where(Criteria.in(WorkerField.CITY, List.of("Тверь", "Тула", "Орёл", "Псков")));
+        Query five = Query.where(Criteria.in(WorkerField.CITY, List.of("Тверь", "Тула", "Орёл", "Псков", "Омск")));
+
+        assertEquals("SELECT * FROM workers WHERE city IN (?, ?, ?, ?) ORDER BY id", three.compile().sql());
+        assertEquals(three.compile().sql(), four.compile().sql());
+        assertEquals(List.of("Москва", "Казань", "Омск", "Омск"), three.compile().parameters());
+        assertEquals(8, five.compile().parameters().size());
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            PreparedStatement stmt = StatementCatalog.prepareQuery(lease.get(), three.compile().sql());
+            assertSame(stmt, StatementCatalog.prepareQuery(lease.get(), four.compile().sql()));
+        }
+
+        // у NOCASE-поля список записывается дважды, оба раза дополненным
+        Query positions = Query.where(Criteria.in(WorkerField.POSITION, List.of("Инженер", "Техник", "Мастер")));
+        assertEquals("SELECT * FROM workers WHERE (position COLLATE NOCASE IN (?, ?, ?, ?)"
+                + " AND position IN (?, ?, ?, ?)) ORDER BY id", positions.compile().sql());
+
+        // дополнение повтором не меняет результат
+        fill();
+        long expected = dao.findAll().stream()
+                .filter(w -> w.getCity() != null && List.of("Москва", "Казань", "Омск").contains(w.getCity()))
+                .count();
+        assertEquals(expected, dao.find(three).size());
+        assertEquals(expected, dao.count(three.getCriteria()));
+    }
+
+    @Test
+    void pagesPassThroughNullValuesAscending() {
+        pagesPassThroughNullValues(false);
+    }
+
+    @Test
+    void pagesPassThroughNullValuesDescending() {
+        pagesPassThroughNullValues(true);
+    }
+
+    private void pagesPassThroughNullValues(boolean descending) {
+        fill();
+        Comparator<Worker> order = Comparator.comparing(Worker::getCity,
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(Worker::getId);
+        List<Worker> all = new ArrayList<>(dao.findAll());
+        all.sort(descending ? order.reversed() : order);
+        List<Integer> expected = ids(all);
+        Query query = Query.all().orderBy(WorkerField.CITY, descending);
+
+        // продолжение по ключу от последней строки страницы
+        List<Integer> read = new ArrayList<>();
+        Worker last = null;
+        List<Worker> page;
+        do {
+            page = dao.findPage(query, last, 0, PAGE);
+            read.addAll(ids(page));
+            last = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE);
+        assertEquals(expected, read);
+
+        // переход с отступом от любой строки, в том числе через границу пустых значений
+        for (int from = 0; from < ROWS; from++) {
+            for (int offset = 0; from + 1 + offset <= ROWS; offset++) {
+                int start = from + 1 + offset;
+                List<Integer> expectedPage = expected.subList(start, Math.min(ROWS, start + PAGE));
+                assertEquals(expectedPage, ids(dao.findPage(query, all.get(from), offset, PAGE)),
+                        "от строки " + from + " с отступом " + offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки миграций схемы ({@link SchemaMigrator}).
+ * <p>
+ * Планы запросов проверяются на базе, созданной так же, как при запуске
+ * приложения: по настоящему {@code statements.properties} и скриптам миграций.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class SchemaMigratorTest {
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + dir.resolve("worker.db"));
+        LabApplication.initStorage();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        dbCon.stopConnection();
+        System.clearProperty("kp.db.url");
+    }
+
+    @Test
+    void migrationsAreAppliedOnce() throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            int version = SchemaMigrator.migrate(lease.get());
+            assertTrue(version >= 4, "версия схемы " + version);
+            assertEquals(version, SchemaMigrator.migrate(lease.get()));
+        }
+        assertTrue(dbCon.isFullTextSearchAvailable());
+    }
+
+    @Test
+    void migrationWithMissingModuleIsSkipped() throws SQLException {
+        assertEquals(List.of("fts5"), SchemaMigrator.requiredModules(
+                "-- Описание\n-- requires: fts5\nCREATE VIRTUAL TABLE t USING fts5(x);\n"));
+        try (ConnectionPool.Lease lease = dbCon.writer()) {
+            assertTrue(SchemaMigrator.isModuleAvailable(lease.get(), "fts5"));
+            assertFalse(SchemaMigrator.isModuleAvailable(lease.get(), "no_such_module"));
+        }
+    }
+
+    @Test
+    void controlQueriesUseTheirIndexes() throws SQLException {
+        Properties properties = LabApplication.getProperty();
+        int checked = 0;
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            for (String key : properties.stringPropertyNames()) {
+                if (key.startsWith("plan.")) {
+                    String index = key.substring("plan.".length());
+                    assertUsesIndex(index, explain(lease.get(), properties.getProperty(key).trim(), List.of()));
+                    checked++;
+                }
+            }
+            assertTrue(SchemaMigrator.verifyIndexes(lease.get(), properties));
+        }
+        long indexed = Arrays.stream(WorkerField.values()).filter(field -> field.indexName() != null).count();
+        assertEquals(indexed, checked);
+    }
+
+    @Test
+    void daoQueriesUseIndexes() throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            Connection conn = lease.get();
+            assertUsesIndex(WorkerField.SURNAME.indexName(),
+                    explain(conn, Query.where(Criteria.startsWith(WorkerField.SURNAME, "Iv")).compile()));
+            assertUsesIndex(WorkerField.POSITION.indexName(),
+                    explain(conn, Query.where(Criteria.startsWith(WorkerField.POSITION, "Eng")).compile()));
+            assertUsesIndex(WorkerField.CITY.indexName(),
+                    explain(conn, Query.where(Criteria.eq(WorkerField.CITY, "Moscow")).compile()));
+            assertUsesIndex(WorkerField.AGE.indexName(),
+                    explain(conn, Query.where(Criteria.between(WorkerField.AGE, 20, 30)).compile()));
+        }
+    }
+
+    @Test
+    void substringSearchUsesFullTextIndex() throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.reader()) {
+            List<String> plan = explain(lease.get(),
+                    StatementCatalog.sql("sql.findBySurnameOrGroupName_fts"), List.of("\"ива\"", 100));
+            assertTrue(plan.stream().anyMatch(line -> line.contains("workers_fts VIRTUAL TABLE")), plan::toString);
+        }
+    }
+
+    private static void assertUsesIndex(String index, List<String> plan) {
+        assertTrue(plan.stream().anyMatch(line -> line.matches(".*USING (COVERING )?INDEX " + index + "\\b.*")),
+                () -> "план не использует " + index + ": " + plan);
+    }
+
+    private static List<String> explain(Connection conn, Query.Compiled query) throws SQLException {
+        return explain(conn, query.sql(), query.parameters());
+    }
+
+    /**
+     * Выполняет {@code EXPLAIN QUERY PLAN} с привязанными параметрами:
+     * оптимизация {@code LIKE} по индексу зависит от значения шаблона.
+     */
+    private static List<String> explain(Connection conn, String sql, List<Object> parameters)
+            throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < parameters.size(); i++) {
+                stmt.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,115 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверки столбцового хранилища ({@link WorkerColumnStore}),
+ * заполняемого уведомлениями без базы данных.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class WorkerColumnStoreTest {
+
+    private static Worker worker(int id, String surname, String city) {
+        return new Worker(id, "Иван", surname, "Иванович", 30, city, "Инженер");
+    }
+
+    private static List<Worker> workers(int count, String surnamePrefix) {
+        List<Worker> list = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            list.add(worker(id, surnamePrefix + id, "Москва"));
+        }
+        return list;
+    }
+
+    @Test
+    void missingValueIsNotEmptyString() {
+        WorkerColumnStore store = new WorkerColumnStore();
+        store.inserted(List.of(worker(1, "Иванов", null), worker(2, "Петров", ""),
+                worker(3, "Сидоров", null)));
+
+        assertNull(store.get(1).getCity());
+        assertEquals("", store.get(2).getCity());
+
+        Map<String, Integer> counts = store.countBy(WorkerColumnStore.Column.CITY, null);
+        assertEquals(2, counts.get(null));
+        assertEquals(1, counts.get(""));
+    }
+
+    @Test
+    void deletedRowsAreCompacted() {
+        WorkerColumnStore store = new WorkerColumnStore();
+        store.inserted(workers(4000, "Фамилия"));
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 3000; id++) {
+            ids.add(id);
+        }
+        store.deleted(ids);
+
+        assertEquals(1000, store.size());
+        assertEquals(1000, store.footprint().rows());
+        assertNull(store.get(3000));
+        assertEquals("Фамилия3001", store.get(3001).getSurname());
+        assertEquals(Map.of("Москва", 1000), store.countBy(WorkerColumnStore.Column.CITY,
+                new WorkerColumnStore.Filter().surnamePrefix("фамилия")));
+    }
+
+    @Test
+    void replacedNamesAreReleased() {
+        WorkerColumnStore updated = new WorkerColumnStore();
+        updated.inserted(workers(4000, "Старая"));
+        updated.updated(workers(4000, "Новая"));
+
+        WorkerColumnStore fresh = new WorkerColumnStore();
+        fresh.inserted(workers(4000, "Новая"));
+
+        assertEquals("Новая1", updated.get(1).getSurname());
+        assertEquals(fresh.footprint().columnBytes(), updated.footprint().columnBytes());
+        assertTrue(updated.footprint().columnBytesPerRow() < updated.footprint().listBytesPerRow());
+    }
+
+    @Test
+    void unusedDictionaryCodesAreReleased() {
+        WorkerColumnStore updated = new WorkerColumnStore();
+        List<Worker> scattered = new ArrayList<>();
+        for (int id = 1; id <= 4000; id++) {
+            scattered.add(worker(id, "Фамилия" + id, "Город" + id));
+        }
+        updated.inserted(scattered);
+        updated.updated(workers(4000, "Фамилия"));
+
+        WorkerColumnStore fresh = new WorkerColumnStore();
+        fresh.inserted(workers(4000, "Фамилия"));
+
+        assertEquals(Map.of("Москва", 4000), updated.countBy(WorkerColumnStore.Column.CITY, null));
+        assertEquals(fresh.footprint().columnBytes(), updated.footprint().columnBytes());
+    }
+
+    @Test
+    void reinsertedRowsAreCompacted() {
+        WorkerColumnStore store = new WorkerColumnStore();
+        store.inserted(workers(4000, "Первая"));
+        // повторное уведомление о вставке перезаписывает живые строки
+        store.inserted(workers(1000, "Вторая"));
+
+        WorkerColumnStore fresh = new WorkerColumnStore();
+        List<Worker> expected = new ArrayList<>(workers(4000, "Первая"));
+        for (int id = 1; id <= 1000; id++) {
+            expected.set(id - 1, worker(id, "Вторая" + id, "Москва"));
+        }
+        fresh.inserted(expected);
+
+        assertEquals(4000, store.size());
+        assertEquals("Вторая1", store.get(1).getSurname());
+        assertEquals(fresh.footprint().columnBytes(), store.footprint().columnBytes());
+    }
+}
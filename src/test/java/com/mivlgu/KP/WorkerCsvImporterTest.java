@@ -0,0 +1,108 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Проверки импорта CSV ({@link WorkerCsvImporter}) с подменённым DAO.
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class WorkerCsvImporterTest {
+
+    private static final int ROWS = 5000;
+
+    @TempDir
+    Path dir;
+
+    private Path csv() throws IOException {
+        StringBuilder sb = new StringBuilder("Фамилия;Имя;Отчество;Возраст;Город;Должность\n");
+        for (int i = 0; i < ROWS; i++) {
+            sb.append("Иванов;Иван;Иванович;").append(20 + i % 40).append(";Москва;Инженер\n");
+        }
+        Path file = dir.resolve("workers.csv");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * DAO, в котором реализовано только пакетное сохранение.
+     */
+    @SuppressWarnings("unchecked")
+    private static Dao<Worker, Integer> dao(SaveAll saveAll) {
+        return (Dao<Worker, Integer>) Proxy.newProxyInstance(Dao.class.getClassLoader(),
+                new Class<?>[]{Dao.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("saveAll")) {
+                        return saveAll.save((Collection<Worker>) args[0]);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private interface SaveAll {
+        List<Integer> save(Collection<Worker> workers);
+    }
+
+    private static WorkerCsvImporter importer(Dao<Worker, Integer> dao) {
+        WorkerCsvImporter importer = new WorkerCsvImporter(dao);
+        importer.setBatchSize(10);
+        importer.setQueueCapacity(1);
+        importer.setParserThreads(2);
+        return importer;
+    }
+
+    private static List<Integer> ids(Collection<Worker> workers) {
+        return Collections.nCopies(workers.size(), 0);
+    }
+
+    @Test
+    void allRowsAreSaved() throws Exception {
+        WorkerCsvImporter.Result result = importer(dao(WorkerCsvImporterTest::ids)).importFile(csv(), null);
+        assertEquals(ROWS, result.getAccepted());
+        assertEquals(0, result.getRejected());
+    }
+
+    @Test
+    void writerFailureStopsImport() throws Exception {
+        Path file = csv();
+        AtomicInteger batches = new AtomicInteger();
+        WorkerCsvImporter importer = importer(dao(workers -> {
+            if (batches.incrementAndGet() == 3) {
+                throw new IllegalStateException("Отложенная запись остановлена");
+            }
+            return ids(workers);
+        }));
+
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> importer.importFile(file, null)));
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+        assertEquals(3, batches.get());
+    }
+
+    @Test
+    void progressFailureStopsImport() throws Exception {
+        Path file = csv();
+        WorkerCsvImporter importer = importer(dao(WorkerCsvImporterTest::ids));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> assertThrows(IllegalStateException.class, () -> importer.importFile(file, result -> {
+                    throw new IllegalArgumentException("ошибка отображения");
+                })));
+    }
+}
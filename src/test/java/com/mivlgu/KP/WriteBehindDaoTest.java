@@ -0,0 +1,189 @@
+package com.mivlgu.KP;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверки сохранности данных при отложенной записи ({@link WriteBehindDao}).
+ * <p>
+ * Аварийное завершение процесса моделируется копированием файлов базы
+ * и журнала WAL при открытых соединениях: копия содержит ровно то,
+ * что увидел бы процесс, запущенный после сбоя.
+ * </p>
+ *
+ * @author Igor Builov
+ * @version 1.0
+ */
+class WriteBehindDaoTest {
+
+    /** Интервал, при котором фоновое сохранение не вмешивается в тест */
+    private static final long NO_TIMER_MS = 600_000;
+
+    @TempDir
+    Path dir;
+
+    private WriteBehindDao dao;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("kp.db.url", "jdbc:sqlite:" + dir.resolve("worker.db"));
+        LabApplication.initStorage();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        if (dao != null) {
+            dao.close();
+        }
+        dbCon.stopConnection();
+        System.clearProperty("kp.db.url");
+    }
+
+    @Test
+    void flushedChangesSurviveCrash() throws Exception {
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 3);
+        for (int i = 0; i < 3; i++) {
+            dao.save(worker("Иванов", 30));
+        }
+        assertEquals(3, dao.flush());
+        dao.save(worker("Петров", 40));
+
+        Path copy = crash();
+        assertEquals(3, count(copy, "SELECT COUNT(*) FROM workers"));
+        assertEquals(0, count(copy, "SELECT COUNT(*) FROM workers WHERE surname = 'Петров'"));
+    }
+
+    @Test
+    void failedBatchLeavesNoPartialRows() throws Exception {
+        rejectNegativeAge();
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 3);
+        dao.save(worker("Иванов", 30));
+        dao.save(worker("Сидоров", -1));
+
+        assertThrows(SQLException.class, dao::flush);
+        assertEquals(2, dao.getPendingCount());
+        assertEquals(0, count(crash(), "SELECT COUNT(*) FROM workers"));
+    }
+
+    @Test
+    void journalKeepsDataAtCallTime() throws Exception {
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 3);
+        Worker worker = worker("Иванов", 30);
+        dao.save(worker);
+        worker.setSurname("Изменён после сохранения");
+        dao.flush();
+
+        // объект вызывающего кода не изменяется фоновым сохранением
+        assertEquals(0, worker.getId());
+        assertNotEquals(0, dao.idOf(worker));
+        assertEquals("Иванов", new WorkerDao().findById(dao.idOf(worker)).getSurname());
+    }
+
+    @Test
+    void savedWorkerIsUpdatedByReference() throws Exception {
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 3);
+        Worker worker = worker("Иванов", 30);
+        dao.save(worker);
+        dao.flush();
+        worker.setSurname("Петров");
+        dao.update(worker);
+
+        // чтение по идентификатору видит ожидающее обновление
+        assertEquals("Петров", dao.findById(dao.idOf(worker)).getSurname());
+        assertEquals(0, count(crash(), "SELECT COUNT(*) FROM workers WHERE surname = 'Петров'"));
+
+        dao.flush();
+        assertEquals(1, count(crash(), "SELECT COUNT(*) FROM workers"));
+        dao.delete(worker);
+        assertNull(dao.findById(dao.idOf(worker)));
+        dao.flush();
+        assertEquals(0, count(crash(), "SELECT COUNT(*) FROM workers"));
+    }
+
+    @Test
+    void failingBatchIsQuarantinedAfterMaxAttempts() throws Exception {
+        rejectNegativeAge();
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 2);
+        dao.save(worker("Сидоров", -1));
+
+        assertThrows(SQLException.class, dao::flush);
+        assertEquals(1, dao.getPendingCount());
+        assertThrows(SQLException.class, dao::flush);
+        assertEquals(0, dao.getPendingCount());
+        assertEquals(1, dao.getQuarantinedCount());
+
+        // последующие изменения не задерживаются группой в карантине
+        dao.save(worker("Иванов", 30));
+        assertEquals(1, dao.flush());
+        assertEquals(1, count(crash(), "SELECT COUNT(*) FROM workers"));
+
+        execute("DROP TRIGGER reject_negative_age");
+        assertEquals(1, dao.retryQuarantined());
+        assertEquals(0, dao.getQuarantinedCount());
+        assertEquals(2, new WorkerDao().count());
+    }
+
+    @Test
+    void closeSavesPendingChanges() throws Exception {
+        dao = WriteBehindDao.start(new WorkerDao(), NO_TIMER_MS, 1_000, 3);
+        dao.save(worker("Иванов", 30));
+        dao.close();
+        dao = null;
+
+        assertEquals(1, count(crash(), "SELECT COUNT(*) FROM workers"));
+    }
+
+    private static Worker worker(String surname, int age) {
+        return new Worker(0, "Иван", surname, "Иванович", age, "Москва", "инженер");
+    }
+
+    /**
+     * Копирует файлы базы при открытых соединениях, как они
+     * остались бы после аварийного завершения процесса.
+     */
+    private Path crash() throws Exception {
+        Path crashed = Files.createDirectory(dir.resolve("crash-" + System.nanoTime()));
+        for (String suffix : new String[]{"", "-wal"}) {
+            Path file = dir.resolve("worker.db" + suffix);
+            if (Files.exists(file)) {
+                Files.copy(file, crashed.resolve("worker.db" + suffix));
+            }
+        }
+        return crashed.resolve("worker.db");
+    }
+
+    private static long count(Path database, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void rejectNegativeAge() throws SQLException {
+        execute("CREATE TRIGGER reject_negative_age BEFORE INSERT ON workers WHEN NEW.age < 0 "
+                + "BEGIN SELECT RAISE(ABORT, 'negative age'); END");
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (ConnectionPool.Lease lease = dbCon.writer();
+             Statement stmt = lease.get().createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}